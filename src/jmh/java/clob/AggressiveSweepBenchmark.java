@@ -0,0 +1,72 @@
+package clob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An aggressive buy sweeping the given number of offer levels, with a few orders resting at each, followed by the
+ * passive sells that put the swept levels back. The replenishing inserts are part of every operation; compare with
+ * {@link PassiveInsertBenchmark} to separate them out.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AggressiveSweepBenchmark {
+    private static final int ORDERS_PER_LEVEL = 4;
+    private static final int QTY = 100;
+
+    @Param({BenchmarkBooks.LIST, BenchmarkBooks.LADDER})
+    public String implementation;
+
+    @Param({"1", "10", "100"})
+    public int levels;
+
+    @Param({"1000", "100000"})
+    public int depth;
+
+    private BookOrderHandler handler;
+    private TradeBuffer trades;
+    private int uid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ILimitOrderBook book = BenchmarkBooks.create(implementation);
+        trades = new TradeBuffer();
+        handler = BenchmarkBooks.handler(book, trades);
+        // the swept offers sit at 1..levels in front of a backdrop of deeper levels that are never reached
+        uid = BenchmarkBooks.fill(book, depth, 1000, 1, levels);
+        replenish();
+    }
+
+    private void replenish() {
+        for (int level = 1; level <= levels; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                handler.onNewOrder('S', uid++, level, QTY, 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int sweepAndReplenish() {
+        trades.clear();
+        handler.onNewOrder('B', uid++, levels, levels * ORDERS_PER_LEVEL * QTY, 0);
+        int fills = trades.size();
+        replenish();
+        return fills;
+    }
+}
@@ -0,0 +1,72 @@
+package clob;
+
+/**
+ * Shared set up of the JMH benchmarks. Books are named by implementation so that every benchmark runs against both
+ * the original {@code ArrayList} book and the price ladder:
+ *
+ * <pre>
+ * list    {@link LimitOrderBook}
+ * ladder  {@link LadderLimitOrderBook}
+ * </pre>
+ *
+ * Run with the JMH annotation processor on the class path, e.g.
+ *
+ * <pre>
+ * java -cp &lt;classes&gt;:jmh-core.jar:jopt-simple.jar:commons-math3.jar org.openjdk.jmh.Main -prof gc
+ * </pre>
+ */
+public class BenchmarkBooks {
+    public static final String LIST = "list";
+    public static final String LADDER = "ladder";
+
+    public static ILimitOrderBook create(String implementation) {
+        switch (implementation) {
+            case LIST:
+                return new LimitOrderBook();
+            case LADDER:
+                return new LadderLimitOrderBook();
+            default:
+                throw new IllegalArgumentException("unknown book implementation " + implementation);
+        }
+    }
+
+    /**
+     * @return a handler feeding the book the way the engine does: fresh order objects for the list book, one reused
+     * order for the ladder, which copies its resting orders
+     */
+    public static BookOrderHandler handler(ILimitOrderBook book, TradeBuffer trades) {
+        return new BookOrderHandler(book, trades, book instanceof LadderLimitOrderBook);
+    }
+
+    /**
+     * Rest {@code depth} limit orders of qty 100 without matching, half bids at prices -1 down to -levels and half
+     * offers at 1 up to levels, spread evenly over the levels. Orders are restored in price-time order, so even the
+     * list book fills in linear time.
+     *
+     * @return the next free uid
+     */
+    public static int fill(ILimitOrderBook book, int depth, int levels, int firstUid) {
+        return fill(book, depth, levels, firstUid, 0);
+    }
+
+    /**
+     * As {@link #fill(ILimitOrderBook, int, int, int)}, with both sides moved {@code offset} ticks away from 0.
+     */
+    public static int fill(ILimitOrderBook book, int depth, int levels, int firstUid, int offset) {
+        int uid = firstUid;
+        int perSide = depth / 2;
+        for (int level = 1; level <= levels; level++) {
+            int ordersAtLevel = perSide / levels + (level <= perSide % levels ? 1 : 0);
+            for (int i = 0; i < ordersAtLevel; i++) {
+                book.restoreOrder('B', uid++, -(offset + level), 100, 0, 100);
+            }
+        }
+        for (int level = 1; level <= levels; level++) {
+            int ordersAtLevel = perSide / levels + (level <= perSide % levels ? 1 : 0);
+            for (int i = 0; i < ordersAtLevel; i++) {
+                book.restoreOrder('S', uid++, offset + level, 100, 0, 100);
+            }
+        }
+        return uid;
+    }
+}
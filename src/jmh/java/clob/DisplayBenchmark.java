@@ -0,0 +1,80 @@
+package clob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the book table with {@code String.format} into a {@link StringBuilder} against the {@link ByteFormatter},
+ * which is drained to a channel that discards the bytes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayBenchmark {
+    private static final int LEVELS = 50;
+
+    @Param({"10", "1000"})
+    public int depth;
+
+    private ILimitOrderBook book;
+    private StringBuilder stringBuilder;
+    private ByteFormatter formatter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = new LimitOrderBook();
+        BenchmarkBooks.fill(book, depth, LEVELS, 1);
+        stringBuilder = new StringBuilder();
+        formatter = new ByteFormatter(new DiscardingChannel());
+    }
+
+    @Benchmark
+    public int stringFormat() {
+        stringBuilder.setLength(0);
+        DisplayUtil.displayBook(stringBuilder, book);
+        return stringBuilder.length();
+    }
+
+    @Benchmark
+    public int byteFormatter() {
+        DisplayUtil.displayBook(formatter, book);
+        int size = formatter.size();
+        formatter.flush();
+        return size;
+    }
+
+    private static class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package clob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggressive buys against a book of offers that are all icebergs, each buy using up several peaks so that resting
+ * icebergs are replenished and requeued on every operation: the round-robin queue of
+ * {@link LimitOrderBook#matchOrders} for the list book, the store's peak replenishment for the
+ * ladder. The icebergs are too large to be used up within a run, so the book keeps its shape.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IcebergBenchmark {
+    private static final int PEAK_SIZE = 10;
+
+    @Param({BenchmarkBooks.LIST, BenchmarkBooks.LADDER})
+    public String implementation;
+
+    @Param({"10", "1000"})
+    public int icebergs;
+
+    @Param({"1", "5"})
+    public int levels;
+
+    private BookOrderHandler handler;
+    private TradeBuffer trades;
+    private int uid;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ILimitOrderBook book = BenchmarkBooks.create(implementation);
+        trades = new TradeBuffer();
+        handler = BenchmarkBooks.handler(book, trades);
+        uid = 1;
+        for (int i = 0; i < icebergs; i++) {
+            handler.onNewOrder('S', uid++, 1 + i % levels, Integer.MAX_VALUE / 2, PEAK_SIZE);
+        }
+    }
+
+    /**
+     * A buy crossing every level and taking two and a half peaks.
+     */
+    @Benchmark
+    public int takePeaks() {
+        trades.clear();
+        handler.onNewOrder('B', uid++, levels, PEAK_SIZE * 5 / 2, 0);
+        return trades.size();
+    }
+
+    /**
+     * An aggressive iceberg buy taking two and a half peaks, which refreshes its own peak before it would rest.
+     */
+    @Benchmark
+    public int aggressiveIceberg() {
+        trades.clear();
+        handler.onNewOrder('B', uid++, levels, PEAK_SIZE * 5 / 2, PEAK_SIZE);
+        return trades.size();
+    }
+}
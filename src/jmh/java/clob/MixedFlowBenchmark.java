@@ -0,0 +1,120 @@
+package clob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pregenerated, repeating flow of mostly passive orders around a moving mid price, with aggressive orders,
+ * icebergs, cancels and amends mixed in, against a book that starts with the given depth.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MixedFlowBenchmark {
+    private static final int FLOW_LENGTH = 1 << 16;
+    private static final byte NEW = 0;
+    private static final byte CANCEL = 1;
+    private static final byte AMEND = 2;
+
+    @Param({BenchmarkBooks.LIST, BenchmarkBooks.LADDER})
+    public String implementation;
+
+    @Param({"1000", "100000"})
+    public int depth;
+
+    /**
+     * Percentage of new orders that are icebergs.
+     */
+    @Param({"0", "10"})
+    public int icebergPercent;
+
+    private final byte[] actions = new byte[FLOW_LENGTH];
+    private final char[] sides = new char[FLOW_LENGTH];
+    private final long[] prices = new long[FLOW_LENGTH];
+    private final int[] qtys = new int[FLOW_LENGTH];
+    private final int[] peakSizes = new int[FLOW_LENGTH];
+    private final int[] targets = new int[FLOW_LENGTH];
+
+    private BookOrderHandler handler;
+    private TradeBuffer trades;
+    private int firstUid;
+    private int cursor;
+    private int uidBase;
+
+    @Setup(Level.Trial)
+    public void generateFlow() {
+        Random random = new Random(42);
+        int mid = 0;
+        for (int i = 0; i < FLOW_LENGTH; i++) {
+            mid += random.nextInt(3) - 1;
+            mid = Math.max(-50, Math.min(50, mid));
+            int dice = random.nextInt(100);
+            if (dice < 20 && i > 0) {
+                actions[i] = CANCEL;
+                targets[i] = random.nextInt(i);
+            } else if (dice < 25 && i > 0) {
+                actions[i] = AMEND;
+                targets[i] = random.nextInt(i);
+                qtys[i] = 1 + random.nextInt(200);
+                prices[i] = mid + random.nextInt(21) - 10;
+            } else {
+                actions[i] = NEW;
+                sides[i] = random.nextBoolean() ? 'B' : 'S';
+                // mostly passive, about one in six crossing the mid price
+                int distance = random.nextInt(12) - 2;
+                prices[i] = sides[i] == 'B' ? mid - distance : mid + distance;
+                qtys[i] = 1 + random.nextInt(200);
+                peakSizes[i] = random.nextInt(100) < icebergPercent ? 1 + random.nextInt(20) : 0;
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ILimitOrderBook book = BenchmarkBooks.create(implementation);
+        trades = new TradeBuffer();
+        handler = BenchmarkBooks.handler(book, trades);
+        firstUid = BenchmarkBooks.fill(book, depth, 100, 1, 60);
+        cursor = 0;
+        uidBase = firstUid;
+    }
+
+    @Benchmark
+    public int next() {
+        int i = cursor;
+        trades.clear();
+        switch (actions[i]) {
+            case NEW:
+                handler.onNewOrder(sides[i], uidBase + i, prices[i], qtys[i], peakSizes[i]);
+                break;
+            case CANCEL:
+                handler.onCancelOrder(uidBase + targets[i]);
+                break;
+            default:
+                handler.onAmendOrder(uidBase + targets[i], qtys[i], prices[i]);
+                break;
+        }
+        // replay the flow with fresh uids once it is used up
+        if (++cursor == FLOW_LENGTH) {
+            cursor = 0;
+            uidBase += FLOW_LENGTH;
+        }
+        return trades.size();
+    }
+}
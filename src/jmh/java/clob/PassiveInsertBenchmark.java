@@ -0,0 +1,70 @@
+package clob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A new order that does not cross, inserted into a book of the given depth. Each operation cancels the order again,
+ * so the book keeps its depth however many operations an iteration runs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PassiveInsertBenchmark {
+    private static final int LEVELS = 1000;
+
+    @Param({BenchmarkBooks.LIST, BenchmarkBooks.LADDER})
+    public String implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    public int depth;
+
+    private BookOrderHandler handler;
+    private int firstUid;
+    private int uid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ILimitOrderBook book = BenchmarkBooks.create(implementation);
+        handler = BenchmarkBooks.handler(book, new TradeBuffer());
+        firstUid = BenchmarkBooks.fill(book, depth, LEVELS, 1);
+        uid = firstUid;
+    }
+
+    /**
+     * Bids in turn at every level of the book, i.e. at the back of a level anywhere from the top to the bottom.
+     */
+    @Benchmark
+    public int insertAndCancelBid() {
+        int orderUid = uid++;
+        handler.onNewOrder('B', orderUid, -(1 + orderUid % LEVELS), 100, 0);
+        handler.onCancelOrder(orderUid);
+        return orderUid;
+    }
+
+    /**
+     * Bids improving on the best bid, i.e. at the very front of the book.
+     */
+    @Benchmark
+    public int insertAndCancelTopOfBook() {
+        int orderUid = uid++;
+        handler.onNewOrder('B', orderUid, 0, 100, 0);
+        handler.onCancelOrder(orderUid);
+        return orderUid;
+    }
+}
@@ -0,0 +1,280 @@
+package clob;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Call phase and uncross of an opening or closing auction on a book. While the call phase runs, orders are entered
+ * here rather than into the book: they rest without matching, so the book may be crossed. The uncross then executes
+ * everything that can trade at a single clearing price and leaves the book uncrossed for continuous trading.
+ *
+ * The clearing price maximises the executed volume; ties go to the smallest surplus, then to the higher price if
+ * buyers are left over on every tied price, the lower price if sellers are, and the middle of the tied range
+ * otherwise. Supply and demand are accumulated from the book's {@link BookDepth} in a single pass over the levels
+ * in the crossed price range, counting hidden iceberg quantity, and the result is cached until the book changes, so the indicative
+ * price and volume can be polled cheaply throughout the call phase.
+ *
+ * Market and immediate-or-cancel orders take part in the uncross only; whatever is left of them is cancelled.
+ * Market orders sit at the extreme prices of their side and are never the clearing price themselves. Fill-or-kill
+ * orders are not accepted.
+ */
+public class Auction {
+    private static final int NOT_FOUND = -1;
+
+    private final ILimitOrderBook book;
+    private final BookDepth depth;
+    private final OrderBookListener listener;
+    private final IntIntHashMap immediateIndexByUid = new IntIntHashMap(NOT_FOUND);
+    private int[] immediateUids = new int[16];
+    private int[] immediateQtys = new int[16];
+    private int immediateCount;
+    private int[] fillUids = new int[64];
+    private int[] fillRemainingQtys = new int[64];
+    private long[] fillPrices = new long[64];
+    private int fillCount;
+    private boolean dirty = true;
+    private boolean crossed;
+    private long clearingPrice;
+    private long volume;
+    private long surplus;
+
+    public Auction(ILimitOrderBook book) {
+        this(book, OrderBookListener.NO_OP);
+    }
+
+    /**
+     * @param listener hears the trades and expired immediate orders of the uncross, which the book does not report
+     */
+    public Auction(ILimitOrderBook book, OrderBookListener listener) {
+        this.book = book;
+        this.depth = book.getDepth();
+        this.listener = listener;
+    }
+
+    /**
+     * Rest an order in the book without matching it.
+     */
+    public void addOrder(IOrder order) {
+        TimeInForce timeInForce = order.getTimeInForce();
+        if (timeInForce == TimeInForce.FILL_OR_KILL) {
+            throw new IllegalArgumentException("fill-or-kill orders cannot take part in an auction: " + order.getUid());
+        }
+        int qty = order.getRemainingQty();
+        int revealedQty = order.getPeakSize() > 0 ? Math.min(order.getPeakSize(), qty) : qty;
+        book.restoreOrder(order.isBuy() ? 'B' : 'S', order.getUid(), order.getPrice(), qty, order.getPeakSize(), revealedQty);
+        if (timeInForce != TimeInForce.GOOD_TILL_CANCEL) {
+            if (immediateCount == immediateUids.length) {
+                immediateUids = Arrays.copyOf(immediateUids, immediateCount << 1);
+                immediateQtys = Arrays.copyOf(immediateQtys, immediateCount << 1);
+            }
+            immediateIndexByUid.put(order.getUid(), immediateCount);
+            immediateUids[immediateCount] = order.getUid();
+            immediateQtys[immediateCount++] = qty;
+        }
+        dirty = true;
+    }
+
+    public boolean cancelOrder(int uid) {
+        dirty = true;
+        return book.cancelOrder(uid);
+    }
+
+    /**
+     * @return true if the bids and offers cross, i.e. the uncross would execute something
+     */
+    public boolean isCrossed() {
+        update();
+        return crossed;
+    }
+
+    /**
+     * @return the price the auction would clear at now; only meaningful while {@link #isCrossed()}
+     */
+    public long getIndicativePrice() {
+        update();
+        return clearingPrice;
+    }
+
+    /**
+     * @return the quantity the auction would execute now
+     */
+    public long getIndicativeVolume() {
+        update();
+        return volume;
+    }
+
+    /**
+     * @return demand minus supply at the indicative price: positive if buyers would be left over, negative if
+     * sellers would
+     */
+    public long getImbalance() {
+        update();
+        return surplus;
+    }
+
+    private void update() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        crossed = false;
+        volume = 0;
+        surplus = 0;
+        if (depth.getLevelCount(true) == 0 || depth.getLevelCount(false) == 0) {
+            return;
+        }
+        long lowest = depth.getBestPrice(false);
+        long highest = depth.getBestPrice(true);
+        if (highest < lowest) {
+            return;
+        }
+
+        // one pass up the levels of the crossed range: supply gains the offers at each price, demand sheds the bids
+        // below it
+        long supply = 0;
+        long demand = depth.getTotalQtyAtOrBetter(true, lowest);
+        boolean found = false;
+        long low = 0;
+        long high = 0;
+        long lowSurplus = 0;
+        long highSurplus = 0;
+        long price = lowest;
+        while (true) {
+            long offered = depth.getVisibleQty(false, price) + depth.getHiddenQty(false, price);
+            long bid = depth.getVisibleQty(true, price) + depth.getHiddenQty(true, price);
+            supply += offered;
+            if (isLimitPrice(price)) {
+                long executable = Math.min(demand, supply);
+                long imbalance = demand - supply;
+                if (executable > volume || (executable == volume && Math.abs(imbalance) < Math.abs(lowSurplus))) {
+                    found = true;
+                    volume = executable;
+                    low = price;
+                    high = price;
+                    lowSurplus = imbalance;
+                    highSurplus = imbalance;
+                } else if (executable == volume && Math.abs(imbalance) == Math.abs(lowSurplus)) {
+                    high = price;
+                    highSurplus = imbalance;
+                }
+            }
+            demand -= bid;
+
+            // the next price with a level on either side
+            boolean offerAbove = depth.hasLevelAbove(false, price);
+            boolean bidAbove = depth.hasLevelAbove(true, price);
+            if (!offerAbove && !bidAbove) {
+                break;
+            }
+            long next = offerAbove ? depth.getPriceAbove(false, price) : Long.MAX_VALUE;
+            if (bidAbove) {
+                next = Math.min(next, depth.getPriceAbove(true, price));
+            }
+            if (next > highest) {
+                break;
+            }
+            price = next;
+        }
+        if (!found) {
+            return;
+        }
+
+        crossed = true;
+        if (lowSurplus > 0 && highSurplus > 0) {
+            clearingPrice = high;
+        } else if (lowSurplus < 0 && highSurplus < 0) {
+            clearingPrice = low;
+        } else {
+            // overflow free floor of the average
+            clearingPrice = (low >> 1) + (high >> 1) + (low & high & 1);
+        }
+        surplus = depth.getTotalQtyAtOrBetter(true, clearingPrice) - depth.getTotalQtyAtOrBetter(false, clearingPrice);
+    }
+
+    /**
+     * @return false if the price only holds market orders, which do not set the clearing price
+     */
+    private boolean isLimitPrice(long price) {
+        return (price != Long.MAX_VALUE && depth.hasLevel(true, price))
+                || (price != Long.MIN_VALUE && depth.hasLevel(false, price));
+    }
+
+    /**
+     * End the call phase: execute the indicative volume at the indicative price, allocating it to the bids and to
+     * the offers in price-time priority with icebergs taking part with their full quantity, and cancel what is left
+     * of market and immediate-or-cancel orders.
+     *
+     * @return the executed quantity
+     */
+    public long uncross(TradeBuffer trades) {
+        update();
+        long executed = 0;
+        if (crossed) {
+            fillCount = 0;
+            List<IOrder> bids = book.getBidsByPriceTime();
+            List<IOrder> offers = book.getOffersByPriceTime();
+            int bidIndex = 0;
+            int offerIndex = 0;
+            int bidLeft = bids.get(0).getRemainingQty();
+            int offerLeft = offers.get(0).getRemainingQty();
+            while (executed < volume) {
+                IOrder bid = bids.get(bidIndex);
+                IOrder offer = offers.get(offerIndex);
+                int qty = (int) Math.min(Math.min(bidLeft, offerLeft), volume - executed);
+                trades.add(bid.getUid(), offer.getUid(), clearingPrice, qty);
+                listener.onTrade(bid.getUid(), offer.getUid(), clearingPrice, qty);
+                executed += qty;
+                bidLeft -= qty;
+                offerLeft -= qty;
+                if (bidLeft == 0 || executed == volume) {
+                    addFill(bid, bidLeft);
+                    if (++bidIndex < bids.size()) {
+                        bidLeft = bids.get(bidIndex).getRemainingQty();
+                    }
+                }
+                if (offerLeft == 0 || executed == volume) {
+                    addFill(offer, offerLeft);
+                    if (++offerIndex < offers.size()) {
+                        offerLeft = offers.get(offerIndex).getRemainingQty();
+                    }
+                }
+            }
+            // the lists may be views of the book, so only change it once the allocation is complete
+            for (int i = 0; i < fillCount; i++) {
+                if (fillRemainingQtys[i] == 0) {
+                    book.cancelOrder(fillUids[i]);
+                } else {
+                    book.amendOrder(fillUids[i], fillRemainingQtys[i], fillPrices[i]);
+                }
+            }
+        }
+
+        for (int i = 0; i < immediateCount; i++) {
+            if (immediateQtys[i] > 0 && book.cancelOrder(immediateUids[i])) {
+                listener.onOrderExpired(immediateUids[i], immediateQtys[i]);
+            }
+        }
+        immediateIndexByUid.clear();
+        immediateCount = 0;
+        dirty = true;
+        return executed;
+    }
+
+    private void addFill(IOrder order, int remainingQty) {
+        if (remainingQty == order.getRemainingQty()) {
+            return;
+        }
+        if (fillCount == fillUids.length) {
+            fillUids = Arrays.copyOf(fillUids, fillCount << 1);
+            fillRemainingQtys = Arrays.copyOf(fillRemainingQtys, fillCount << 1);
+            fillPrices = Arrays.copyOf(fillPrices, fillCount << 1);
+        }
+        fillUids[fillCount] = order.getUid();
+        fillRemainingQtys[fillCount] = remainingQty;
+        fillPrices[fillCount++] = order.getPrice();
+        int immediate = immediateIndexByUid.get(order.getUid());
+        if (immediate != NOT_FOUND) {
+            immediateQtys[immediate] = remainingQty;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package clob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads {@link OrderMessage}s from a channel into one reused direct buffer and decodes them where they lie, so
+ * ingesting an order creates no objects at all.
+ */
+public class BinaryOrderDecoder {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public BinaryOrderDecoder(ReadableByteChannel channel) {
+        this(channel, 64 * 1024);
+    }
+
+    public BinaryOrderDecoder(ReadableByteChannel channel, int bufferSize) {
+        if (bufferSize < OrderMessage.LENGTH) {
+            throw new IllegalArgumentException("buffer must hold at least one message: " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(OrderMessage.BYTE_ORDER);
+    }
+
+    /**
+     * Read once from the channel and hand every complete message to the handler. A message split across reads is
+     * kept and completed by the next call.
+     *
+     * @return the number of messages decoded, or -1 once the channel is exhausted
+     */
+    public int read(OrderHandler handler) throws IOException {
+        int bytesRead = channel.read(buffer);
+        if (bytesRead < 0) {
+            if (buffer.position() > 0) {
+                throw new IOException("channel ended inside a message, " + buffer.position() + " bytes left over");
+            }
+            return -1;
+        }
+
+        buffer.flip();
+        int messages = 0;
+        int offset = buffer.position();
+        while (buffer.limit() - offset >= OrderMessage.LENGTH) {
+            OrderMessage.decode(buffer, offset, handler);
+            offset += OrderMessage.LENGTH;
+            messages++;
+        }
+        buffer.position(offset);
+        buffer.compact();
+        return messages;
+    }
+
+    /**
+     * @return the total number of messages decoded until the channel was exhausted
+     */
+    public long readAll(OrderHandler handler) throws IOException {
+        long messages = 0;
+        int decoded;
+        while ((decoded = read(handler)) >= 0) {
+            messages += decoded;
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,292 @@
+package clob;
+
+/**
+ * Per price level totals of one book: the visible quantity, where an iceberg counts with its revealed peak, the
+ * hidden iceberg quantity behind it and the number of orders. The book keeps the totals up to date as levels
+ * change, so looking up a level is O(1) within the {@link PriceLadder} window and no query walks the orders.
+ *
+ * Side totals are kept as running sums. Cumulative queries, the liquidity at or better than a price or within some
+ * ticks of the best price, walk the levels from the best price inwards and stop at the limit, so they cost
+ * O(levels touched); a fill-or-kill check stops as soon as enough quantity is found. Listing the top N prices costs
+ * O(N).
+ */
+public class BookDepth {
+    private final Side bids;
+    private final Side offers;
+    private DepthLevel freeLevels;
+
+    public BookDepth() {
+        this(PriceLadder.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of ticks per side held densely around the best price, a power of two
+     */
+    public BookDepth(int windowSize) {
+        bids = new Side(true, windowSize);
+        offers = new Side(false, windowSize);
+    }
+
+    /**
+     * Record the new totals of a level; all zero once it is empty.
+     */
+    public void setLevel(boolean bidSide, long price, long visibleQty, long hiddenQty, int orderCount) {
+        side(bidSide).set(price, visibleQty, hiddenQty, orderCount);
+    }
+
+    public void clear() {
+        bids.clear();
+        offers.clear();
+    }
+
+    public boolean hasLevel(boolean bidSide, long price) {
+        return side(bidSide).levels.get(price) != null;
+    }
+
+    public long getVisibleQty(boolean bidSide, long price) {
+        DepthLevel level = side(bidSide).levels.get(price);
+        return level == null ? 0 : level.visibleQty;
+    }
+
+    public long getHiddenQty(boolean bidSide, long price) {
+        DepthLevel level = side(bidSide).levels.get(price);
+        return level == null ? 0 : level.hiddenQty;
+    }
+
+    public int getOrderCount(boolean bidSide, long price) {
+        DepthLevel level = side(bidSide).levels.get(price);
+        return level == null ? 0 : level.orderCount;
+    }
+
+    public int getLevelCount(boolean bidSide) {
+        return side(bidSide).levels.size();
+    }
+
+    /**
+     * @return the best bid or offer price; only meaningful if the side has a level
+     */
+    public long getBestPrice(boolean bidSide) {
+        DepthLevel best = side(bidSide).best;
+        return best == null ? 0 : best.price;
+    }
+
+    /**
+     * @return true if the side has a level at a price strictly above the given one, see {@link #getPriceAbove}
+     */
+    public boolean hasLevelAbove(boolean bidSide, long price) {
+        return side(bidSide).levels.higher(price) != null;
+    }
+
+    /**
+     * @return the lowest level price strictly above the given one; only meaningful if {@link #hasLevelAbove}
+     */
+    public long getPriceAbove(boolean bidSide, long price) {
+        DepthLevel level = side(bidSide).levels.higher(price);
+        return level == null ? 0 : level.price;
+    }
+
+    /**
+     * Fill the array with the best prices of one side, best first.
+     *
+     * @return the number of prices written, fewer than the array holds if the side has fewer levels
+     */
+    public int getTopPrices(boolean bidSide, long[] prices) {
+        Side side = side(bidSide);
+        int count = 0;
+        for (DepthLevel level = side.best; level != null && count < prices.length; level = side.worse(level)) {
+            prices[count++] = level.price;
+        }
+        return count;
+    }
+
+    /**
+     * @return the visible quantity of all levels at this price or better, i.e. at or above it for bids and at or
+     * below it for offers
+     */
+    public long getVisibleQtyAtOrBetter(boolean bidSide, long price) {
+        Side side = side(bidSide);
+        long sum = 0;
+        for (DepthLevel level = side.best; level != null && !side.isWorse(level.price, price); level = side.worse(level)) {
+            sum += level.visibleQty;
+        }
+        return sum;
+    }
+
+    public long getHiddenQtyAtOrBetter(boolean bidSide, long price) {
+        Side side = side(bidSide);
+        long sum = 0;
+        for (DepthLevel level = side.best; level != null && !side.isWorse(level.price, price); level = side.worse(level)) {
+            sum += level.hiddenQty;
+        }
+        return sum;
+    }
+
+    public long getTotalQtyAtOrBetter(boolean bidSide, long price) {
+        Side side = side(bidSide);
+        long sum = 0;
+        for (DepthLevel level = side.best; level != null && !side.isWorse(level.price, price); level = side.worse(level)) {
+            sum += level.visibleQty + level.hiddenQty;
+        }
+        return sum;
+    }
+
+    /**
+     * Liquidity check for a fill-or-kill order: icebergs replenish while an order sweeps them, so their hidden
+     * quantity counts as well as the visible one. The walk stops as soon as the quantity is covered.
+     *
+     * @return true if an order on the given side could be filled completely at once without crossing its limit
+     */
+    public boolean canFill(boolean buy, long limitPrice, int qty) {
+        Side side = side(!buy);
+        long sum = 0;
+        for (DepthLevel level = side.best; level != null && !side.isWorse(level.price, limitPrice); level = side.worse(level)) {
+            sum += level.visibleQty + level.hiddenQty;
+            if (sum >= qty) {
+                return true;
+            }
+        }
+        return qty <= 0;
+    }
+
+    public int getOrderCountAtOrBetter(boolean bidSide, long price) {
+        Side side = side(bidSide);
+        int sum = 0;
+        for (DepthLevel level = side.best; level != null && !side.isWorse(level.price, price); level = side.worse(level)) {
+            sum += level.orderCount;
+        }
+        return sum;
+    }
+
+    /**
+     * @return the visible quantity of the levels no more than this many ticks away from the best price, 0 if the
+     * side is empty
+     */
+    public long getVisibleQtyWithinTicks(boolean bidSide, int ticks) {
+        DepthLevel best = side(bidSide).best;
+        if (best == null) {
+            return 0;
+        }
+        long limit;
+        if (bidSide) {
+            limit = best.price < Long.MIN_VALUE + ticks ? Long.MIN_VALUE : best.price - ticks;
+        } else {
+            limit = best.price > Long.MAX_VALUE - ticks ? Long.MAX_VALUE : best.price + ticks;
+        }
+        return getVisibleQtyAtOrBetter(bidSide, limit);
+    }
+
+    public long getVisibleQty(boolean bidSide) {
+        return side(bidSide).visibleTotal;
+    }
+
+    public long getHiddenQty(boolean bidSide) {
+        return side(bidSide).hiddenTotal;
+    }
+
+    public int getOrderCount(boolean bidSide) {
+        return (int) side(bidSide).orderTotal;
+    }
+
+    private Side side(boolean bidSide) {
+        return bidSide ? bids : offers;
+    }
+
+    private static class DepthLevel implements PriceLadder.Level {
+        private long price;
+        private long visibleQty;
+        private long hiddenQty;
+        private int orderCount;
+        private DepthLevel nextFree;
+
+        @Override
+        public long getPrice() {
+            return price;
+        }
+    }
+
+    private class Side {
+        private final boolean bidSide;
+        private final PriceLadder<DepthLevel> levels;
+        private DepthLevel best;
+        private long visibleTotal;
+        private long hiddenTotal;
+        private long orderTotal;
+
+        Side(boolean bidSide, int windowSize) {
+            this.bidSide = bidSide;
+            this.levels = new PriceLadder<>(windowSize);
+        }
+
+        void set(long price, long visibleQty, long hiddenQty, int orderCount) {
+            DepthLevel level = levels.get(price);
+            if (level == null) {
+                if (orderCount == 0) {
+                    return;
+                }
+                level = newLevel(price);
+            }
+            visibleTotal += visibleQty - level.visibleQty;
+            hiddenTotal += hiddenQty - level.hiddenQty;
+            orderTotal += orderCount - level.orderCount;
+            level.visibleQty = visibleQty;
+            level.hiddenQty = hiddenQty;
+            level.orderCount = orderCount;
+            if (orderCount == 0) {
+                removeLevel(level);
+            }
+        }
+
+        private DepthLevel newLevel(long price) {
+            DepthLevel level = freeLevels;
+            if (level == null) {
+                level = new DepthLevel();
+            } else {
+                freeLevels = level.nextFree;
+                level.nextFree = null;
+            }
+            level.price = price;
+            level.visibleQty = 0;
+            level.hiddenQty = 0;
+            level.orderCount = 0;
+            // keep the dense window on the best price before the level goes in
+            levels.recentre(best == null || isWorse(best.price, price) ? price : best.price);
+            levels.put(level);
+            if (best == null || isWorse(best.price, price)) {
+                best = level;
+            }
+            return level;
+        }
+
+        private void removeLevel(DepthLevel level) {
+            if (level == best) {
+                best = worse(level);
+            }
+            levels.remove(level.price);
+            level.nextFree = freeLevels;
+            freeLevels = level;
+        }
+
+        /**
+         * @return true if a price is worse than the other one for this side
+         */
+        boolean isWorse(long price, long than) {
+            return bidSide ? price < than : price > than;
+        }
+
+        /**
+         * @return the next level away from the best price
+         */
+        DepthLevel worse(DepthLevel level) {
+            return bidSide ? levels.lower(level.price) : levels.higher(level.price);
+        }
+
+        void clear() {
+            for (DepthLevel level = best; level != null; level = best) {
+                removeLevel(level);
+            }
+            visibleTotal = 0;
+            hiddenTotal = 0;
+            orderTotal = 0;
+        }
+    }
+}
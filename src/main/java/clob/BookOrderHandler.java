@@ -0,0 +1,76 @@
+package clob;
+
+import java.util.List;
+
+/**
+ * Feeds decoded order entry messages into a book, collecting the resulting fills in a {@link TradeBuffer}.
+ *
+ * With {@code reuseOrders} every new order is submitted as the same {@link MutableOrder}, which keeps decoding and
+ * matching garbage free but is only correct for a book that copies its resting orders, such as
+ * {@link LadderLimitOrderBook}. Otherwise a {@link LimitOrder}, {@link IcebergOrder} or {@link MarketOrder} is
+ * created per message.
+ */
+public class BookOrderHandler implements OrderHandler {
+    private final ILimitOrderBook book;
+    private TradeBuffer trades;
+    private final MutableOrder order;
+
+    public BookOrderHandler(ILimitOrderBook book, TradeBuffer trades, boolean reuseOrders) {
+        this.book = book;
+        this.trades = trades;
+        this.order = reuseOrders ? new MutableOrder() : null;
+    }
+
+    @Override
+    public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        if (order != null) {
+            book.newOrder(order.set(buySellIndicator, uid, price, qty, peakSize), trades);
+        } else if (peakSize > 0) {
+            book.newOrder(new IcebergOrder(buySellIndicator, uid, price, qty, peakSize), trades);
+        } else {
+            book.newOrder(new LimitOrder(buySellIndicator, uid, price, qty), trades);
+        }
+    }
+
+    @Override
+    public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+        if (order != null) {
+            book.newOrder(order.set(buySellIndicator, uid, price, qty, timeInForce), trades);
+        } else if (price == MarketOrder.marketPrice(buySellIndicator)) {
+            book.newOrder(new MarketOrder(buySellIndicator, uid, qty, timeInForce), trades);
+        } else {
+            book.newOrder(new LimitOrder(buySellIndicator, uid, price, qty, timeInForce), trades);
+        }
+    }
+
+    @Override
+    public void onCancelOrder(int uid) {
+        book.cancelOrder(uid);
+    }
+
+    @Override
+    public void onAmendOrder(int uid, int newQty, long newPrice) {
+        List<Trade> amendTrades = book.amendOrder(uid, newQty, newPrice);
+        if (amendTrades != null) {
+            for (int i = 0; i < amendTrades.size(); i++) {
+                Trade trade = amendTrades.get(i);
+                trades.add(trade.getBuyOrderId(), trade.getSellOrderId(), trade.getPrice(), trade.getTradedQty());
+            }
+        }
+    }
+
+    public ILimitOrderBook getBook() {
+        return book;
+    }
+
+    public TradeBuffer getTrades() {
+        return trades;
+    }
+
+    /**
+     * Collect the fills of the following orders in another buffer, e.g. the one travelling with a pipeline event.
+     */
+    public void setTrades(TradeBuffer trades) {
+        this.trades = trades;
+    }
+}
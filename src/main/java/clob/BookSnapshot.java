@@ -0,0 +1,114 @@
+package clob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Point in time image of both sides of a book in a compact little endian file, tagged with the sequence number of
+ * the last {@link EventJournal} event applied to it. A restart loads the snapshot and replays only the journal
+ * events after that sequence number.
+ *
+ * <pre>
+ * header: magic (4) | version (4) | last sequence (8) | bid count (4) | offer count (4)
+ * order:  uid (4) | side (1) | price in ticks (8) | remaining qty (4) | peak size (4) | revealed qty (4)
+ * </pre>
+ *
+ * The bids and then the offers follow the header in price-time order, so an order's queue position is its place in
+ * the file.
+ */
+public class BookSnapshot {
+    public static final int MAGIC = 0x4C4F4253;
+    public static final int VERSION = 2;
+    public static final int HEADER_LENGTH = 24;
+    public static final int ORDER_LENGTH = 25;
+
+    /**
+     * Write the snapshot to a temporary file next to the target and move it into place, so a crash while writing
+     * leaves any previous snapshot intact.
+     */
+    public static void write(ILimitOrderBook book, long lastSequence, Path path) throws IOException {
+        List<IOrder> bids = book.getBidsByPriceTime();
+        List<IOrder> offers = book.getOffersByPriceTime();
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(OrderMessage.BYTE_ORDER);
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(lastSequence).putInt(bids.size()).putInt(offers.size());
+            writeOrders(channel, buffer, bids);
+            writeOrders(channel, buffer, offers);
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeOrders(FileChannel channel, ByteBuffer buffer, List<IOrder> orders) throws IOException {
+        for (int i = 0; i < orders.size(); i++) {
+            IOrder order = orders.get(i);
+            if (buffer.remaining() < ORDER_LENGTH) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(order.getUid())
+                    .put((byte) (order.isBuy() ? 'B' : 'S'))
+                    .putLong(order.getPrice())
+                    .putInt(order.getRemainingQty())
+                    .putInt(order.getPeakSize())
+                    .putInt(order.getRevealedQty());
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Bulk load a snapshot into an empty book through {@link ILimitOrderBook#restoreOrder}, without matching.
+     *
+     * @return the sequence number the snapshot was taken at
+     */
+    public static long load(Path path, ILimitOrderBook book) throws IOException {
+        if (book.getBidDepth() > 0 || book.getOfferDepth() > 0) {
+            throw new IllegalStateException("a snapshot can only be loaded into an empty book");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(OrderMessage.BYTE_ORDER);
+            if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a book snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + " in " + path);
+            }
+            long lastSequence = buffer.getLong();
+            int orderCount = buffer.getInt() + buffer.getInt();
+            if (buffer.remaining() != (long) orderCount * ORDER_LENGTH) {
+                throw new IOException(path + " holds " + buffer.remaining() + " bytes of orders, expected "
+                        + (long) orderCount * ORDER_LENGTH);
+            }
+
+            for (int i = 0; i < orderCount; i++) {
+                int uid = buffer.getInt();
+                char buySellIndicator = (char) buffer.get();
+                long price = buffer.getLong();
+                int remainingQty = buffer.getInt();
+                int peakSize = buffer.getInt();
+                int revealedQty = buffer.getInt();
+                book.restoreOrder(buySellIndicator, uid, price, remainingQty, peakSize, revealedQty);
+            }
+            return lastSequence;
+        }
+    }
+}
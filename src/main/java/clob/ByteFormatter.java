@@ -0,0 +1,158 @@
+package clob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Writes ASCII text straight into a reusable byte buffer that is drained to a channel whenever it fills up and on
+ * {@link #flush()}. Integers are right aligned and optionally grouped with commas by hand, so output such as the
+ * {@link DisplayUtil} book table costs neither format string parsing nor locale lookups and, once the buffer exists,
+ * no allocation at all. The output is the same as {@code String.format("%,<width>d")} in an English locale: a number
+ * wider than its column pushes the column out rather than being cut.
+ *
+ * A growing formatter never drains on its own: its buffer grows to hold whatever is appended until {@link #flush()},
+ * which hands it all to the channel at once, so that e.g. a whole book table reaches a shared stream in one write.
+ */
+public class ByteFormatter {
+    private static final int MAX_NUMBER_LENGTH = 26;
+
+    private final WritableByteChannel channel;
+    private final boolean growing;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private final byte[] digits = new byte[MAX_NUMBER_LENGTH];
+    private int position;
+
+    public ByteFormatter(WritableByteChannel channel) {
+        this(channel, 8192);
+    }
+
+    public ByteFormatter(WritableByteChannel channel, int capacity) {
+        this(channel, capacity, false);
+    }
+
+    /**
+     * @param capacity the initial capacity if growing
+     */
+    public ByteFormatter(WritableByteChannel channel, int capacity, boolean growing) {
+        if (capacity < MAX_NUMBER_LENGTH) {
+            throw new IllegalArgumentException("capacity too small: " + capacity);
+        }
+        this.channel = channel;
+        this.growing = growing;
+        this.bytes = new byte[capacity];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    public ByteFormatter append(char c) {
+        ensureRemaining(1);
+        bytes[position++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Append the characters of the text, which must all be ASCII.
+     */
+    public ByteFormatter append(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    public ByteFormatter append(char[] text) {
+        for (char c : text) {
+            append(c);
+        }
+        return this;
+    }
+
+    public ByteFormatter repeat(char c, int count) {
+        while (count > 0) {
+            ensureRemaining(1);
+            int n = Math.min(count, bytes.length - position);
+            Arrays.fill(bytes, position, position + n, (byte) c);
+            position += n;
+            count -= n;
+        }
+        return this;
+    }
+
+    public ByteFormatter newLine() {
+        return append('\n');
+    }
+
+    public ByteFormatter append(long value) {
+        return appendRight(value, 0, false);
+    }
+
+    /**
+     * Append a number right aligned in a column of blanks, like {@code %<width>d} or, if grouped, {@code %,<width>d}.
+     */
+    public ByteFormatter appendRight(long value, int width, boolean grouped) {
+        // digits are produced from the right into the scratch array, working on the negative value so that
+        // Long.MIN_VALUE needs no special case
+        int start = digits.length;
+        long remaining = value < 0 ? value : -value;
+        int count = 0;
+        do {
+            if (grouped && count > 0 && count % 3 == 0) {
+                digits[--start] = ',';
+            }
+            digits[--start] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+            count++;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--start] = '-';
+        }
+        int length = digits.length - start;
+        repeat(' ', width - length);
+        ensureRemaining(length);
+        System.arraycopy(digits, start, bytes, position, length);
+        position += length;
+        return this;
+    }
+
+    /**
+     * Drain the buffered bytes to the channel.
+     *
+     * @throws UncheckedIOException if the channel fails
+     */
+    public void flush() {
+        buffer.limit(position);
+        buffer.position(0);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+            position = 0;
+        }
+    }
+
+    /**
+     * @return the number of bytes buffered but not yet drained
+     */
+    public int size() {
+        return position;
+    }
+
+    private void ensureRemaining(int length) {
+        if (bytes.length - position >= length) {
+            return;
+        }
+        if (growing) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, position + length));
+            buffer = ByteBuffer.wrap(bytes);
+        } else {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package clob;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Top of book and the top levels of depth of a book, published by the matching thread for any number of reader
+ * threads, e.g. monitoring, risk or market data. The books themselves are single threaded: their order lists and
+ * {@link BookDepth} must only be touched by the matching thread.
+ *
+ * The levels live in one array guarded by a version number, a seqlock: the writer makes the version odd, rewrites
+ * the levels that changed and makes it even again, all with ordered stores and without ever waiting. A reader copies
+ * the levels into its own {@link DepthSnapshot} and keeps the copy only if the version was the same even number
+ * before and after; otherwise it tries again. Readers hold no locks and the writer never learns they exist.
+ *
+ * The view is an {@link OrderBookListener} passing every event on to a delegate. It republishes at the end of an
+ * event, and only if a level at or better than the worst level published has changed.
+ */
+public class ConcurrentDepthView implements OrderBookListener {
+    private static final int VERSION = 0;
+    private static final int BID_COUNT = 1;
+    private static final int OFFER_COUNT = 2;
+    private static final int HEADER = 3;
+    static final int STRIDE = 4;
+    static final int PRICE = 0;
+    static final int VISIBLE_QTY = 1;
+    static final int HIDDEN_QTY = 2;
+    static final int ORDER_COUNT = 3;
+
+    private final OrderBookListener delegate;
+    private final int maxLevels;
+    private final AtomicLongArray slots;
+
+    // matching thread state
+    private final long[] prices;
+    private final int[] publishedCounts = new int[2];
+    private final long[] worstPublished = new long[2];
+    private final boolean[] dirty = {true, true};
+    private long version;
+
+    /**
+     * @param maxLevels the number of levels published per side
+     */
+    public ConcurrentDepthView(int maxLevels) {
+        this(maxLevels, OrderBookListener.NO_OP);
+    }
+
+    public ConcurrentDepthView(int maxLevels, OrderBookListener delegate) {
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("at least one level must be published: " + maxLevels);
+        }
+        this.delegate = delegate;
+        this.maxLevels = maxLevels;
+        this.slots = new AtomicLongArray(HEADER + 2 * maxLevels * STRIDE);
+        this.prices = new long[maxLevels];
+    }
+
+    public int getMaxLevels() {
+        return maxLevels;
+    }
+
+    /**
+     * Copy the published levels. Safe to call from any thread; spins only while the writer is rewriting the levels.
+     *
+     * @return the snapshot, now holding a consistent copy
+     */
+    public DepthSnapshot read(DepthSnapshot into) {
+        while (!tryRead(into)) {
+            Thread.yield();
+        }
+        return into;
+    }
+
+    /**
+     * Copy the published levels once.
+     *
+     * @return false if the writer changed them during the copy, leaving the snapshot inconsistent
+     */
+    public boolean tryRead(DepthSnapshot into) {
+        long before = slots.get(VERSION);
+        if ((before & 1) != 0) {
+            return false;
+        }
+        int bidCount = (int) slots.get(BID_COUNT);
+        int offerCount = (int) slots.get(OFFER_COUNT);
+        if (bidCount > maxLevels || offerCount > maxLevels) {
+            return false;
+        }
+        into.ensureCapacity(maxLevels);
+        copy(into.bidLevels, sideOffset(true), bidCount);
+        copy(into.offerLevels, sideOffset(false), offerCount);
+        if (slots.get(VERSION) != before) {
+            return false;
+        }
+        into.set(before >>> 1, bidCount, offerCount);
+        return true;
+    }
+
+    /**
+     * @return the number of times the levels have been republished; cheap enough to poll for changes
+     */
+    public long getVersion() {
+        return slots.get(VERSION) >>> 1;
+    }
+
+    /**
+     * Republish both sides from the book regardless of what changed, e.g. after orders were restored. Only the
+     * matching thread may call this.
+     */
+    public void publish(ILimitOrderBook book) {
+        dirty[0] = true;
+        dirty[1] = true;
+        publishChanges(book);
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        delegate.onOrderAccepted(order);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        levelChanged(bidSide, price);
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        levelChanged(bidSide, price);
+        delegate.onLevelSwept(bidSide, price);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        delegate.onIcebergReplenished(uid);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        delegate.onOrderExpired(uid, expiredQty);
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        publishChanges(book);
+        delegate.onBookChanged(book);
+    }
+
+    private void levelChanged(boolean bidSide, long price) {
+        int side = bidSide ? 0 : 1;
+        if (!dirty[side]) {
+            dirty[side] = publishedCounts[side] < maxLevels
+                    || (bidSide ? price >= worstPublished[side] : price <= worstPublished[side]);
+        }
+    }
+
+    private void publishChanges(ILimitOrderBook book) {
+        if (!dirty[0] && !dirty[1]) {
+            return;
+        }
+        BookDepth depth = book.getDepth();
+        // an odd version tells readers the levels are being rewritten
+        slots.lazySet(VERSION, version << 1 | 1);
+        if (dirty[0]) {
+            publishSide(depth, true);
+        }
+        if (dirty[1]) {
+            publishSide(depth, false);
+        }
+        slots.lazySet(VERSION, ++version << 1);
+    }
+
+    private void publishSide(BookDepth depth, boolean bidSide) {
+        int side = bidSide ? 0 : 1;
+        int count = depth.getTopPrices(bidSide, prices);
+        int offset = sideOffset(bidSide);
+        for (int i = 0; i < count; i++) {
+            long price = prices[i];
+            int base = offset + i * STRIDE;
+            slots.lazySet(base + PRICE, price);
+            slots.lazySet(base + VISIBLE_QTY, depth.getVisibleQty(bidSide, price));
+            slots.lazySet(base + HIDDEN_QTY, depth.getHiddenQty(bidSide, price));
+            slots.lazySet(base + ORDER_COUNT, depth.getOrderCount(bidSide, price));
+        }
+        slots.lazySet(bidSide ? BID_COUNT : OFFER_COUNT, count);
+        publishedCounts[side] = count;
+        worstPublished[side] = count == 0 ? 0 : prices[count - 1];
+        dirty[side] = false;
+    }
+
+    private int sideOffset(boolean bidSide) {
+        return HEADER + (bidSide ? 0 : maxLevels * STRIDE);
+    }
+
+    private void copy(long[] levels, int offset, int count) {
+        for (int i = 0; i < count * STRIDE; i++) {
+            levels[i] = slots.get(offset + i);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package clob;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shows the book in the {@link DisplayUtil} table layout without re-rendering it after every event. The matching
+ * thread only marks the view dirty when a level it shows changes, and once enough events have passed or enough time
+ * has gone by since the last render it copies the orders of the top levels into a snapshot, finding the levels
+ * through the book's {@link BookDepth} and walking only their orders. A daemon thread formats and prints the
+ * snapshot, so however deep the book and however slow the output, the matcher only ever pays for copying the levels
+ * on display.
+ *
+ * A single snapshot is handed back and forth, so the matcher never waits for the printer: while the snapshot is
+ * being printed further changes just keep the view dirty and are captured once it is back. States in between are
+ * conflated, never queued. A state left dirty when the order flow pauses is shown by {@link #flushIfDue()} once
+ * it is due, and one left when the flow stops by {@link #flush()} or {@link #close()}. Each table reaches the
+ * stream in a single write, so trade lines printed to the same stream by the matching thread, e.g. by a
+ * {@link ConsoleOrderBookListener}, land between tables, never inside one.
+ *
+ * The renderer is an {@link OrderBookListener} passing every event on to a delegate. All listener methods,
+ * {@link #flush()}, {@link #flushIfDue()} and {@link #close()} must be called from the matching thread.
+ */
+public class ConflatedBookRenderer implements OrderBookListener, AutoCloseable {
+    private final OrderBookListener delegate;
+    private final ByteFormatter formatter;
+    private final long intervalNanos;
+    private final int everyEvents;
+    private final int topLevels;
+    private final Thread thread;
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final AtomicReference<Snapshot> free = new AtomicReference<>();
+    private volatile boolean running = true;
+    private volatile long renderCount;
+
+    // matching thread state
+    private Snapshot idle = new Snapshot();
+    private int shownBidLevels;
+    private int shownOfferLevels;
+    private long worstShownBid;
+    private long worstShownOffer;
+    private ILimitOrderBook lastBook;
+    private boolean dirty = true;
+    private boolean muted;
+    private int eventsSinceCapture;
+    private long lastCaptureNanos;
+    private long captureCount;
+
+    /**
+     * @param intervalMillis render once this much time has passed since the last render, 0 for no time limit
+     * @param everyEvents render once this many events have passed since the last render, 0 for no event limit; with
+     *                    neither limit every change is rendered, conflated only while the printer is busy
+     * @param topLevels   the number of price levels shown per side, 0 for all
+     */
+    public ConflatedBookRenderer(PrintStream out, long intervalMillis, int everyEvents, int topLevels) {
+        this(out, intervalMillis, everyEvents, topLevels, OrderBookListener.NO_OP);
+    }
+
+    public ConflatedBookRenderer(PrintStream out, long intervalMillis, int everyEvents, int topLevels,
+                                 OrderBookListener delegate) {
+        this.delegate = delegate;
+        this.formatter = new ByteFormatter(new PrintStreamChannel(out), 8192, true);
+        this.intervalNanos = intervalMillis * 1_000_000;
+        this.everyEvents = everyEvents;
+        this.topLevels = topLevels;
+        this.thread = new Thread(this::run, "book-renderer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Stop or resume rendering, e.g. while a journal is replayed; changes meanwhile are shown once resumed.
+     */
+    public void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    public void start() {
+        lastCaptureNanos = System.nanoTime();
+        thread.start();
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        delegate.onOrderAccepted(order);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        levelChanged(bidSide, price);
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        levelChanged(bidSide, price);
+        delegate.onLevelSwept(bidSide, price);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        delegate.onIcebergReplenished(uid);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        delegate.onOrderExpired(uid, expiredQty);
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        lastBook = book;
+        eventsSinceCapture++;
+        if (dirty && !muted && isDue()) {
+            capture(book);
+        }
+        delegate.onBookChanged(book);
+    }
+
+    /**
+     * Hand the current state to the printer now if it has changed since the last render.
+     */
+    public void flush() {
+        if (dirty && !muted && lastBook != null) {
+            capture(lastBook);
+        }
+    }
+
+    /**
+     * Hand the current state to the printer if it has changed and the interval or event limit has been reached.
+     * Meant to be called between reads of the order flow, so a change left dirty while no events arrive is shown
+     * once the interval has passed, or once the printer hands the snapshot back, rather than on the next event.
+     */
+    public void flushIfDue() {
+        if (dirty && !muted && lastBook != null && isDue()) {
+            capture(lastBook);
+        }
+    }
+
+    /**
+     * @return true if the book has changed on display since the last snapshot was taken
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return the number of snapshots taken by the matching thread
+     */
+    public long getCaptureCount() {
+        return captureCount;
+    }
+
+    /**
+     * @return the number of snapshots printed; lower than {@link #getCaptureCount()} when snapshots were conflated
+     */
+    public long getRenderCount() {
+        return renderCount;
+    }
+
+    /**
+     * Stop the printing thread, then print whatever state has not been shown yet.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        Threads.joinUninterruptibly(thread);
+        Snapshot snapshot = pending.getAndSet(null);
+        if (snapshot != null) {
+            render(snapshot);
+            free.set(snapshot);
+        }
+        if (dirty && lastBook != null) {
+            snapshot = idle != null ? idle : free.getAndSet(null);
+            snapshot.capture(lastBook, topLevels);
+            dirty = false;
+            captureCount++;
+            render(snapshot);
+            idle = snapshot;
+        }
+    }
+
+    /**
+     * Only a change at a level on display, or one that could move onto the display, makes the view dirty.
+     */
+    private void levelChanged(boolean bidSide, long price) {
+        if (dirty || topLevels <= 0) {
+            dirty = true;
+        } else if (bidSide) {
+            dirty = shownBidLevels < topLevels || price >= worstShownBid;
+        } else {
+            dirty = shownOfferLevels < topLevels || price <= worstShownOffer;
+        }
+    }
+
+    private boolean isDue() {
+        if (everyEvents <= 0 && intervalNanos <= 0) {
+            return true;
+        }
+        return everyEvents > 0 && eventsSinceCapture >= everyEvents
+                || intervalNanos > 0 && System.nanoTime() - lastCaptureNanos >= intervalNanos;
+    }
+
+    private void capture(ILimitOrderBook book) {
+        Snapshot snapshot = idle != null ? idle : free.getAndSet(null);
+        if (snapshot == null) {
+            // the snapshot is still with the printer, stay dirty and try again on a later event
+            return;
+        }
+        idle = null;
+        snapshot.capture(book, topLevels);
+        shownBidLevels = snapshot.bids.levels;
+        shownOfferLevels = snapshot.offers.levels;
+        worstShownBid = snapshot.bids.worstPrice();
+        worstShownOffer = snapshot.offers.worstPrice();
+        pending.set(snapshot);
+        dirty = false;
+        eventsSinceCapture = 0;
+        lastCaptureNanos = System.nanoTime();
+        captureCount++;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            Snapshot snapshot = pending.getAndSet(null);
+            if (snapshot == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            render(snapshot);
+            free.set(snapshot);
+        }
+    }
+
+    private void render(Snapshot snapshot) {
+        DisplayUtil.printHeaderOn(formatter);
+        int depth = Math.max(snapshot.bids.count, snapshot.offers.count);
+        for (int i = 0; i < depth; i++) {
+            formatter.append('|');
+            snapshot.bids.printOn(formatter, i, true);
+            snapshot.offers.printOn(formatter, i, false);
+        }
+        DisplayUtil.printFooterOn(formatter);
+        formatter.newLine().flush();
+        renderCount++;
+    }
+
+    /**
+     * The orders of the top levels of both sides, copied as primitives.
+     */
+    private static class Snapshot {
+        private final Rows bids = new Rows();
+        private final Rows offers = new Rows();
+
+        void capture(ILimitOrderBook book, int topLevels) {
+            BookDepth depth = book.getDepth();
+            bids.capture(book, depth, true, topLevels);
+            offers.capture(book, depth, false, topLevels);
+        }
+    }
+
+    /**
+     * The rows of one side, filled level by level from the book's {@link BookDepth}, so a capture visits only the
+     * levels on display rather than every order of the side.
+     */
+    private static class Rows implements ILimitOrderBook.LevelVisitor {
+        private int[] uids = new int[64];
+        private int[] revealedQtys = new int[64];
+        private long[] prices = new long[64];
+        private long[] levelPrices = new long[0];
+        private int count;
+        private int levels;
+
+        void capture(ILimitOrderBook book, BookDepth depth, boolean bidSide, int topLevels) {
+            // getTopPrices stops at the end of the array, so it holds exactly the levels shown, or room for all of them
+            if (topLevels > 0) {
+                if (levelPrices.length != topLevels) {
+                    levelPrices = new long[topLevels];
+                }
+            } else if (levelPrices.length < depth.getLevelCount(bidSide)) {
+                levelPrices = new long[depth.getLevelCount(bidSide) << 1];
+            }
+            count = 0;
+            levels = depth.getTopPrices(bidSide, levelPrices);
+            for (int i = 0; i < levels; i++) {
+                book.forEachOrderAt(bidSide, levelPrices[i], this);
+            }
+        }
+
+        @Override
+        public void visit(int uid, long price, int remainingQty, int revealedQty) {
+            if (count == uids.length) {
+                uids = Arrays.copyOf(uids, count << 1);
+                revealedQtys = Arrays.copyOf(revealedQtys, count << 1);
+                prices = Arrays.copyOf(prices, count << 1);
+            }
+            uids[count] = uid;
+            revealedQtys[count] = revealedQty;
+            prices[count] = price;
+            count++;
+        }
+
+        /**
+         * @return the price of the last row; only meaningful if there are rows
+         */
+        long worstPrice() {
+            return count == 0 ? 0 : prices[count - 1];
+        }
+
+        void printOn(ByteFormatter formatter, int row, boolean bid) {
+            if (row < count) {
+                DisplayUtil.printOrderOn(formatter, uids[row], revealedQtys[row], prices[row], bid);
+            } else {
+                DisplayUtil.printNoOrderOn(formatter, bid);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package clob;
+
+import java.io.PrintStream;
+
+/**
+ * Prints every trade and then re-renders the whole book after every event, as the command line tool always has.
+ * Formatting the full book is far more expensive than matching, so only use this for interactive sessions. Output
+ * goes through a growing {@link ByteFormatter}, so each trade line and each book reaches the stream in one write and
+ * is never broken up by another writer on the same stream, such as a {@link ConflatedBookRenderer}.
+ */
+public class ConsoleOrderBookListener implements OrderBookListener {
+    private final ByteFormatter formatter;
+    private final boolean printBook;
+    private boolean muted;
+
+    public ConsoleOrderBookListener() {
+        this(System.out);
+    }
+
+    public ConsoleOrderBookListener(PrintStream out) {
+        this(out, true);
+    }
+
+    /**
+     * @param printBook false to print trades only, e.g. when a {@link ConflatedBookRenderer} shows the book
+     */
+    public ConsoleOrderBookListener(PrintStream out, boolean printBook) {
+        this.formatter = new ByteFormatter(new PrintStreamChannel(out), 8192, true);
+        this.printBook = printBook;
+    }
+
+    /**
+     * Stop or resume printing, e.g. while a journal is replayed at full speed.
+     */
+    public void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        if (muted) {
+            return;
+        }
+        DisplayUtil.printTradeOn(formatter, buyOrderId, sellOrderId, price, tradedQty);
+        formatter.flush();
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        if (muted || !printBook) {
+            return;
+        }
+        DisplayUtil.displayBook(formatter, book);
+        formatter.newLine().flush();
+    }
+}
@@ -0,0 +1,240 @@
+package clob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Byte level parser for the text order format read by {@link IOrder#parse(String[], TickSize)}:
+ *
+ * <pre>
+ * B,100322,5103,7500         limit order: side, uid, price, quantity
+ * S,100345,5103,100000,10000 iceberg order: side, uid, price, quantity, peak size
+ * B,100346,5103,7500,IOC     immediate-or-cancel limit order, FOK for fill-or-kill
+ * S,100347,MKT,7500          market order, immediate-or-cancel unless followed by FOK
+ * </pre>
+ *
+ * Lines are parsed straight out of a reused direct buffer into primitives, without creating a String per line or
+ * per field. Blank lines are skipped and a trailing '\r' is ignored.
+ *
+ * Prices are decimals converted to ticks of the decoder's {@link TickSize}; with the default tick size of one they
+ * are simply whole numbers of ticks.
+ */
+public class CsvOrderDecoder {
+    private static final byte[] MARKET = {'M', 'K', 'T'};
+    private static final byte[] IOC = {'I', 'O', 'C'};
+    private static final byte[] FOK = {'F', 'O', 'K'};
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final TickSize tickSize;
+    private int cursor;
+    private long lineNumber;
+
+    public CsvOrderDecoder(ReadableByteChannel channel) {
+        this(channel, 64 * 1024);
+    }
+
+    public CsvOrderDecoder(ReadableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, TickSize.ONE);
+    }
+
+    public CsvOrderDecoder(ReadableByteChannel channel, int bufferSize, TickSize tickSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.tickSize = tickSize;
+    }
+
+    /**
+     * Read once from the channel and hand every complete line to the handler. A line split across reads is kept
+     * and completed by the next call; an unterminated last line is parsed once the channel is exhausted.
+     *
+     * @return the number of orders decoded, or -1 once the channel is exhausted
+     */
+    public int read(OrderHandler handler) throws IOException {
+        int bytesRead = channel.read(buffer);
+        buffer.flip();
+        int lineStart = buffer.position();
+        int limit = buffer.limit();
+        int orders = 0;
+        for (int i = lineStart; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (parseLine(lineStart, i, handler)) {
+                    orders++;
+                }
+                lineStart = i + 1;
+            }
+        }
+
+        if (bytesRead < 0) {
+            if (lineStart < limit && parseLine(lineStart, limit, handler)) {
+                orders++;
+            }
+            buffer.clear();
+            return orders > 0 ? orders : -1;
+        }
+        buffer.position(lineStart);
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            throw new IOException("line " + (lineNumber + 1) + " does not fit into the " + buffer.capacity() + " byte buffer");
+        }
+        return orders;
+    }
+
+    /**
+     * @return the total number of orders decoded until the channel was exhausted
+     */
+    public long readAll(OrderHandler handler) throws IOException {
+        long orders = 0;
+        int decoded;
+        while ((decoded = read(handler)) >= 0) {
+            orders += decoded;
+        }
+        return orders;
+    }
+
+    private boolean parseLine(int start, int end, OrderHandler handler) {
+        lineNumber++;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return false;
+        }
+
+        cursor = start;
+        byte side = buffer.get(cursor++);
+        if (side != 'B' && side != 'S') {
+            throw malformed("side must be B or S");
+        }
+        int uid = parseIntField(end);
+        boolean market = parseToken(end, MARKET);
+        long price = market ? MarketOrder.marketPrice((char) side) : parsePriceField(end);
+        int qty = parseIntField(end);
+        TimeInForce timeInForce = parseToken(end, IOC) ? TimeInForce.IMMEDIATE_OR_CANCEL :
+                parseToken(end, FOK) ? TimeInForce.FILL_OR_KILL :
+                market ? TimeInForce.IMMEDIATE_OR_CANCEL : TimeInForce.GOOD_TILL_CANCEL;
+        int peakSize = cursor < end && timeInForce == TimeInForce.GOOD_TILL_CANCEL ? parseIntField(end) : 0;
+        if (cursor != end) {
+            throw malformed("too many fields");
+        }
+
+        if (timeInForce == TimeInForce.GOOD_TILL_CANCEL) {
+            handler.onNewOrder((char) side, uid, price, qty, peakSize);
+        } else {
+            handler.onImmediateOrder((char) side, uid, price, qty, timeInForce);
+        }
+        return true;
+    }
+
+    /**
+     * If the comma following the cursor introduces a field that is exactly the token, move the cursor past it.
+     */
+    private boolean parseToken(int end, byte[] token) {
+        int fieldEnd = cursor + 1 + token.length;
+        if (fieldEnd > end || buffer.get(cursor) != ',' || (fieldEnd < end && buffer.get(fieldEnd) != ',')) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (buffer.get(cursor + 1 + i) != token[i]) {
+                return false;
+            }
+        }
+        cursor = fieldEnd;
+        return true;
+    }
+
+    /**
+     * Parse the comma and the decimal integer following the cursor, leaving the cursor on the next comma or the
+     * end of the line.
+     */
+    private int parseIntField(int end) {
+        if (cursor >= end || buffer.get(cursor) != ',') {
+            throw malformed("missing field");
+        }
+        cursor++;
+        boolean negative = cursor < end && buffer.get(cursor) == '-';
+        if (negative) {
+            cursor++;
+        }
+        int digitsStart = cursor;
+        long value = 0;
+        while (cursor < end) {
+            byte b = buffer.get(cursor);
+            if (b == ',') {
+                break;
+            }
+            if (b < '0' || b > '9') {
+                throw malformed("not a number");
+            }
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw malformed("number out of range");
+            }
+            cursor++;
+        }
+        if (cursor == digitsStart) {
+            throw malformed("empty field");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed("number out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parse the comma and the decimal price following the cursor into ticks, leaving the cursor on the next comma or
+     * the end of the line.
+     */
+    private long parsePriceField(int end) {
+        if (cursor >= end || buffer.get(cursor) != ',') {
+            throw malformed("missing field");
+        }
+        cursor++;
+        boolean negative = cursor < end && buffer.get(cursor) == '-';
+        if (negative) {
+            cursor++;
+        }
+        int digitsStart = cursor;
+        long value = 0;
+        int fractionDigits = -1;
+        while (cursor < end) {
+            byte b = buffer.get(cursor);
+            if (b == ',') {
+                break;
+            }
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                cursor++;
+                continue;
+            }
+            if (b < '0' || b > '9') {
+                throw malformed("not a number");
+            }
+            if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                throw malformed("number out of range");
+            }
+            value = value * 10 + (b - '0');
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+            cursor++;
+        }
+        if (cursor == digitsStart) {
+            throw malformed("empty field");
+        }
+        if (fractionDigits == 0) {
+            throw malformed("not a number");
+        }
+        try {
+            return tickSize.toTicks(negative ? -value : value, Math.max(0, fractionDigits));
+        } catch (IllegalArgumentException e) {
+            throw malformed(e.getMessage());
+        }
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("malformed order on line " + lineNumber + ": " + reason);
+    }
+}
@@ -0,0 +1,92 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * A reader's own copy of the levels published by a {@link ConcurrentDepthView}. Readers keep one snapshot and pass
+ * it to {@link ConcurrentDepthView#read} again and again, so reading allocates nothing once the snapshot has grown.
+ * Levels are indexed from the best price outwards.
+ */
+public class DepthSnapshot {
+    long[] bidLevels = new long[0];
+    long[] offerLevels = new long[0];
+    private long version;
+    private int bidCount;
+    private int offerCount;
+
+    void ensureCapacity(int levels) {
+        if (bidLevels.length < levels * ConcurrentDepthView.STRIDE) {
+            bidLevels = Arrays.copyOf(bidLevels, levels * ConcurrentDepthView.STRIDE);
+            offerLevels = Arrays.copyOf(offerLevels, levels * ConcurrentDepthView.STRIDE);
+        }
+    }
+
+    void set(long version, int bidCount, int offerCount) {
+        this.version = version;
+        this.bidCount = bidCount;
+        this.offerCount = offerCount;
+    }
+
+    /**
+     * @return the number of times the levels had been republished when they were copied
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getLevelCount(boolean bidSide) {
+        return bidSide ? bidCount : offerCount;
+    }
+
+    public boolean isEmpty(boolean bidSide) {
+        return getLevelCount(bidSide) == 0;
+    }
+
+    /**
+     * @return the best bid or offer price; only meaningful if the side has a level
+     */
+    public long getBestPrice(boolean bidSide) {
+        return getPrice(bidSide, 0);
+    }
+
+    public long getPrice(boolean bidSide, int level) {
+        return field(bidSide, level, ConcurrentDepthView.PRICE);
+    }
+
+    public long getVisibleQty(boolean bidSide, int level) {
+        return field(bidSide, level, ConcurrentDepthView.VISIBLE_QTY);
+    }
+
+    public long getHiddenQty(boolean bidSide, int level) {
+        return field(bidSide, level, ConcurrentDepthView.HIDDEN_QTY);
+    }
+
+    public int getOrderCount(boolean bidSide, int level) {
+        return (int) field(bidSide, level, ConcurrentDepthView.ORDER_COUNT);
+    }
+
+    private long field(boolean bidSide, int level, int field) {
+        if (level < 0 || level >= getLevelCount(bidSide)) {
+            throw new IndexOutOfBoundsException("level " + level + " of " + getLevelCount(bidSide));
+        }
+        return (bidSide ? bidLevels : offerLevels)[level * ConcurrentDepthView.STRIDE + field];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("version ").append(version);
+        for (int level = 0; level < Math.max(bidCount, offerCount); level++) {
+            stringBuilder.append('\n');
+            if (level < bidCount) {
+                stringBuilder.append(getOrderCount(true, level)).append(' ').append(getVisibleQty(true, level))
+                        .append(" @ ").append(getPrice(true, level));
+            }
+            stringBuilder.append(" | ");
+            if (level < offerCount) {
+                stringBuilder.append(getPrice(false, level)).append(" @ ").append(getVisibleQty(false, level))
+                        .append(' ').append(getOrderCount(false, level));
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.List;
 
 public class DisplayUtil {
+    private static final char[] DASHED_LINE = dashedLine(67);
+    private static final String HEADER = header();
 
     /*
             +-----------------------------------------------------------------+
@@ -15,18 +17,40 @@ public class DisplayUtil {
             |          |             |       | 32,507|        3,000|     42100|
             +-----------------------------------------------------------------+
     */
-    public static void displayBook(LimitOrderBook book) {
+    public static void displayBook(ILimitOrderBook book) {
         StringBuilder stringBuilder = new StringBuilder();
         displayBook(stringBuilder, book);
         System.out.println(stringBuilder.toString());
     }
-    public static void displayBook(StringBuilder stringBuilder, LimitOrderBook book) {
+    public static void displayBook(StringBuilder stringBuilder, ILimitOrderBook book) {
         printHeaderOn(stringBuilder);
         printBookrOn(stringBuilder, book);
         stringBuilder.append(dashedLine(67));
     }
 
-    public static void printBookrOn(StringBuilder stringBuilder, LimitOrderBook book) {
+    /**
+     * Same table as {@link #displayBook(StringBuilder, ILimitOrderBook)}, written byte by byte without formatting
+     * strings. The caller flushes the formatter.
+     */
+    public static void displayBook(ByteFormatter formatter, ILimitOrderBook book) {
+        printHeaderOn(formatter);
+        printBookOn(formatter, book);
+        printFooterOn(formatter);
+    }
+
+    public static void printBookOn(ByteFormatter formatter, ILimitOrderBook book) {
+        List<IOrder> bids = book.getBidsByPriceTime();
+        List<IOrder> offers = book.getOffersByPriceTime();
+        int depth = Math.max(bids.size(), offers.size());
+
+        for (int i = 0; i < depth; i++) {
+            formatter.append('|');
+            printOrderOn(formatter, i < bids.size() ? bids.get(i) : null, true);
+            printOrderOn(formatter, i < offers.size() ? offers.get(i) : null, false);
+        }
+    }
+
+    public static void printBookrOn(StringBuilder stringBuilder, ILimitOrderBook book) {
         List<IOrder> bids = book.getBidsByPriceTime();
         List<IOrder> offers = book.getOffersByPriceTime();
         int depth = Math.max(bids.size(), offers.size());
@@ -61,6 +85,16 @@ public class DisplayUtil {
         stringBuilder.append(columnDashedLine(67)).append("\n");
     }
 
+    public static void printHeaderOn(ByteFormatter formatter) {
+        formatter.append(HEADER);
+    }
+
+    private static String header() {
+        StringBuilder stringBuilder = new StringBuilder();
+        printHeaderOn(stringBuilder);
+        return stringBuilder.toString();
+    }
+
     public static void printRowOn(StringBuilder stringBuilder, ColumnSpec... rowSpec) {
         stringBuilder.append('|');
         for (ColumnSpec columnSpec : rowSpec) {
@@ -112,6 +146,41 @@ public class DisplayUtil {
         }
     }
 
+    /**
+     * Byte level equivalent of {@link #printOrderOn(StringBuilder, IOrder, boolean)}.
+     */
+    public static void printOrderOn(ByteFormatter formatter, IOrder order, boolean bid) {
+        if (order != null) {
+            printOrderOn(formatter, order.getUid(), order.getRevealedQty(), order.getPrice(), bid);
+        } else {
+            printNoOrderOn(formatter, bid);
+        }
+    }
+
+    public static void printOrderOn(ByteFormatter formatter, int uid, int revealedQty, long price, boolean bid) {
+        if (bid) {
+            formatter.appendRight(uid, 10, false).append('|');
+            formatter.appendRight(revealedQty, 13, true).append('|');
+            formatter.appendRight(price, 7, true).append('|');
+        } else {
+            formatter.appendRight(price, 7, true).append('|');
+            formatter.appendRight(revealedQty, 13, true).append('|');
+            formatter.appendRight(uid, 10, false).append('|').newLine();
+        }
+    }
+
+    public static void printNoOrderOn(ByteFormatter formatter, boolean bid) {
+        if (bid) {
+            formatter.repeat(' ', 10).append('|').repeat(' ', 13).append('|').repeat(' ', 7).append('|');
+        } else {
+            formatter.repeat(' ', 7).append('|').repeat(' ', 13).append('|').repeat(' ', 10).append('|').newLine();
+        }
+    }
+
+    public static void printFooterOn(ByteFormatter formatter) {
+        formatter.append(DASHED_LINE);
+    }
+
     public static char[] dashedLine(int length) {
         char[] dashedLine = new char[length];
         Arrays.fill(dashedLine, '-');
@@ -140,6 +209,21 @@ public class DisplayUtil {
         }
     }
 
+    /**
+     * Write one trade line as {@link Trade#toString()} does. The caller flushes the formatter.
+     */
+    public static void printTradeOn(ByteFormatter formatter, int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        formatter.append(buyOrderId).append(',').append(sellOrderId).append(',').append(price).append(',')
+                .append(tradedQty).newLine();
+    }
+
+    public static void displayTrades(ByteFormatter formatter, List<Trade> trades) {
+        for (int i = 0; i < trades.size(); i++) {
+            Trade trade = trades.get(i);
+            printTradeOn(formatter, trade.getBuyOrderId(), trade.getSellOrderId(), trade.getPrice(), trade.getTradedQty());
+        }
+    }
+
     public static class ColumnSpec {
         public final String columnName;
         public final int columnWidth;
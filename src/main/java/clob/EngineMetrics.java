@@ -0,0 +1,256 @@
+package clob;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Always-on instrumentation of a book, installed as its {@link OrderBookListener} in front of the listener that
+ * would otherwise be there. It counts orders, fills, swept levels and iceberg replenishments, tracks the depth of
+ * both sides, and records into {@link LatencyHistogram}s how long the book took to handle each event and how long
+ * the delegate took, which for a {@link ConsoleOrderBookListener} is printing the trades and rendering the book.
+ * An event is timed from the book's first callback to {@link #onBookChanged}, less the time spent in the delegate
+ * meanwhile: new orders as {@value #MATCH}, cancels and amends, including the matching of a repriced order, as
+ * {@value #AMEND}. {@link OrderPipeline} records the latency of each of its stages here as well.
+ *
+ * Recording allocates nothing. Counters are written by the matching thread only and can be read from any thread,
+ * e.g. by a {@link MetricsReporter}.
+ */
+public class EngineMetrics implements OrderBookListener {
+    public static final String MATCH = "match";
+    public static final String AMEND = "amend";
+    public static final String RENDER = "render";
+
+    private static final int ORDERS = 0;
+    private static final int CANCELS_AND_AMENDS = 1;
+    private static final int TRADES = 2;
+    private static final int TRADED_QTY = 3;
+    private static final int LEVELS_SWEPT = 4;
+    private static final int ICEBERG_REPLENISHMENTS = 5;
+    private static final int BID_DEPTH = 6;
+    private static final int OFFER_DEPTH = 7;
+    private static final int EXPIRED_ORDERS = 8;
+
+    private final OrderBookListener delegate;
+    private final AtomicLongArray counters = new AtomicLongArray(9);
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final LatencyHistogram matchLatency;
+    private final LatencyHistogram amendLatency;
+    private final LatencyHistogram renderLatency;
+    private final boolean timesDelegate;
+
+    // the event in progress
+    private long eventStartNanos;
+    private long delegateNanos;
+    private boolean ordersAccepted;
+
+    public EngineMetrics() {
+        this(OrderBookListener.NO_OP);
+    }
+
+    public EngineMetrics(OrderBookListener delegate) {
+        this.delegate = delegate;
+        this.timesDelegate = delegate != OrderBookListener.NO_OP;
+        this.matchLatency = latency(MATCH);
+        this.amendLatency = latency(AMEND);
+        this.renderLatency = latency(RENDER);
+    }
+
+    /**
+     * @return the histogram of the named latency, created on first use; create every one before recording starts,
+     * as creating a histogram is not safe while another thread reads the metrics
+     */
+    public synchronized LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        // a batch of orders completes with a single onBookChanged, so it is timed from its first order
+        long start = begin();
+        ordersAccepted = true;
+        increment(ORDERS);
+        delegate.onOrderAccepted(order);
+        delegated(start);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        long start = begin();
+        increment(TRADES);
+        counters.lazySet(TRADED_QTY, counters.get(TRADED_QTY) + tradedQty);
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+        delegated(start);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        long start = begin();
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+        delegated(start);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        long start = begin();
+        increment(LEVELS_SWEPT);
+        delegate.onLevelSwept(bidSide, price);
+        delegated(start);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        long start = begin();
+        increment(ICEBERG_REPLENISHMENTS);
+        delegate.onIcebergReplenished(uid);
+        delegated(start);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        long start = begin();
+        increment(EXPIRED_ORDERS);
+        delegate.onOrderExpired(uid, expiredQty);
+        delegated(start);
+    }
+
+    /**
+     * Ends the latency of the event: {@value #MATCH} if it accepted new orders, otherwise {@value #AMEND}, where
+     * cancels and amends are also counted. {@value #RENDER} gets the time the delegate took over the whole event.
+     */
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        long now = System.nanoTime();
+        long elapsed = eventStartNanos == 0 ? 0 : now - eventStartNanos - delegateNanos;
+        if (ordersAccepted) {
+            matchLatency.record(elapsed);
+        } else {
+            increment(CANCELS_AND_AMENDS);
+            amendLatency.record(elapsed);
+        }
+        counters.lazySet(BID_DEPTH, book.getBidDepth());
+        counters.lazySet(OFFER_DEPTH, book.getOfferDepth());
+
+        delegate.onBookChanged(book);
+        if (timesDelegate) {
+            renderLatency.record(System.nanoTime() - now + delegateNanos);
+        }
+        endEvent();
+    }
+
+    /**
+     * Forget the event in progress. Call this on the matching thread when the book throws before it has reported
+     * the event complete, so that the time is not charged to the next event.
+     */
+    public void eventFailed() {
+        endEvent();
+    }
+
+    private void endEvent() {
+        eventStartNanos = 0;
+        delegateNanos = 0;
+        ordersAccepted = false;
+    }
+
+    /**
+     * Start timing the event at the book's first callback.
+     *
+     * @return the time the delegate is called, when it is timed
+     */
+    private long begin() {
+        long now = eventStartNanos == 0 || timesDelegate ? System.nanoTime() : 0;
+        if (eventStartNanos == 0) {
+            eventStartNanos = now;
+        }
+        return now;
+    }
+
+    private void delegated(long start) {
+        if (timesDelegate) {
+            delegateNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void increment(int counter) {
+        counters.lazySet(counter, counters.get(counter) + 1);
+    }
+
+    public long getOrderCount() {
+        return counters.get(ORDERS);
+    }
+
+    public long getCancelAndAmendCount() {
+        return counters.get(CANCELS_AND_AMENDS);
+    }
+
+    public long getTradeCount() {
+        return counters.get(TRADES);
+    }
+
+    public long getTradedQty() {
+        return counters.get(TRADED_QTY);
+    }
+
+    public long getLevelsSwept() {
+        return counters.get(LEVELS_SWEPT);
+    }
+
+    public long getIcebergReplenishments() {
+        return counters.get(ICEBERG_REPLENISHMENTS);
+    }
+
+    /**
+     * @return the number of immediate orders with an unfilled part dropped, including rejected fill-or-kill orders
+     */
+    public long getExpiredOrders() {
+        return counters.get(EXPIRED_ORDERS);
+    }
+
+    public long getBidDepth() {
+        return counters.get(BID_DEPTH);
+    }
+
+    public long getOfferDepth() {
+        return counters.get(OFFER_DEPTH);
+    }
+
+    public LatencyHistogram getMatchLatency() {
+        return matchLatency;
+    }
+
+    public LatencyHistogram getAmendLatency() {
+        return amendLatency;
+    }
+
+    public LatencyHistogram getRenderLatency() {
+        return renderLatency;
+    }
+
+    /**
+     * Append a human readable snapshot of every counter and latency, in microseconds.
+     */
+    public synchronized void appendTo(StringBuilder sb) {
+        sb.append("orders=").append(getOrderCount())
+                .append(" cancelsAndAmends=").append(getCancelAndAmendCount())
+                .append(" trades=").append(getTradeCount())
+                .append(" tradedQty=").append(getTradedQty())
+                .append(" levelsSwept=").append(getLevelsSwept())
+                .append(" icebergReplenishments=").append(getIcebergReplenishments())
+                .append(" expiredOrders=").append(getExpiredOrders())
+                .append(" bidDepth=").append(getBidDepth())
+                .append(" offerDepth=").append(getOfferDepth());
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                sb.append(System.lineSeparator()).append(entry.getKey()).append(" latency us: ");
+                entry.getValue().appendSummary(sb, 1000);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package clob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append only journal of order entry events in a memory mapped file. Each record is an 8 byte sequence number
+ * followed by the event as an {@link OrderMessage}:
+ *
+ * <pre>
+ * 0      8                        32
+ * | seq  | OrderMessage (24 bytes) |
+ * </pre>
+ *
+ * Sequence numbers start at 1 and increase by one per record. The sequence number is written after the message,
+ * so a record torn by a crash does not carry the expected sequence number; opening an existing journal scans the
+ * records up to the first one that does not and continues appending from there.
+ */
+public class EventJournal implements Closeable {
+    public static final int SEQUENCE_OFFSET = 0;
+    public static final int MESSAGE_OFFSET = 8;
+    public static final int RECORD_LENGTH = MESSAGE_OFFSET + OrderMessage.LENGTH;
+
+    private final FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final int batchSize;
+    private MappedByteBuffer buffer;
+    private long nextSequence = 1;
+    private int unsyncedEvents;
+
+    public EventJournal(Path path, SyncPolicy syncPolicy) throws IOException {
+        this(path, syncPolicy, 1024, 64 * 1024 * 1024);
+    }
+
+    /**
+     * @param batchSize      number of events per force under {@link SyncPolicy#BATCH}
+     * @param mappedCapacity initial size of the mapping in bytes; it is doubled whenever the journal fills it
+     */
+    public EventJournal(Path path, SyncPolicy syncPolicy, int batchSize, int mappedCapacity) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+        long capacity = Math.max(channel.size(), Math.max(mappedCapacity, RECORD_LENGTH));
+        map(capacity - capacity % RECORD_LENGTH);
+        recoverPosition();
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("journal exceeds the maximum mapping size: " + capacity);
+        }
+        int position = buffer == null ? 0 : buffer.position();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.order(OrderMessage.BYTE_ORDER);
+        buffer.position(position);
+    }
+
+    private void recoverPosition() {
+        int offset = 0;
+        while (offset + RECORD_LENGTH <= buffer.capacity() && buffer.getLong(offset + SEQUENCE_OFFSET) == nextSequence) {
+            nextSequence++;
+            offset += RECORD_LENGTH;
+        }
+        buffer.position(offset);
+    }
+
+    public long appendNewOrder(IOrder order) throws IOException {
+        char buySellIndicator = order.isBuy() ? 'B' : 'S';
+        if (order.getTimeInForce() != TimeInForce.GOOD_TILL_CANCEL) {
+            return appendImmediateOrder(buySellIndicator, order.getUid(), order.getPrice(), order.getRemainingQty(),
+                    order.getTimeInForce());
+        }
+        return appendNewOrder(buySellIndicator, order.getUid(), order.getPrice(), order.getRemainingQty(),
+                order.getPeakSize());
+    }
+
+    public long appendNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) throws IOException {
+        int offset = startRecord();
+        OrderMessage.encodeNewOrder(buffer, buySellIndicator, uid, price, qty, peakSize);
+        return commitRecord(offset);
+    }
+
+    public long appendImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce)
+            throws IOException {
+        int offset = startRecord();
+        OrderMessage.encodeImmediateOrder(buffer, buySellIndicator, uid, price, qty, timeInForce);
+        return commitRecord(offset);
+    }
+
+    public long appendCancelOrder(int uid) throws IOException {
+        int offset = startRecord();
+        OrderMessage.encodeCancelOrder(buffer, uid);
+        return commitRecord(offset);
+    }
+
+    public long appendAmendOrder(int uid, int newQty, long newPrice) throws IOException {
+        int offset = startRecord();
+        OrderMessage.encodeAmendOrder(buffer, uid, newQty, newPrice);
+        return commitRecord(offset);
+    }
+
+    private int startRecord() throws IOException {
+        if (buffer.remaining() < RECORD_LENGTH) {
+            map((long) buffer.capacity() << 1);
+        }
+        int offset = buffer.position();
+        buffer.position(offset + MESSAGE_OFFSET);
+        return offset;
+    }
+
+    private long commitRecord(int offset) {
+        long sequence = nextSequence++;
+        buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+        if (syncPolicy == SyncPolicy.EVERY_EVENT || (syncPolicy == SyncPolicy.BATCH && ++unsyncedEvents == batchSize)) {
+            sync();
+        }
+        return sequence;
+    }
+
+    /**
+     * Force everything appended so far to the storage device, whatever the sync policy.
+     */
+    public void sync() {
+        buffer.force();
+        unsyncedEvents = 0;
+    }
+
+    /**
+     * Hand every journalled event, oldest first, to the handler.
+     *
+     * @return the number of events replayed
+     */
+    public long replay(OrderHandler handler) {
+        return replay(handler, 0);
+    }
+
+    /**
+     * Hand the journalled events with a sequence number above {@code afterSequence}, oldest first, to the handler.
+     * Sequence numbers are dense, so the first of them is found by offset rather than by scanning.
+     *
+     * @return the number of events replayed
+     */
+    public long replay(OrderHandler handler, long afterSequence) {
+        if (afterSequence < 0 || afterSequence > getLastSequence()) {
+            throw new IllegalArgumentException("sequence " + afterSequence + " is not in the journal, last is " + getLastSequence());
+        }
+        int end = buffer.position();
+        for (int offset = (int) (afterSequence * RECORD_LENGTH); offset < end; offset += RECORD_LENGTH) {
+            OrderMessage.decode(buffer, offset + MESSAGE_OFFSET, handler);
+        }
+        return getLastSequence() - afterSequence;
+    }
+
+    /**
+     * @return the sequence number of the last appended event, 0 if the journal is empty
+     */
+    public long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Discard every event, restarting the sequence at 1.
+     */
+    public void truncate() {
+        for (int offset = 0; offset < buffer.position(); offset += RECORD_LENGTH) {
+            buffer.putLong(offset + SEQUENCE_OFFSET, 0L);
+        }
+        buffer.position(0);
+        nextSequence = 1;
+        sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncPolicy != SyncPolicy.NONE) {
+            sync();
+        }
+        channel.close();
+    }
+}
@@ -3,6 +3,85 @@ package clob;
 import java.util.List;
 
 public interface ILimitOrderBook {
+
+    /**
+     * Receives the orders of a price level from {@link #forEachOrderAt} as primitives.
+     */
+    interface LevelVisitor {
+        void visit(int uid, long price, int remainingQty, int revealedQty);
+    }
+
     List<Trade> newOrder(IOrder newOrder);
 
+    /**
+     * Garbage free variant of {@link #newOrder(IOrder)}: the fills are appended to the caller's buffer, which is
+     * not cleared first, and no per call collections or {@link Trade} objects are created.
+     */
+    void newOrder(IOrder newOrder, TradeBuffer trades);
+
+    /**
+     * Submit a burst of orders, matched in list order with exactly the outcome of submitting them one by one. The
+     * fills of all of them are appended to the caller's buffer, and the listener hears
+     * {@link OrderBookListener#onBookChanged} once, after the last order, rather than once per order.
+     */
+    void newOrders(List<? extends IOrder> batch, TradeBuffer trades);
+
+    /**
+     * Remove a resting order from the book.
+     *
+     * @return false if no order with this uid is resting, e.g. because it has already been filled
+     */
+    boolean cancelOrder(int uid);
+
+    /**
+     * Change the open quantity and price of a resting order. Reducing the quantity at the same price keeps the
+     * order's time priority; any other change re-enters it at the back of its price level, matching it first if
+     * the new price crosses the book.
+     *
+     * @return the trades caused by the amendment, or null if no order with this uid is resting
+     */
+    List<Trade> amendOrder(int uid, int newQty, long newPrice);
+
+    /**
+     * Put an order straight into the book without matching it, behind the orders already resting at its price.
+     * Meant for bulk loading a {@link BookSnapshot}, whose orders arrive in price-time order and never cross.
+     *
+     * @param peakSize    0 for a limit order, otherwise the iceberg peak
+     * @param revealedQty the part of the remaining quantity currently visible
+     */
+    void restoreOrder(char buySellIndicator, int uid, long price, int remainingQty, int peakSize, int revealedQty);
+
+    /**
+     * The resting bids, best first. The list may be the book's own, so like the rest of the book it must only be
+     * used on the matching thread; other threads read levels through a {@link ConcurrentDepthView}.
+     */
+    List<IOrder> getBidsByPriceTime();
+
+    /**
+     * The resting offers, best first, under the same rules as {@link #getBidsByPriceTime()}.
+     */
+    List<IOrder> getOffersByPriceTime();
+
+    /**
+     * Hand the orders resting at one price to the visitor in time priority, without creating any objects. Together
+     * with {@link BookDepth#getTopPrices} this reads the top levels of a side for the cost of those levels alone,
+     * where the lists above copy or hold every order of the side.
+     */
+    void forEachOrderAt(boolean bidSide, long price, LevelVisitor visitor);
+
+    int getBidDepth();
+
+    int getOfferDepth();
+
+    IOrder getBestBid();
+
+    IOrder getBestOffer();
+
+    /**
+     * Per price level totals for depth queries. They are built by walking the book on the first call and kept up
+     * to date as the book changes from then on, so a book nobody queries pays nothing for them.
+     */
+    BookDepth getDepth();
+
+    void reset();
 }
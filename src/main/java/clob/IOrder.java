@@ -1,8 +1,15 @@
 package clob;
 
+import java.math.BigDecimal;
+
 public interface IOrder {
     void executedTrade(Trade trade);
 
+    /**
+     * Apply a fill without a {@link Trade} object; this is what the books call while matching.
+     */
+    void fill(long price, int tradedQty);
+
     boolean isFilled();
 
     boolean isBuy();
@@ -17,22 +24,78 @@ public interface IOrder {
         return false;
     }
 
+    /**
+     * @return what happens to the part of the order that does not trade on arrival
+     */
+    default TimeInForce getTimeInForce() {
+        return TimeInForce.GOOD_TILL_CANCEL;
+    }
+
+    /**
+     * @return true for a {@link MarketOrder}, which has no limit price of its own
+     */
+    default boolean isMarketOrder() {
+        return false;
+    }
+
     int getUid();
 
-    short getPrice();
+    long getPrice();
 
     int getRemainingQty();
 
     int getRevealedQty();
 
+    /**
+     * @return the quantity an iceberg reveals at a time, 0 for orders that show all of their quantity
+     */
+    default int getPeakSize() {
+        return 0;
+    }
+
+    /**
+     * Change the open quantity and the price of the order. Whether it keeps its time priority is up to the book.
+     */
+    void amend(int newQty, long newPrice);
+
     static IOrder parse(String[] fields) {
+        return parse(fields, TickSize.ONE);
+    }
+
+    /**
+     * Parse an order whose price is a decimal, e.g. "51.03", converted to ticks of the given tick size.
+     *
+     * @throws IllegalArgumentException if the price is not a whole number of ticks
+     */
+    static IOrder parse(String[] fields, TickSize tickSize) {
         char buySellIndicator = fields[0].charAt(0);
         int uid = Integer.valueOf(fields[1]);
-        short price = Short.valueOf(fields[2]);
         int qty = Integer.valueOf(fields[3]);
-        int peak;
+        TimeInForce timeInForce = fields.length == 5 ? parseTimeInForce(fields[4]) : TimeInForce.GOOD_TILL_CANCEL;
+
+        if (fields[2].equals("MKT")) {
+            return new MarketOrder(buySellIndicator, uid, qty,
+                    timeInForce == TimeInForce.GOOD_TILL_CANCEL ? TimeInForce.IMMEDIATE_OR_CANCEL : timeInForce);
+        }
+        long price = tickSize.toTicks(new BigDecimal(fields[2]));
+        if (fields.length == 5 && timeInForce == TimeInForce.GOOD_TILL_CANCEL) {
+            return new IcebergOrder(buySellIndicator, uid, price, qty, Integer.valueOf(fields[4]));
+        }
+        return new LimitOrder(buySellIndicator, uid, price, qty, timeInForce);
+    }
 
-        return fields.length == 5 ? new IcebergOrder(buySellIndicator, uid, price, qty, Integer.valueOf(fields[4])) :
-                new LimitOrder(buySellIndicator, uid, price, qty);
+    /**
+     * @return the time in force named by an order's last field, "IOC" or "FOK", or good-till-cancel for anything
+     * else, which is an iceberg's peak size
+     */
+    static TimeInForce parseTimeInForce(String field) {
+        switch (field) {
+            case "IOC":
+                return TimeInForce.IMMEDIATE_OR_CANCEL;
+            case "FOK":
+                return TimeInForce.FILL_OR_KILL;
+            default:
+                return TimeInForce.GOOD_TILL_CANCEL;
+        }
     }
 }
@@ -1,19 +1,25 @@
 package clob;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class IcebergOrder implements IOrder {
     private final char buySellIndicator;
     private final int uid;
-    private final short price;
-    private final int qty;
+    private long price;
+    private int qty;
     private final int peakSize;
     private int revealedPeakQty;
     private int remainingQty;
-    private final List<Trade> trades = new ArrayList<>();
+    private int filledQty;
+    private int fillCount;
+    private long lastFillPrice;
+
+    public IcebergOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        this(buySellIndicator, uid, price, qty, peakSize, peakSize);
+    }
 
-    public IcebergOrder(char buySellIndicator, int uid, short price, int qty, int peakSize) {
+    /**
+     * Recreate an iceberg part way through its current peak, e.g. from a snapshot of the book.
+     */
+    public IcebergOrder(char buySellIndicator, int uid, long price, int qty, int peakSize, int revealedPeakQty) {
 
         this.buySellIndicator = buySellIndicator;
         this.uid = uid;
@@ -21,7 +27,7 @@ public class IcebergOrder implements IOrder {
         this.qty = qty;
         this.peakSize = peakSize;
         this.remainingQty = qty;
-        this.revealedPeakQty = peakSize;
+        this.revealedPeakQty = revealedPeakQty;
     }
 
     public char getBuySellIndicator() {
@@ -32,7 +38,7 @@ public class IcebergOrder implements IOrder {
         return uid;
     }
 
-    public short getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -70,19 +76,32 @@ public class IcebergOrder implements IOrder {
     }
 
     public void executedTrade(Trade trade) {
-        trades.add(trade);
-        if (trade.getTradedQty() > remainingQty) {
-            System.out.println(String.format("traded quantity [%s] exceeds remaining quantity [%s] of order!", trade.getTradedQty(), remainingQty));
-        }
-        remainingQty -= trade.getTradedQty();
-        revealedPeakQty -= trade.getTradedQty();
+        fill(trade.getPrice(), trade.getTradedQty());
+    }
 
-        if(trade.getTradedQty() >= peakSize) {
-            int peekSizeOverhang = trade.getTradedQty() - peakSize;
+    public void fill(long price, int tradedQty) {
+        if (tradedQty > remainingQty) {
+            System.out.println(String.format("traded quantity [%s] exceeds remaining quantity [%s] of order!", tradedQty, remainingQty));
+        }
+        remainingQty -= tradedQty;
+        revealedPeakQty -= tradedQty;
+        filledQty += tradedQty;
+        fillCount++;
+        lastFillPrice = price;
+
+        if(tradedQty >= peakSize) {
+            int peekSizeOverhang = tradedQty - peakSize;
             revealedPeakQty = Math.max(Math.min(peakSize, remainingQty) - peekSizeOverhang, 0);
         }
     }
 
+    public void amend(int newQty, long newPrice) {
+        qty += newQty - remainingQty;
+        remainingQty = newQty;
+        revealedPeakQty = Math.min(revealedPeakQty, newQty);
+        price = newPrice;
+    }
+
     public int getPeakSize() {
         return peakSize;
     }
@@ -91,17 +110,34 @@ public class IcebergOrder implements IOrder {
         return revealedPeakQty;
     }
 
-    public List<Trade> getTrades() {
-        return trades;
+    public int getFilledQty() {
+        return filledQty;
+    }
+
+    public int getFillCount() {
+        return fillCount;
     }
 
-    public void refreshPeak(List<Trade> trades) {
-        int totalTraded = trades.stream().mapToInt(Trade::getTradedQty).sum();
+    /**
+     * @return the price of the most recent fill, only meaningful once {@link #getFillCount()} is positive
+     */
+    public long getLastFillPrice() {
+        return lastFillPrice;
+    }
+
+    public void refreshPeak(int totalTraded) {
         if(totalTraded >= peakSize) {
-            revealedPeakQty = Math.min(peakSize, remainingQty);
+            refreshPeak();
         }
     }
 
+    /**
+     * Reveal a new peak from the hidden quantity, e.g. once the current peak has been traded away.
+     */
+    public void refreshPeak() {
+        revealedPeakQty = Math.min(peakSize, remainingQty);
+    }
+
     @Override
     public String toString() {
         return "LimitOrder{" +
@@ -111,7 +147,8 @@ public class IcebergOrder implements IOrder {
                 ", qty=" + qty +
                 ", peakSize=" + peakSize +
                 ", remainingQty=" + remainingQty +
-                ", trades=" + trades +
+                ", filledQty=" + filledQty +
+                ", fillCount=" + fillCount +
                 '}';
     }
 }
@@ -0,0 +1,150 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from a primitive int key to a primitive int value, e.g. from an order uid to the
+ * {@link OrderStore} slot holding it. A configurable missing value marks empty entries and is returned for absent
+ * keys, so it can never be stored. Linear probing with backward shift deletion, as {@link IntObjectHashMap}.
+ */
+public class IntIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public IntIntHashMap(int missingValue) {
+        this(1024, missingValue);
+    }
+
+    public IntIntHashMap(int initialCapacity, int missingValue) {
+        this.missingValue = missingValue;
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (initialCapacity / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, missingValue);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int key) {
+        for (int index = slot(key); values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != missingValue;
+    }
+
+    /**
+     * @return the previous value for the key, or the missing value if there was none
+     */
+    public int put(int key, int value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("cannot store the missing value " + missingValue);
+        }
+        int index = slot(key);
+        for (; values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the removed value, or the missing value if the key was not present
+     */
+    public int remove(int key) {
+        for (int index = slot(key); values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = missingValue;
+                size--;
+                compactChain(index);
+                return previous;
+            }
+        }
+        return missingValue;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, missingValue);
+            size = 0;
+        }
+    }
+
+    private void compactChain(int deleteIndex) {
+        int index = deleteIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == missingValue) {
+                return;
+            }
+            int home = slot(keys[index]);
+            // move the entry back into the hole unless its home slot lies cyclically in (deleteIndex, index]
+            boolean homeAfterHole = deleteIndex <= index ?
+                    deleteIndex < home && home <= index :
+                    deleteIndex < home || home <= index;
+            if (!homeAfterHole) {
+                keys[deleteIndex] = keys[index];
+                values[deleteIndex] = values[index];
+                values[index] = missingValue;
+                deleteIndex = index;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != missingValue) {
+                int index = slot(oldKeys[i]);
+                while (values[index] != missingValue) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
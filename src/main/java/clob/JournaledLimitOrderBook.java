@@ -0,0 +1,173 @@
+package clob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes every order entry event to an {@link EventJournal} before handing it to the wrapped book, so the book can
+ * be rebuilt after a restart by replaying the journal through the matcher with {@link #recover()}.
+ */
+public class JournaledLimitOrderBook implements ILimitOrderBook {
+    private final ILimitOrderBook book;
+    private final EventJournal journal;
+    private long lastReplayNanos;
+
+    public JournaledLimitOrderBook(ILimitOrderBook book, EventJournal journal) {
+        this.book = book;
+        this.journal = journal;
+    }
+
+    /**
+     * Rebuild the wrapped book from the journal. Replayed events are matched again but not journalled again.
+     *
+     * @return the number of events replayed
+     */
+    public long recover() {
+        return recover(0);
+    }
+
+    /**
+     * Replay only the tail of the journal after a sequence number, e.g. on top of a book loaded from a
+     * {@link BookSnapshot} taken at that sequence number.
+     *
+     * @return the number of events replayed
+     */
+    public long recover(long afterSequence) {
+        long start = System.nanoTime();
+        long events = journal.replay(new BookOrderHandler(book, new TradeBuffer(), false), afterSequence);
+        lastReplayNanos = System.nanoTime() - start;
+        return events;
+    }
+
+    /**
+     * Write a snapshot of the book tagged with the sequence number of the last journalled event.
+     */
+    public void snapshot(Path path) throws IOException {
+        BookSnapshot.write(book, journal.getLastSequence(), path);
+    }
+
+    public long getLastReplayNanos() {
+        return lastReplayNanos;
+    }
+
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public List<Trade> newOrder(IOrder newOrder) {
+        try {
+            journal.appendNewOrder(newOrder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return book.newOrder(newOrder);
+    }
+
+    @Override
+    public void newOrder(IOrder newOrder, TradeBuffer trades) {
+        try {
+            journal.appendNewOrder(newOrder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        book.newOrder(newOrder, trades);
+    }
+
+    /**
+     * Journals every order of the batch before any of them is matched.
+     */
+    @Override
+    public void newOrders(List<? extends IOrder> batch, TradeBuffer trades) {
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                journal.appendNewOrder(batch.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        book.newOrders(batch, trades);
+    }
+
+    @Override
+    public boolean cancelOrder(int uid) {
+        try {
+            journal.appendCancelOrder(uid);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return book.cancelOrder(uid);
+    }
+
+    @Override
+    public List<Trade> amendOrder(int uid, int newQty, long newPrice) {
+        if (newQty <= 0) {
+            throw new IllegalArgumentException("amended quantity must be positive: " + newQty);
+        }
+        try {
+            journal.appendAmendOrder(uid, newQty, newPrice);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return book.amendOrder(uid, newQty, newPrice);
+    }
+
+    /**
+     * Restored orders are not journalled: a snapshot stands in for the part of the journal it was taken at.
+     */
+    @Override
+    public void restoreOrder(char buySellIndicator, int uid, long price, int remainingQty, int peakSize, int revealedQty) {
+        book.restoreOrder(buySellIndicator, uid, price, remainingQty, peakSize, revealedQty);
+    }
+
+    @Override
+    public List<IOrder> getBidsByPriceTime() {
+        return book.getBidsByPriceTime();
+    }
+
+    @Override
+    public List<IOrder> getOffersByPriceTime() {
+        return book.getOffersByPriceTime();
+    }
+
+    @Override
+    public void forEachOrderAt(boolean bidSide, long price, LevelVisitor visitor) {
+        book.forEachOrderAt(bidSide, price, visitor);
+    }
+
+    @Override
+    public int getBidDepth() {
+        return book.getBidDepth();
+    }
+
+    @Override
+    public int getOfferDepth() {
+        return book.getOfferDepth();
+    }
+
+    @Override
+    public IOrder getBestBid() {
+        return book.getBestBid();
+    }
+
+    @Override
+    public IOrder getBestOffer() {
+        return book.getBestOffer();
+    }
+
+    @Override
+    public BookDepth getDepth() {
+        return book.getDepth();
+    }
+
+    /**
+     * Empty the book and discard the journal with it, so that a restart does not bring the old orders back.
+     */
+    @Override
+    public void reset() {
+        journal.truncate();
+        book.reset();
+    }
+}
@@ -0,0 +1,88 @@
+package clob;
+
+/**
+ * Aggregated depth kept by a consumer of a {@link MarketDataFeed}, built from its updates and refreshes alone.
+ * Updates are applied in sequence; on a gap the book stops applying them and waits for the next refresh to
+ * resynchronise, so it never shows levels that are known to be wrong. The levels are kept in a {@link BookDepth}.
+ */
+public class L2Book implements L2Handler {
+    private final BookDepth depth = new BookDepth();
+    private long lastSequence;
+    private boolean synchronised = true;
+    private boolean refreshing;
+
+    @Override
+    public void onLevelUpdate(long sequence, byte action, boolean bidSide, long price, long visibleQty, int orderCount) {
+        if (!synchronised || refreshing) {
+            return;
+        }
+        if (sequence != lastSequence + 1) {
+            synchronised = false;
+            return;
+        }
+        lastSequence = sequence;
+        if (action == DELETE) {
+            depth.setLevel(bidSide, price, 0, 0, 0);
+        } else {
+            depth.setLevel(bidSide, price, visibleQty, 0, orderCount);
+        }
+    }
+
+    @Override
+    public void onRefreshStart(long sequence) {
+        refreshing = true;
+        depth.clear();
+        lastSequence = sequence;
+    }
+
+    @Override
+    public void onRefreshLevel(boolean bidSide, long price, long visibleQty, int orderCount) {
+        depth.setLevel(bidSide, price, visibleQty, 0, orderCount);
+    }
+
+    @Override
+    public void onRefreshEnd(long sequence) {
+        refreshing = false;
+        synchronised = true;
+    }
+
+    /**
+     * @return false after a gap in the updates, until the next refresh has been applied
+     */
+    public boolean isSynchronised() {
+        return synchronised;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public boolean hasLevel(boolean bidSide, long price) {
+        return depth.hasLevel(bidSide, price);
+    }
+
+    /**
+     * @return the visible quantity at the price, 0 if there is no such level
+     */
+    public long getVisibleQty(boolean bidSide, long price) {
+        return depth.getVisibleQty(bidSide, price);
+    }
+
+    public int getOrderCount(boolean bidSide, long price) {
+        return depth.getOrderCount(bidSide, price);
+    }
+
+    /**
+     * @return the number of price levels on one side
+     */
+    public int getLevelCount(boolean bidSide) {
+        return depth.getLevelCount(bidSide);
+    }
+
+    /**
+     * @return the best bid or offer price; only meaningful if the side has a level
+     */
+    public long getBestPrice(boolean bidSide) {
+        return depth.getBestPrice(bidSide);
+    }
+}
@@ -0,0 +1,28 @@
+package clob;
+
+/**
+ * Consumer of the aggregated depth published by a {@link MarketDataFeed}. Updates carry consecutive sequence
+ * numbers; a full refresh is tagged with the sequence number of the last update it includes, so a consumer that
+ * has missed updates can rebuild from the next refresh and carry on with the updates after it.
+ */
+public interface L2Handler {
+    byte ADD = 'A';
+    byte CHANGE = 'C';
+    byte DELETE = 'D';
+
+    /**
+     * @param action {@link #ADD} for a new level, {@link #CHANGE} for a new quantity or order count of an existing
+     *               level, {@link #DELETE} for a level that has no orders left, with quantity and count 0
+     */
+    void onLevelUpdate(long sequence, byte action, boolean bidSide, long price, long visibleQty, int orderCount);
+
+    /**
+     * A full refresh follows: every level of both sides through {@link #onRefreshLevel}, bids best first and then
+     * offers best first, closed by {@link #onRefreshEnd}.
+     */
+    void onRefreshStart(long sequence);
+
+    void onRefreshLevel(boolean bidSide, long price, long visibleQty, int orderCount);
+
+    void onRefreshEnd(long sequence);
+}
@@ -0,0 +1,531 @@
+package clob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static clob.OrderStore.NULL_SLOT;
+
+/**
+ * Limit order book keyed directly by price. Each side keeps its levels in a {@link PriceLadder}, each level holding
+ * a FIFO queue of the orders resting at that price. Levels near the market sit in the ladder's dense window, which
+ * follows the mid as orders arrive, and far away levels in its sparse part. The best bid and best offer are tracked
+ * as levels and the ladder finds the next best price once a level empties. Emptied levels are pooled for reuse.
+ *
+ * Inserting an order, looking up the best price and removing a filled order from the head of a level are O(1).
+ * Resting orders are also indexed by uid, so cancelling or amending an order does not search the levels either.
+ *
+ * Resting orders live in an {@link OrderStore} rather than as the {@link IOrder} objects they arrived as: an order
+ * that rests is copied into a pooled slot, and the levels and the uid index refer to slots. The submitted object
+ * is updated with the fills it takes while aggressive but not with later ones; query the book instead, whose
+ * methods return {@link OrderStore.OrderView}s of the resting orders.
+ */
+public class LadderLimitOrderBook implements ILimitOrderBook {
+    private final PriceLadder<PriceLevel> bidLevels;
+    private final PriceLadder<PriceLevel> offerLevels;
+    private final OrderStore store = new OrderStore();
+    private final IntIntHashMap slotsByUid = new IntIntHashMap(NULL_SLOT);
+    private PriceLevel bestBid;
+    private PriceLevel bestOffer;
+    private PriceLevel freeLevels;
+    private int bidDepth;
+    private int offerDepth;
+    private final OrderBookListener listener;
+    private final TradeBuffer scratchTrades = new TradeBuffer();
+    private BookDepth depth;
+    private boolean batching;
+
+    public LadderLimitOrderBook() {
+        this(OrderBookListener.NO_OP);
+    }
+
+    public LadderLimitOrderBook(OrderBookListener listener) {
+        this(listener, PriceLadder.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of ticks per side held in the dense window around the mid, a power of two
+     */
+    public LadderLimitOrderBook(OrderBookListener listener, int windowSize) {
+        this.listener = listener;
+        this.bidLevels = new PriceLadder<>(windowSize);
+        this.offerLevels = new PriceLadder<>(windowSize);
+    }
+
+    @Override
+    public List<Trade> newOrder(IOrder newOrder) {
+        scratchTrades.clear();
+        newOrder(newOrder, scratchTrades);
+        return scratchTrades.toTrades(0);
+    }
+
+    @Override
+    public void newOrder(IOrder newOrder, TradeBuffer trades) {
+        listener.onOrderAccepted(newOrder);
+        int firstTrade = trades.size();
+        TimeInForce timeInForce = newOrder.getTimeInForce();
+        if (timeInForce == TimeInForce.FILL_OR_KILL
+                && !getDepth().canFill(newOrder.isBuy(), newOrder.getPrice(), newOrder.getRemainingQty())) {
+            listener.onOrderExpired(newOrder.getUid(), newOrder.getRemainingQty());
+            bookChanged();
+            return;
+        }
+        int remainingQty = match(newOrder.isBuy(), newOrder.getUid(), newOrder.getPrice(), newOrder.getRemainingQty(),
+                newOrder.isMarketOrder(), trades);
+        for (int i = firstTrade; i < trades.size(); i++) {
+            newOrder.fill(trades.getPrice(i), trades.getTradedQty(i));
+        }
+
+        if (remainingQty > 0) {
+            if (timeInForce != TimeInForce.GOOD_TILL_CANCEL) {
+                listener.onOrderExpired(newOrder.getUid(), remainingQty);
+            } else {
+                if (newOrder instanceof IcebergOrder) {
+                    ((IcebergOrder) newOrder).refreshPeak();
+                }
+                addToBook(store.allocate(newOrder.getUid(), newOrder.isBuy(), newOrder.getPrice(), remainingQty, newOrder.getPeakSize()));
+            }
+        }
+        publish(trades, firstTrade);
+    }
+
+    @Override
+    public void newOrders(List<? extends IOrder> batch, TradeBuffer trades) {
+        batching = true;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                newOrder(batch.get(i), trades);
+            }
+        } finally {
+            batching = false;
+        }
+        listener.onBookChanged(this);
+    }
+
+    @Override
+    public boolean cancelOrder(int uid) {
+        int slot = slotsByUid.remove(uid);
+        if (slot == NULL_SLOT) {
+            return false;
+        }
+        removeFromBook(slot);
+        store.free(slot);
+        listener.onBookChanged(this);
+        return true;
+    }
+
+    @Override
+    public List<Trade> amendOrder(int uid, int newQty, long newPrice) {
+        if (newQty <= 0) {
+            throw new IllegalArgumentException("amended quantity must be positive: " + newQty);
+        }
+        int slot = slotsByUid.get(uid);
+        if (slot == NULL_SLOT) {
+            return null;
+        }
+        if (newPrice == store.getPrice(slot) && newQty <= store.getRemainingQty(slot)) {
+            PriceLevel level = levelOf(slot);
+            int revealedBefore = store.getRevealedQty(slot);
+            level.totalQty += newQty - store.getRemainingQty(slot);
+            store.amend(slot, newQty);
+            level.visibleQty += store.getRevealedQty(slot) - revealedBefore;
+            levelChanged(level, store.isBuy(slot));
+            listener.onBookChanged(this);
+            return new ArrayList<>();
+        }
+
+        // re-enter the order from its own slot, which is out of the book while it matches
+        slotsByUid.remove(uid);
+        removeFromBook(slot);
+        scratchTrades.clear();
+        int remainingQty = match(store.isBuy(slot), uid, newPrice, newQty, false, scratchTrades);
+        if (remainingQty > 0) {
+            store.reprice(slot, newPrice, remainingQty);
+            addToBook(slot);
+        } else {
+            store.free(slot);
+        }
+        publish(scratchTrades, 0);
+        return scratchTrades.toTrades(0);
+    }
+
+    @Override
+    public void restoreOrder(char buySellIndicator, int uid, long price, int remainingQty, int peakSize, int revealedQty) {
+        int slot = store.allocate(uid, buySellIndicator == 'B', price, remainingQty, peakSize);
+        store.setRevealedQty(slot, revealedQty);
+        addToBook(slot);
+    }
+
+    private void publish(TradeBuffer trades, int firstTrade) {
+        for (int i = firstTrade; i < trades.size(); i++) {
+            listener.onTrade(trades.getBuyOrderId(i), trades.getSellOrderId(i), trades.getPrice(i), trades.getTradedQty(i));
+        }
+        bookChanged();
+    }
+
+    /**
+     * Tell the listener an event is complete, unless it is part of a batch, which is reported once at its end.
+     */
+    private void bookChanged() {
+        if (!batching) {
+            listener.onBookChanged(this);
+        }
+    }
+
+    /**
+     * Match an incoming order, given as primitives, against the opposite side of the book.
+     *
+     * @param market true for a {@link MarketOrder}, whose price is only a bound and never a trade price
+     * @return the quantity left over once the crossing levels are exhausted
+     */
+    private int match(boolean buy, int uid, long price, int qty, boolean market, TradeBuffer trades) {
+        if (buy) {
+            while (qty > 0 && bestOffer != null && bestOffer.price <= price) {
+                PriceLevel level = bestOffer;
+                qty = matchLevel(level, true, uid, market ? level.price : price, qty, trades);
+                if (level.isEmpty()) {
+                    listener.onLevelSwept(false, level.price);
+                    bestOffer = offerLevels.higher(level.price);
+                    releaseLevel(offerLevels, level);
+                }
+            }
+        } else {
+            while (qty > 0 && bestBid != null && bestBid.price >= price) {
+                PriceLevel level = bestBid;
+                qty = matchLevel(level, false, uid, price, qty, trades);
+                if (level.isEmpty()) {
+                    listener.onLevelSwept(true, level.price);
+                    bestBid = bidLevels.lower(level.price);
+                    releaseLevel(bidLevels, level);
+                }
+            }
+        }
+        return qty;
+    }
+
+    /**
+     * Match the new order against the queue of a single price level. Resting orders trade up to their revealed
+     * quantity; an iceberg whose revealed peak is used up is replenished and moves to the back of the queue.
+     * Trades are priced at the buy order's limit, as in {@link LimitOrderBook}, or at the level for a market buy.
+     *
+     * @return the new order's remaining quantity
+     */
+    private int matchLevel(PriceLevel level, boolean buy, int uid, long price, int qty, TradeBuffer trades) {
+        while (qty > 0 && !level.isEmpty()) {
+            int slot = level.head;
+            int tradedQty = Math.min(qty, store.getRevealedQty(slot));
+            qty -= tradedQty;
+            if (buy) {
+                trades.add(uid, store.getUid(slot), price, tradedQty);
+            } else {
+                trades.add(store.getUid(slot), uid, store.getPrice(slot), tradedQty);
+            }
+
+            int revealedBefore = store.getRevealedQty(slot);
+            boolean replenished = store.fill(slot, tradedQty);
+            level.visibleQty += store.getRevealedQty(slot) - revealedBefore;
+            level.totalQty -= tradedQty;
+            if (store.getRemainingQty(slot) == 0) {
+                unlink(level, slot);
+                slotsByUid.remove(store.getUid(slot));
+                store.free(slot);
+                if (buy) {
+                    offerDepth--;
+                } else {
+                    bidDepth--;
+                }
+            } else if (replenished) {
+                listener.onIcebergReplenished(store.getUid(slot));
+                unlink(level, slot);
+                linkLast(level, slot);
+            }
+        }
+        levelChanged(level, !buy);
+        return qty;
+    }
+
+    private void addToBook(int slot) {
+        long price = store.getPrice(slot);
+        slotsByUid.put(store.getUid(slot), slot);
+        recentre(price);
+        if (store.isBuy(slot)) {
+            PriceLevel level = levelAt(bidLevels, price);
+            linkLast(level, slot);
+            levelChanged(level, true);
+            if (bestBid == null || price > bestBid.price) {
+                bestBid = level;
+            }
+            bidDepth++;
+        } else {
+            PriceLevel level = levelAt(offerLevels, price);
+            linkLast(level, slot);
+            levelChanged(level, false);
+            if (bestOffer == null || price < bestOffer.price) {
+                bestOffer = level;
+            }
+            offerDepth++;
+        }
+    }
+
+    private void removeFromBook(int slot) {
+        long price = store.getPrice(slot);
+        if (store.isBuy(slot)) {
+            PriceLevel level = bidLevels.get(price);
+            unlink(level, slot);
+            levelChanged(level, true);
+            bidDepth--;
+            if (level.isEmpty()) {
+                if (level == bestBid) {
+                    bestBid = bidLevels.lower(price);
+                }
+                releaseLevel(bidLevels, level);
+            }
+        } else {
+            PriceLevel level = offerLevels.get(price);
+            unlink(level, slot);
+            levelChanged(level, false);
+            offerDepth--;
+            if (level.isEmpty()) {
+                if (level == bestOffer) {
+                    bestOffer = offerLevels.higher(price);
+                }
+                releaseLevel(offerLevels, level);
+            }
+        }
+    }
+
+    /**
+     * Keep the dense windows of both ladders around the market: the mid once both sides are quoted, otherwise the
+     * best price of the quoted side or the price of the order about to rest.
+     */
+    private void recentre(long price) {
+        long centre;
+        if (bestBid != null && bestOffer != null) {
+            // overflow free floor of the average
+            centre = (bestBid.price >> 1) + (bestOffer.price >> 1) + (bestBid.price & bestOffer.price & 1);
+        } else if (bestBid != null) {
+            centre = bestBid.price;
+        } else if (bestOffer != null) {
+            centre = bestOffer.price;
+        } else {
+            centre = price;
+        }
+        bidLevels.recentre(centre);
+        offerLevels.recentre(centre);
+    }
+
+    private PriceLevel levelOf(int slot) {
+        long price = store.getPrice(slot);
+        return store.isBuy(slot) ? bidLevels.get(price) : offerLevels.get(price);
+    }
+
+    private void levelChanged(PriceLevel level, boolean bidSide) {
+        if (depth != null) {
+            recordDepth(level, bidSide);
+        }
+        listener.onLevelChanged(bidSide, level.price, level.visibleQty, level.orderCount);
+    }
+
+    private void recordDepth(PriceLevel level, boolean bidSide) {
+        depth.setLevel(bidSide, level.price, level.visibleQty, level.getHiddenQty(), level.orderCount);
+    }
+
+    private void linkLast(PriceLevel level, int slot) {
+        store.setPrev(slot, level.tail);
+        store.setNext(slot, NULL_SLOT);
+        if (level.tail == NULL_SLOT) {
+            level.head = slot;
+        } else {
+            store.setNext(level.tail, slot);
+        }
+        level.tail = slot;
+        level.orderCount++;
+        level.visibleQty += store.getRevealedQty(slot);
+        level.totalQty += store.getRemainingQty(slot);
+    }
+
+    private void unlink(PriceLevel level, int slot) {
+        int prev = store.getPrev(slot);
+        int next = store.getNext(slot);
+        if (prev == NULL_SLOT) {
+            level.head = next;
+        } else {
+            store.setNext(prev, next);
+        }
+        if (next == NULL_SLOT) {
+            level.tail = prev;
+        } else {
+            store.setPrev(next, prev);
+        }
+        level.orderCount--;
+        level.visibleQty -= store.getRevealedQty(slot);
+        level.totalQty -= store.getRemainingQty(slot);
+    }
+
+    private PriceLevel levelAt(PriceLadder<PriceLevel> levels, long price) {
+        PriceLevel level = levels.get(price);
+        if (level == null) {
+            if (freeLevels == null) {
+                level = new PriceLevel(price);
+            } else {
+                level = freeLevels;
+                freeLevels = level.nextFree;
+                level.nextFree = null;
+                level.price = price;
+            }
+            levels.put(level);
+        }
+        return level;
+    }
+
+    /**
+     * Take an empty level out of its ladder and keep it for the next new price.
+     */
+    private void releaseLevel(PriceLadder<PriceLevel> levels, PriceLevel level) {
+        levels.remove(level.price);
+        level.clear();
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+
+    @Override
+    public List<IOrder> getBidsByPriceTime() {
+        List<IOrder> bids = new ArrayList<>(bidDepth);
+        for (PriceLevel level = bestBid; level != null; level = bidLevels.lower(level.price)) {
+            copyTo(level, bids);
+        }
+        return bids;
+    }
+
+    @Override
+    public List<IOrder> getOffersByPriceTime() {
+        List<IOrder> offers = new ArrayList<>(offerDepth);
+        for (PriceLevel level = bestOffer; level != null; level = offerLevels.higher(level.price)) {
+            copyTo(level, offers);
+        }
+        return offers;
+    }
+
+    private void copyTo(PriceLevel level, List<IOrder> orders) {
+        for (int slot = level.head; slot != NULL_SLOT; slot = store.getNext(slot)) {
+            orders.add(store.view(slot));
+        }
+    }
+
+    @Override
+    public void forEachOrderAt(boolean bidSide, long price, LevelVisitor visitor) {
+        PriceLevel level = (bidSide ? bidLevels : offerLevels).get(price);
+        if (level == null) {
+            return;
+        }
+        for (int slot = level.head; slot != NULL_SLOT; slot = store.getNext(slot)) {
+            visitor.visit(store.getUid(slot), price, store.getRemainingQty(slot), store.getRevealedQty(slot));
+        }
+    }
+
+    @Override
+    public int getBidDepth() {
+        return bidDepth;
+    }
+
+    @Override
+    public int getOfferDepth() {
+        return offerDepth;
+    }
+
+    @Override
+    public IOrder getBestBid() {
+        return bestBid == null ? null : store.view(bestBid.head);
+    }
+
+    @Override
+    public IOrder getBestOffer() {
+        return bestOffer == null ? null : store.view(bestOffer.head);
+    }
+
+    @Override
+    public BookDepth getDepth() {
+        if (depth == null) {
+            depth = new BookDepth();
+            for (PriceLevel level = bidLevels.first(); level != null; level = bidLevels.higher(level.price)) {
+                recordDepth(level, true);
+            }
+            for (PriceLevel level = offerLevels.first(); level != null; level = offerLevels.higher(level.price)) {
+                recordDepth(level, false);
+            }
+        }
+        return depth;
+    }
+
+    @Override
+    public void reset() {
+        clearLevels(bidLevels, true);
+        clearLevels(offerLevels, false);
+        slotsByUid.clear();
+        store.clear();
+        bestBid = null;
+        bestOffer = null;
+        bidDepth = 0;
+        offerDepth = 0;
+    }
+
+    private void clearLevels(PriceLadder<PriceLevel> levels, boolean bidSide) {
+        for (PriceLevel level = levels.first(); level != null; level = levels.first()) {
+            level.clear();
+            levelChanged(level, bidSide);
+            releaseLevel(levels, level);
+        }
+    }
+
+    /**
+     * FIFO queue of the orders resting at one price. The queue is a doubly linked list threaded through the
+     * prev/next links of the {@link OrderStore} slots, so the level itself only holds its two ends.
+     */
+    public static class PriceLevel implements PriceLadder.Level {
+        private long price;
+        private int head = NULL_SLOT;
+        private int tail = NULL_SLOT;
+        private int orderCount;
+        private long visibleQty;
+        private long totalQty;
+        private PriceLevel nextFree;
+
+        public PriceLevel(long price) {
+            this.price = price;
+        }
+
+        @Override
+        public long getPrice() {
+            return price;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        /**
+         * @return the sum of the revealed quantities of the level's orders
+         */
+        public long getVisibleQty() {
+            return visibleQty;
+        }
+
+        /**
+         * @return the part of the level's remaining quantity that icebergs keep out of sight
+         */
+        public long getHiddenQty() {
+            return totalQty - visibleQty;
+        }
+
+        public boolean isEmpty() {
+            return head == NULL_SLOT;
+        }
+
+        void clear() {
+            head = NULL_SLOT;
+            tail = NULL_SLOT;
+            orderCount = 0;
+            visibleQty = 0;
+            totalQty = 0;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package clob;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values, e.g. latencies in nanoseconds, in the manner of HdrHistogram. Values
+ * below 128 are counted exactly; above that every power of two is split into 64 buckets, so a recorded value is
+ * off by less than 1.6%. The buckets cover the whole positive long range in a fixed array, so recording neither
+ * allocates nor resizes.
+ *
+ * One thread records; any thread may read. Counts are published with ordered writes, so a reader sees every value
+ * recorded before the ones it sees, possibly missing the latest few.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value; negative values are recorded as 0. Only one thread may record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = bucketIndex(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        sum.lazySet(sum.get() + value);
+        if (value < min.get()) {
+            min.lazySet(value);
+        }
+        if (value > max.get()) {
+            max.lazySet(value);
+        }
+        totalCount.lazySet(totalCount.get() + 1);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @return the largest value counted in the bucket, i.e. the value a percentile is reported as
+     */
+    static long highestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the smallest recorded value, 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return totalCount.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value at or below which the given percentage of recorded values fall, to bucket precision
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                return Math.min(highestValueInBucket(index), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget every recorded value. Only the recording thread may reset.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts.lazySet(index, 0);
+        }
+        sum.lazySet(0);
+        min.lazySet(Long.MAX_VALUE);
+        max.lazySet(0);
+        totalCount.lazySet(0);
+    }
+
+    /**
+     * Append count, mean and the usual percentiles, scaling values by {@code divisor}, e.g. 1000 for microseconds
+     * from nanoseconds.
+     */
+    public void appendSummary(StringBuilder sb, double divisor) {
+        sb.append("count=").append(getCount())
+                .append(" mean=").append(format(getMean() / divisor))
+                .append(" min=").append(format(getMin() / divisor))
+                .append(" p50=").append(format(getValueAtPercentile(50) / divisor))
+                .append(" p99=").append(format(getValueAtPercentile(99) / divisor))
+                .append(" p99.9=").append(format(getValueAtPercentile(99.9) / divisor))
+                .append(" p99.99=").append(format(getValueAtPercentile(99.99) / divisor))
+                .append(" max=").append(format(getMax() / divisor));
+    }
+
+    private static String format(double value) {
+        return String.format("%.3f", value);
+    }
+}
@@ -1,24 +1,29 @@
 package clob;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class LimitOrder implements IOrder {
     private final char buySellIndicator;
     private final int uid;
-    private final short price;
-    private final int qty;
+    private long price;
+    private int qty;
     private int hiddenQty;
     private int remainingQty;
-    private final List<Trade> trades = new ArrayList<>();
+    private int filledQty;
+    private int fillCount;
+    private long lastFillPrice;
+    private final TimeInForce timeInForce;
+
+    public LimitOrder(char buySellIndicator, int uid, long price, int qty) {
+        this(buySellIndicator, uid, price, qty, TimeInForce.GOOD_TILL_CANCEL);
+    }
 
-    public LimitOrder(char buySellIndicator, int uid, short price, int qty) {
+    public LimitOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
 
         this.buySellIndicator = buySellIndicator;
         this.uid = uid;
         this.price = price;
         this.qty = qty;
         this.remainingQty = qty;
+        this.timeInForce = timeInForce;
     }
 
     public char getBuySellIndicator() {
@@ -29,7 +34,7 @@ public class LimitOrder implements IOrder {
         return uid;
     }
 
-    public short getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -49,6 +54,11 @@ public class LimitOrder implements IOrder {
         return true;
     }
 
+    @Override
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
     public boolean isFilled() {
         return remainingQty == 0;
     }
@@ -63,11 +73,38 @@ public class LimitOrder implements IOrder {
     }
 
     public void executedTrade(Trade trade) {
-        this.trades.add(trade);
-        if (trade.getTradedQty() > remainingQty) {
-            System.out.println(String.format("traded quantity [%s] exceeds remaining quantity [%s] of order!", trade.getTradedQty(), remainingQty));
+        fill(trade.getPrice(), trade.getTradedQty());
+    }
+
+    public void fill(long price, int tradedQty) {
+        if (tradedQty > remainingQty) {
+            System.out.println(String.format("traded quantity [%s] exceeds remaining quantity [%s] of order!", tradedQty, remainingQty));
         }
-        this.remainingQty -= trade.getTradedQty();
+        this.remainingQty -= tradedQty;
+        this.filledQty += tradedQty;
+        this.fillCount++;
+        this.lastFillPrice = price;
+    }
+
+    public void amend(int newQty, long newPrice) {
+        this.qty += newQty - remainingQty;
+        this.remainingQty = newQty;
+        this.price = newPrice;
+    }
+
+    public int getFilledQty() {
+        return filledQty;
+    }
+
+    public int getFillCount() {
+        return fillCount;
+    }
+
+    /**
+     * @return the price of the most recent fill, only meaningful once {@link #getFillCount()} is positive
+     */
+    public long getLastFillPrice() {
+        return lastFillPrice;
     }
 
     @Override
@@ -78,7 +115,8 @@ public class LimitOrder implements IOrder {
                 ", price=" + price +
                 ", qty=" + qty +
                 ", remainingQty=" + remainingQty +
-                ", trades=" + trades +
+                ", filledQty=" + filledQty +
+                ", fillCount=" + fillCount +
                 '}';
     }
 }
@@ -1,101 +1,328 @@
 package clob;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Predicate;
-
-import static clob.DisplayUtil.displayBook;
-import static clob.DisplayUtil.displayTrades;
 
 public class LimitOrderBook implements ILimitOrderBook {
+    private static final int RESTING = 0;
+    private static final int FILLED = 1;
+    private static final int REPLENISHED = 2;
+
     private final List<IOrder> offerByPriceTime;
     private final List<IOrder> bidsByPriceTime;
+    private final IntObjectHashMap<IOrder> ordersByUid = new IntObjectHashMap<>();
+    private final OrderBookListener listener;
+    private final TradeBuffer scratchTrades = new TradeBuffer();
+    private long[] touchedPrices = new long[16];
+    private int touchedCount;
+    private BookDepth depth;
+    private boolean batching;
+    private IOrder[] levelQueue = new IOrder[16];
 
     public LimitOrderBook() {
+        this(OrderBookListener.NO_OP);
+    }
+
+    public LimitOrderBook(OrderBookListener listener) {
+        this.listener = listener;
         bidsByPriceTime = new ArrayList<>();
         offerByPriceTime = new ArrayList<>();
     }
 
     @Override
     public List<Trade> newOrder(IOrder newOrder) {
-        return processOrder(newOrder);
+        scratchTrades.clear();
+        newOrder(newOrder, scratchTrades);
+        return scratchTrades.toTrades(0);
     }
 
-    private List<Trade> processOrder(IOrder newOrder) {
-        List<Trade> trades;
-        if (newOrder.isBuy()) {
-            trades = matchOrders(offerByPriceTime, newOrder, order -> newOrder.getPrice() >= order.getPrice());
-        } else {
-            trades = matchOrders(bidsByPriceTime, newOrder, order -> newOrder.getPrice() <= order.getPrice());
+    @Override
+    public void newOrder(IOrder newOrder, TradeBuffer trades) {
+        listener.onOrderAccepted(newOrder);
+        processOrder(newOrder, trades);
+    }
+
+    @Override
+    public void newOrders(List<? extends IOrder> batch, TradeBuffer trades) {
+        batching = true;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                newOrder(batch.get(i), trades);
+            }
+        } finally {
+            batching = false;
         }
+        listener.onBookChanged(this);
+    }
 
-        displayTrades(trades);
-        displayBook(this);
-        return trades;
+    @Override
+    public boolean cancelOrder(int uid) {
+        IOrder order = ordersByUid.remove(uid);
+        if (order == null) {
+            return false;
+        }
+        removeFromBook(order);
+        listener.onBookChanged(this);
+        return true;
     }
 
-    private void updateOrderBook(List<IOrder> book, List<IOrder> matched, IOrder newOrder) {
-        if (newOrder.getRemainingQty() > 0) {
-            addToBook(newOrder);
+    @Override
+    public List<Trade> amendOrder(int uid, int newQty, long newPrice) {
+        if (newQty <= 0) {
+            throw new IllegalArgumentException("amended quantity must be positive: " + newQty);
+        }
+        IOrder order = ordersByUid.get(uid);
+        if (order == null) {
+            return null;
+        }
+        if (newPrice == order.getPrice() && newQty <= order.getRemainingQty()) {
+            order.amend(newQty, newPrice);
+            levelChanged(order.isBuy(), newPrice);
+            listener.onBookChanged(this);
+            return new ArrayList<>();
         }
 
-        for (int i = 0; i < matched.size(); i++) {
-            IOrder order = matched.get(i);
-            if (order.isFilled()) {
-                book.remove(0);
-            }
+        ordersByUid.remove(uid);
+        removeFromBook(order);
+        order.amend(newQty, newPrice);
+        scratchTrades.clear();
+        processOrder(order, scratchTrades);
+        return scratchTrades.toTrades(0);
+    }
+
+    @Override
+    public void restoreOrder(char buySellIndicator, int uid, long price, int remainingQty, int peakSize, int revealedQty) {
+        IOrder order = peakSize > 0 ?
+                new IcebergOrder(buySellIndicator, uid, price, remainingQty, peakSize, revealedQty) :
+                new LimitOrder(buySellIndicator, uid, price, remainingQty);
+        List<IOrder> book = order.isBuy() ? bidsByPriceTime : offerByPriceTime;
+        IOrder last = book.isEmpty() ? null : book.get(book.size() - 1);
+        // a snapshot arrives in price-time order, so appending is the common case
+        if (last == null || (order.isBuy() ? last.getPrice() >= price : last.getPrice() <= price)) {
+            ordersByUid.put(uid, order);
+            book.add(order);
+            levelChanged(order.isBuy(), price);
+        } else {
+            addToBook(order);
         }
     }
 
-    protected List<Trade> matchOrders(List<IOrder> book, IOrder newOrder, Predicate<IOrder> predicate) {
-        List<IOrder> matched = new ArrayList<>();
-        List<Trade> trades = new ArrayList<>();
-        List<IOrder> subBook = new ArrayList<>();
-        IOrder prevOrder = null;
+    private void processOrder(IOrder newOrder, TradeBuffer trades) {
+        int firstTrade = trades.size();
+        touchedCount = 0;
+        if (newOrder.getTimeInForce() == TimeInForce.FILL_OR_KILL
+                && !getDepth().canFill(newOrder.isBuy(), newOrder.getPrice(), newOrder.getRemainingQty())) {
+            listener.onOrderExpired(newOrder.getUid(), newOrder.getRemainingQty());
+        } else if (newOrder.isBuy()) {
+            matchOrders(offerByPriceTime, newOrder, trades);
+        } else {
+            matchOrders(bidsByPriceTime, newOrder, trades);
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            levelChanged(!newOrder.isBuy(), touchedPrices[i]);
+        }
 
-        for (IOrder order : book) {
-            if (predicate.test(order) && newOrder.getRemainingQty() > 0) {
-                // order is: 1. matched 2. iceberg 3. has remaining qty
-                if (order.isIcebergOrder() && order.getRemainingQty() > 0) {
-                    subBook.add(order);
-                }
-                if (!subBook.isEmpty() && priceWorse(order, prevOrder)) {
-                    trades.addAll(matchOrders(book, newOrder, predicate));
-                    continue;
+        for (int i = firstTrade; i < trades.size(); i++) {
+            listener.onTrade(trades.getBuyOrderId(i), trades.getSellOrderId(i), trades.getPrice(i), trades.getTradedQty(i));
+        }
+        if (!batching) {
+            listener.onBookChanged(this);
+        }
+    }
+
+    /**
+     * Sweep the book one price level at a time with indexed access and primitive state only, appending fills to
+     * the caller's buffer, so that matching allocates nothing once the book's lists have reached their working size.
+     * Whatever is left of the new order is then added to its own side, unless it is an immediate order.
+     */
+    protected void matchOrders(List<IOrder> book, IOrder newOrder, TradeBuffer trades) {
+        int removed = 0;
+        while (newOrder.getRemainingQty() > 0 && removed < book.size() && crosses(newOrder, book.get(removed))) {
+            removed += matchLevel(book, removed, newOrder, trades);
+        }
+        removeHead(book, removed);
+        if (newOrder.getRemainingQty() > 0 && newOrder.getTimeInForce() != TimeInForce.GOOD_TILL_CANCEL) {
+            listener.onOrderExpired(newOrder.getUid(), newOrder.getRemainingQty());
+        } else if (newOrder.getRemainingQty() > 0) {
+            if (newOrder instanceof IcebergOrder) {
+                ((IcebergOrder) newOrder).refreshPeak();
+            }
+            addToBook(newOrder);
+        }
+    }
+
+    /**
+     * Match the new order against the level starting at the given index, walking it in place in time priority.
+     * Resting orders trade up to their revealed quantity; an iceberg whose revealed peak is used up is replenished
+     * and queued behind the level, so icebergs are cycled round-robin until the level or the new order is
+     * exhausted, as in {@link LadderLimitOrderBook}. Only the rotated icebergs are queued, in a ring over a scratch
+     * array, so the work is bounded by the number of fills; the orders the new order never reached are only moved
+     * up when rotated icebergs have to go behind them.
+     *
+     * @return the number of orders that left the level; their slots are left at its head, which the caller cuts off
+     * the head of the book in one go
+     */
+    private int matchLevel(List<IOrder> book, int start, IOrder newOrder, TradeBuffer trades) {
+        long price = book.get(start).getPrice();
+        touch(price);
+        IOrder[] queue = levelQueue;
+        int tail = 0;
+        int idx = start;
+        boolean walked = true;
+        while (idx < book.size() && book.get(idx).getPrice() == price) {
+            if (newOrder.getRemainingQty() == 0) {
+                walked = false;
+                break;
+            }
+            IOrder order = book.get(idx);
+            int outcome = trade(order, newOrder, price, trades);
+            if (outcome == RESTING) {
+                walked = false;
+                break;
+            }
+            if (outcome == REPLENISHED) {
+                if (tail == queue.length) {
+                    queue = levelQueue = Arrays.copyOf(queue, tail << 1);
                 }
+                queue[tail++] = order;
+            }
+            idx++;
+        }
 
-                matched.add(order);
-                trades.add(executeTrade(newOrder, order));
+        // with the whole level walked, the rotated icebergs are all that is left of it
+        int head = 0;
+        int mask = queue.length - 1;
+        while (walked && head < tail && newOrder.getRemainingQty() > 0) {
+            IOrder order = queue[head & mask];
+            int outcome = trade(order, newOrder, price, trades);
+            if (outcome == RESTING) {
+                break;
+            }
+            head++;
+            if (outcome == REPLENISHED) {
+                queue[tail++ & mask] = order;
+            }
+        }
 
-                prevOrder = order;
+        int survivors = tail - head;
+        if (survivors > 0) {
+            int end = idx;
+            for (; end < book.size() && book.get(end).getPrice() == price; end++) {
+                book.set(end - survivors, book.get(end));
+            }
+            for (int i = 0; i < survivors; i++) {
+                book.set(end - survivors + i, queue[(head + i) & mask]);
             }
+        } else if (walked) {
+            listener.onLevelSwept(!newOrder.isBuy(), price);
+        }
+        Arrays.fill(queue, 0, Math.min(tail, queue.length), null);
+        return idx - start - survivors;
+    }
+
+    /**
+     * Trade the new order against one resting order, at the buyer's limit price.
+     *
+     * @return {@link #FILLED} if the resting order is done, {@link #REPLENISHED} if it is an iceberg whose revealed
+     * peak was used up and replenished, otherwise {@link #RESTING}
+     */
+    private int trade(IOrder order, IOrder newOrder, long levelPrice, TradeBuffer trades) {
+        int revealedBefore = order.getRevealedQty();
+        int tradedQty = Math.min(newOrder.getRemainingQty(), revealedBefore);
+        IOrder buyOrder = newOrder.isBuy() ? newOrder : order;
+        IOrder sellOrder = newOrder.isBuy() ? order : newOrder;
+        // a market buy has no price of its own, so it trades at the level
+        long tradePrice = buyOrder.isMarketOrder() ? levelPrice : buyOrder.getPrice();
+        trades.add(buyOrder.getUid(), sellOrder.getUid(), tradePrice, tradedQty);
+        newOrder.fill(tradePrice, tradedQty);
+        order.fill(tradePrice, tradedQty);
+
+        if (order.isFilled()) {
+            ordersByUid.remove(order.getUid());
+            return FILLED;
+        }
+        if (tradedQty == revealedBefore) {
+            // only an iceberg has quantity left once its revealed quantity is used up
+            if (order instanceof IcebergOrder) {
+                ((IcebergOrder) order).refreshPeak();
+            }
+            listener.onIcebergReplenished(order.getUid());
+            return REPLENISHED;
+        }
+        return RESTING;
+    }
+
+    /**
+     * Drop the first count orders, shifting the rest down once; unlike subList().clear() this allocates nothing.
+     */
+    private static void removeHead(List<IOrder> book, int count) {
+        if (count == 0) {
+            return;
+        }
+        int size = book.size();
+        for (int idx = count; idx < size; idx++) {
+            book.set(idx - count, book.get(idx));
+        }
+        for (int idx = size - 1; idx >= size - count; idx--) {
+            book.remove(idx);
+        }
+    }
+
+    private void touch(long price) {
+        if (touchedCount > 0 && touchedPrices[touchedCount - 1] == price) {
+            return;
         }
-        if (newOrder.isIcebergOrder()) {
-            ((IcebergOrder) newOrder).refreshPeak(trades);
+        if (touchedCount == touchedPrices.length) {
+            touchedPrices = Arrays.copyOf(touchedPrices, touchedCount << 1);
         }
-        updateOrderBook(book, matched, newOrder);
-        return trades;
+        touchedPrices[touchedCount++] = price;
     }
 
-    private boolean priceWorse(IOrder order, IOrder prevOrder) {
-        if(prevOrder == null) return false;
+    /**
+     * Report the aggregate of one level to the listener. Walks the level, so it is skipped without a listener.
+     */
+    private void levelChanged(boolean buySide, long price) {
+        if (listener == OrderBookListener.NO_OP && depth == null) {
+            return;
+        }
+        List<IOrder> book = buySide ? bidsByPriceTime : offerByPriceTime;
+        long visibleQty = 0;
+        long totalQty = 0;
+        int orderCount = 0;
+        for (int idx = levelStart(book, buySide, price); idx < book.size() && book.get(idx).getPrice() == price; idx++) {
+            visibleQty += book.get(idx).getRevealedQty();
+            totalQty += book.get(idx).getRemainingQty();
+            orderCount++;
+        }
+        if (depth != null) {
+            depth.setLevel(buySide, price, visibleQty, totalQty - visibleQty, orderCount);
+        }
+        listener.onLevelChanged(buySide, price, visibleQty, orderCount);
+    }
 
-        if(order.isBuy()) {
-            return order.getPrice() < prevOrder.getPrice();
+    private static boolean crosses(IOrder newOrder, IOrder order) {
+        if (newOrder.isBuy()) {
+            return newOrder.getPrice() >= order.getPrice();
         } else {
-            return order.getPrice() > prevOrder.getPrice();
+            return newOrder.getPrice() <= order.getPrice();
         }
     }
 
     private void addToBook(IOrder order) {
+        ordersByUid.put(order.getUid(), order);
         if (order.isBuy()) {
             addToBids(order);
         } else {
             addToOffers(order);
         }
+        levelChanged(order.isBuy(), order.getPrice());
     }
 
     private int addToBids(IOrder order) {
@@ -110,33 +337,57 @@ public class LimitOrderBook implements ILimitOrderBook {
         return index;
     }
 
-    private Trade executeTrade(IOrder order1, IOrder order2) {
-        if (order1.isBuy() && order2.isSell()) {
-            return doExecuteTrade(order1, order2);
-        } else if (order2.isBuy() && order1.isSell()) {
-            return doExecuteTrade(order2, order1);
+    /**
+     * Locate the order by binary searching for the start of its price level and then walking that level only.
+     */
+    private void removeFromBook(IOrder order) {
+        List<IOrder> book = order.isBuy() ? bidsByPriceTime : offerByPriceTime;
+        for (int idx = levelStart(book, order.isBuy(), order.getPrice()); idx < book.size(); idx++) {
+            if (book.get(idx) == order) {
+                book.remove(idx);
+                levelChanged(order.isBuy(), order.getPrice());
+                return;
+            }
         }
-
-        return null;
     }
 
-    private Trade doExecuteTrade(IOrder buyOrder, IOrder sellOrder) {
-//        int tradedQty = Math.min(buyOrder.getRemainingQty(), sellOrder.getRemainingQty());
-        int tradedQty = Math.min(buyOrder.getRevealedQty(), sellOrder.getRevealedQty());
-        Trade trade = new Trade(buyOrder.getUid(), sellOrder.getUid(), buyOrder.getPrice(), tradedQty);
-        buyOrder.executedTrade(trade);
-        sellOrder.executedTrade(trade);
-        return trade;
+    /**
+     * @return the index of the first order at the price, or of the first worse order if there is none
+     */
+    private static int levelStart(List<IOrder> book, boolean buySide, long price) {
+        int low = 0;
+        int high = book.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = book.get(mid).getPrice();
+            if (buySide ? midPrice > price : midPrice < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
+    @Override
     public List<IOrder> getBidsByPriceTime() {
         return bidsByPriceTime;
     }
 
+    @Override
     public List<IOrder> getOffersByPriceTime() {
         return offerByPriceTime;
     }
 
+    @Override
+    public void forEachOrderAt(boolean bidSide, long price, LevelVisitor visitor) {
+        List<IOrder> book = bidSide ? bidsByPriceTime : offerByPriceTime;
+        for (int idx = levelStart(book, bidSide, price); idx < book.size() && book.get(idx).getPrice() == price; idx++) {
+            IOrder order = book.get(idx);
+            visitor.visit(order.getUid(), price, order.getRemainingQty(), order.getRevealedQty());
+        }
+    }
+
     /**
      * Find the index at which to place the new offer. Offers sorted from lowest to highest.
      * 3 4 4   6      offers
@@ -144,7 +395,7 @@ public class LimitOrderBook implements ILimitOrderBook {
      *
      * @return If the same price already exists return the index of the last occurrence (time preference)
      */
-    public static int insertOfferPriceIndex(List<IOrder> book, int price) {
+    public static int insertOfferPriceIndex(List<IOrder> book, long price) {
         for (int idx = 0; idx < book.size(); idx++) {
             IOrder order = book.get(idx);
             if (price < order.getPrice()) {
@@ -161,7 +412,7 @@ public class LimitOrderBook implements ILimitOrderBook {
      *
      * @return If the same price already exists return the index of the last occurrence (time preference)
      */
-    public static int insertBidPriceIndex(List<IOrder> book, int price) {
+    public static int insertBidPriceIndex(List<IOrder> book, long price) {
         for (int idx = 0; idx < book.size(); idx++) {
             IOrder order = book.get(idx);
             if (price > order.getPrice()) {
@@ -171,19 +422,63 @@ public class LimitOrderBook implements ILimitOrderBook {
         return book.size();
     }
 
+    @Override
     public int getBidDepth() {
         return bidsByPriceTime.size();
     }
 
+    @Override
     public int getOfferDepth() {
         return offerByPriceTime.size();
     }
 
+    @Override
+    public BookDepth getDepth() {
+        if (depth == null) {
+            depth = new BookDepth();
+            recordDepth(true, bidsByPriceTime);
+            recordDepth(false, offerByPriceTime);
+        }
+        return depth;
+    }
+
+    private void recordDepth(boolean buySide, List<IOrder> book) {
+        int idx = 0;
+        while (idx < book.size()) {
+            long price = book.get(idx).getPrice();
+            long visibleQty = 0;
+            long totalQty = 0;
+            int orderCount = 0;
+            for (; idx < book.size() && book.get(idx).getPrice() == price; idx++) {
+                visibleQty += book.get(idx).getRevealedQty();
+                totalQty += book.get(idx).getRemainingQty();
+                orderCount++;
+            }
+            depth.setLevel(buySide, price, visibleQty, totalQty - visibleQty, orderCount);
+        }
+    }
+
+    @Override
     public void reset() {
+        if (depth != null) {
+            depth.clear();
+        }
+        removeLevels(true, bidsByPriceTime);
+        removeLevels(false, offerByPriceTime);
         bidsByPriceTime.clear();
         offerByPriceTime.clear();
+        ordersByUid.clear();
     }
 
+    private void removeLevels(boolean buySide, List<IOrder> book) {
+        for (int idx = 0; idx < book.size(); idx++) {
+            if (idx == 0 || book.get(idx).getPrice() != book.get(idx - 1).getPrice()) {
+                listener.onLevelChanged(buySide, book.get(idx).getPrice(), 0, 0);
+            }
+        }
+    }
+
+    @Override
     public IOrder getBestBid() {
         if (!bidsByPriceTime.isEmpty())
             return bidsByPriceTime.get(0);
@@ -191,6 +486,7 @@ public class LimitOrderBook implements ILimitOrderBook {
         return null;
     }
 
+    @Override
     public IOrder getBestOffer() {
         if (!offerByPriceTime.isEmpty())
             return offerByPriceTime.get(0);
@@ -198,18 +494,152 @@ public class LimitOrderBook implements ILimitOrderBook {
         return null;
     }
 
-    public static void main(String[] args) {
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        ILimitOrderBook book = new LimitOrderBook();
+    /**
+     * Reads orders as text lines from stdin, or as {@link OrderMessage}s from a file given as {@code --binary <file>}.
+     * With {@code --journal <file>} every order is journalled before it is matched, and the book is first rebuilt
+     * from whatever the journal already holds. With {@code --snapshot <file>} as well, the book is loaded from the
+     * snapshot and only the journal tail after it is replayed; a new snapshot is written once the input ends.
+     * {@code --pipeline <busy-spin|yielding|blocking>} runs decoding, journalling, matching and printing trades on
+     * separate threads through an {@link OrderPipeline}; the book is then not re-rendered after every event.
+     * {@code --metrics <seconds>} prints {@link EngineMetrics} to stderr at that interval and when the input ends.
+     * {@code --tick-size <decimal>} reads text prices as decimals in that tick size rather than as whole ticks.
+     * {@code --display-interval <millis>}, {@code --display-events <n>} and {@code --display-levels <n>} show the book
+     * through a {@link ConflatedBookRenderer} at most that often and limited to that many levels per side, rather
+     * than re-rendering it after every event; the book is then also shown in pipeline mode.
+     */
+    public static void main(String[] args) throws IOException {
+        String binaryFile = null;
+        String journalFile = null;
+        String snapshotFile = null;
+        String waitStrategy = null;
+        long metricsIntervalMillis = 0;
+        TickSize tickSize = TickSize.ONE;
+        long displayIntervalMillis = -1;
+        int displayEvents = -1;
+        int displayLevels = -1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--binary".equals(args[i])) {
+                binaryFile = args[i + 1];
+            } else if ("--journal".equals(args[i])) {
+                journalFile = args[i + 1];
+            } else if ("--snapshot".equals(args[i])) {
+                snapshotFile = args[i + 1];
+            } else if ("--pipeline".equals(args[i])) {
+                waitStrategy = args[i + 1];
+            } else if ("--metrics".equals(args[i])) {
+                metricsIntervalMillis = Long.parseLong(args[i + 1]) * 1000;
+            } else if ("--tick-size".equals(args[i])) {
+                tickSize = TickSize.parse(args[i + 1]);
+            } else if ("--display-interval".equals(args[i])) {
+                displayIntervalMillis = Long.parseLong(args[i + 1]);
+            } else if ("--display-events".equals(args[i])) {
+                displayEvents = Integer.parseInt(args[i + 1]);
+            } else if ("--display-levels".equals(args[i])) {
+                displayLevels = Integer.parseInt(args[i + 1]);
+            }
+        }
 
-        while (true) {
-            try {
-                String input = br.readLine();
-                String[] fields = input.split(",");
-                IOrder order = IOrder.parse(fields);
-                book.newOrder(order);
-            } catch (IOException e) {
-                e.printStackTrace();
+        boolean conflated = displayIntervalMillis >= 0 || displayEvents >= 0 || displayLevels >= 0;
+        ConsoleOrderBookListener console = new ConsoleOrderBookListener(System.out, !conflated);
+        OrderBookListener bookListener = waitStrategy == null ? console : OrderBookListener.NO_OP;
+        ConflatedBookRenderer renderer = null;
+        if (conflated) {
+            renderer = new ConflatedBookRenderer(System.out, Math.max(0, displayIntervalMillis),
+                    Math.max(0, displayEvents), Math.max(0, displayLevels), bookListener);
+            bookListener = renderer;
+        }
+        EngineMetrics metrics = null;
+        MetricsReporter reporter = null;
+        if (metricsIntervalMillis > 0) {
+            metrics = new EngineMetrics(bookListener);
+            bookListener = metrics;
+            reporter = new MetricsReporter(metrics, System.err, metricsIntervalMillis);
+        }
+        ILimitOrderBook book = new LimitOrderBook(bookListener);
+        JournaledLimitOrderBook journaledBook = null;
+        if (journalFile != null) {
+            journaledBook = new JournaledLimitOrderBook(book, new EventJournal(Paths.get(journalFile), SyncPolicy.BATCH));
+            console.setMuted(true);
+            if (renderer != null) {
+                renderer.setMuted(true);
+            }
+            long start = System.nanoTime();
+            long snapshotSequence = 0;
+            if (snapshotFile != null && Files.exists(Paths.get(snapshotFile))) {
+                snapshotSequence = BookSnapshot.load(Paths.get(snapshotFile), book);
+            }
+            long events = journaledBook.recover(snapshotSequence);
+            console.setMuted(false);
+            if (renderer != null) {
+                renderer.setMuted(false);
+                renderer.flush();
+            }
+            long nanos = Math.max(1, journaledBook.getLastReplayNanos());
+            System.err.println(String.format("loaded snapshot at sequence %d, replayed %d events in %.3f ms (%.0f events/s), restart took %.3f ms",
+                    snapshotSequence, events, nanos / 1e6, events * 1e9 / nanos, (System.nanoTime() - start) / 1e6));
+        }
+
+        OrderPipeline pipeline = null;
+        TradeBuffer trades = null;
+        OrderHandler handler;
+        if (waitStrategy != null) {
+            pipeline = new OrderPipeline(64 * 1024, WaitStrategy.named(waitStrategy), book,
+                    journaledBook == null ? null : journaledBook.getJournal(), console, metrics);
+            pipeline.start();
+            handler = pipeline;
+        } else {
+            trades = new TradeBuffer();
+            handler = new BookOrderHandler(journaledBook == null ? book : journaledBook, trades, false);
+        }
+
+        if (reporter != null) {
+            reporter.start();
+        }
+        if (renderer != null) {
+            renderer.start();
+        }
+        // the renderer may only be flushed from the matching thread, which the pipeline takes over; between reads it
+        // still keeps to its limits, and close() shows whatever the last read left unrendered
+        ConflatedBookRenderer flushedRenderer = pipeline == null ? renderer : null;
+        try {
+            if (binaryFile != null) {
+                try (FileChannel channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ)) {
+                    BinaryOrderDecoder decoder = new BinaryOrderDecoder(channel);
+                    while (decoder.read(handler) >= 0) {
+                        if (trades != null) {
+                            trades.clear();
+                        }
+                        if (flushedRenderer != null) {
+                            flushedRenderer.flushIfDue();
+                        }
+                    }
+                }
+            } else {
+                CsvOrderDecoder decoder = new CsvOrderDecoder(Channels.newChannel(System.in), 64 * 1024, tickSize);
+                while (decoder.read(handler) >= 0) {
+                    if (trades != null) {
+                        trades.clear();
+                    }
+                    if (flushedRenderer != null) {
+                        flushedRenderer.flushIfDue();
+                    }
+                }
+            }
+        } finally {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+            if (renderer != null) {
+                renderer.close();
+            }
+            if (journaledBook != null) {
+                if (snapshotFile != null) {
+                    journaledBook.snapshot(Paths.get(snapshotFile));
+                }
+                journaledBook.getJournal().close();
+            }
+            if (reporter != null) {
+                reporter.close();
             }
         }
     }
@@ -0,0 +1,187 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * Turns the level changes a book reports into an incremental L2 feed: per price level the visible quantity, where
+ * an iceberg only counts with its revealed peak, and the number of orders. Changes are collected while the book
+ * processes an event and published as one update per changed level when the event completes, so a sweep that
+ * takes several orders off a level yields a single update for it.
+ *
+ * The feed keeps its own copy of the published levels, which is what full refreshes are built from; neither
+ * updates nor refreshes look at the book. Refreshes are sent on request and, optionally, every so many events.
+ * Levels are kept per side in a {@link PriceLadder} and pooled once they are deleted, so publishing allocates
+ * nothing once the feed has seen its working number of levels.
+ */
+public class MarketDataFeed implements OrderBookListener {
+    private final L2Handler handler;
+    private final OrderBookListener delegate;
+    private final int refreshInterval;
+    private final PriceLadder<FeedLevel> bids = new PriceLadder<>();
+    private final PriceLadder<FeedLevel> offers = new PriceLadder<>();
+    private FeedLevel[] dirtyLevels = new FeedLevel[64];
+    private int dirtyCount;
+    private FeedLevel freeLevels;
+    private long sequence;
+    private int eventsSinceRefresh;
+
+    public MarketDataFeed(L2Handler handler) {
+        this(handler, OrderBookListener.NO_OP, 0);
+    }
+
+    /**
+     * @param refreshInterval send a full refresh after this many book events, 0 to only refresh on request
+     */
+    public MarketDataFeed(L2Handler handler, OrderBookListener delegate, int refreshInterval) {
+        this.handler = handler;
+        this.delegate = delegate;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        delegate.onOrderAccepted(order);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        FeedLevel level = levelAt(bidSide, price);
+        level.pendingQty = visibleQty;
+        level.pendingCount = orderCount;
+        if (!level.dirty) {
+            level.dirty = true;
+            if (dirtyCount == dirtyLevels.length) {
+                dirtyLevels = Arrays.copyOf(dirtyLevels, dirtyCount << 1);
+            }
+            dirtyLevels[dirtyCount++] = level;
+        }
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        delegate.onLevelSwept(bidSide, price);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        delegate.onIcebergReplenished(uid);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        delegate.onOrderExpired(uid, expiredQty);
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        publishChanges();
+        if (refreshInterval > 0 && ++eventsSinceRefresh >= refreshInterval) {
+            publishRefresh();
+        }
+        delegate.onBookChanged(book);
+    }
+
+    private void publishChanges() {
+        for (int i = 0; i < dirtyCount; i++) {
+            FeedLevel level = dirtyLevels[i];
+            dirtyLevels[i] = null;
+            level.dirty = false;
+            long qty = level.pendingQty;
+            int count = level.pendingCount;
+
+            if (count == 0) {
+                if (level.published) {
+                    level.published = false;
+                    handler.onLevelUpdate(++sequence, L2Handler.DELETE, level.bidSide, level.price, 0, 0);
+                }
+                releaseLevel(level);
+            } else if (!level.published) {
+                level.published = true;
+                level.publishedQty = qty;
+                level.publishedCount = count;
+                handler.onLevelUpdate(++sequence, L2Handler.ADD, level.bidSide, level.price, qty, count);
+            } else if (level.publishedQty != qty || level.publishedCount != count) {
+                level.publishedQty = qty;
+                level.publishedCount = count;
+                handler.onLevelUpdate(++sequence, L2Handler.CHANGE, level.bidSide, level.price, qty, count);
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    private FeedLevel levelAt(boolean bidSide, long price) {
+        PriceLadder<FeedLevel> levels = bidSide ? bids : offers;
+        FeedLevel level = levels.get(price);
+        if (level == null) {
+            level = freeLevels;
+            if (level == null) {
+                level = new FeedLevel();
+            } else {
+                freeLevels = level.nextFree;
+                level.nextFree = null;
+            }
+            level.bidSide = bidSide;
+            level.price = price;
+            // keep the dense window on the best level, or on the first one to arrive
+            FeedLevel best = bidSide ? levels.last() : levels.first();
+            levels.recentre(best == null ? price : best.price);
+            levels.put(level);
+        }
+        return level;
+    }
+
+    private void releaseLevel(FeedLevel level) {
+        (level.bidSide ? bids : offers).remove(level.price);
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+
+    /**
+     * Send every published level, tagged with the sequence number of the last update.
+     */
+    public void publishRefresh() {
+        eventsSinceRefresh = 0;
+        handler.onRefreshStart(sequence);
+        for (FeedLevel level = bids.last(); level != null; level = bids.lower(level.price)) {
+            if (level.published) {
+                handler.onRefreshLevel(true, level.price, level.publishedQty, level.publishedCount);
+            }
+        }
+        for (FeedLevel level = offers.first(); level != null; level = offers.higher(level.price)) {
+            if (level.published) {
+                handler.onRefreshLevel(false, level.price, level.publishedQty, level.publishedCount);
+            }
+        }
+        handler.onRefreshEnd(sequence);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * A price level as last published, together with the change pending for it while an event is processed.
+     */
+    private static class FeedLevel implements PriceLadder.Level {
+        private boolean bidSide;
+        private long price;
+        private long pendingQty;
+        private int pendingCount;
+        private boolean dirty;
+        private boolean published;
+        private long publishedQty;
+        private int publishedCount;
+        private FeedLevel nextFree;
+
+        @Override
+        public long getPrice() {
+            return price;
+        }
+    }
+}
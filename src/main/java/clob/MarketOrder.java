@@ -0,0 +1,36 @@
+package clob;
+
+/**
+ * Order without a limit price that takes the best prices the other side offers. It carries the most aggressive
+ * price there is, {@link Long#MAX_VALUE} for a buy and {@link Long#MIN_VALUE} for a sell, so it crosses every
+ * level, and that is also how market orders travel as primitives, e.g. in an {@link OrderMessage}. A market buy has
+ * no price of its own to trade at, so its trades are priced at the offers it takes.
+ *
+ * A market order never rests: it is immediate-or-cancel or fill-or-kill.
+ */
+public class MarketOrder extends LimitOrder {
+
+    public MarketOrder(char buySellIndicator, int uid, int qty, TimeInForce timeInForce) {
+        super(buySellIndicator, uid, marketPrice(buySellIndicator), qty, timeInForce);
+        if (timeInForce == TimeInForce.GOOD_TILL_CANCEL) {
+            throw new IllegalArgumentException("a market order cannot rest in the book");
+        }
+    }
+
+    /**
+     * @return the price a market order on this side carries
+     */
+    public static long marketPrice(char buySellIndicator) {
+        return buySellIndicator == 'B' ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    @Override
+    public boolean isLimitOrder() {
+        return false;
+    }
+
+    @Override
+    public boolean isMarketOrder() {
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package clob;
+
+import java.io.PrintStream;
+
+/**
+ * Prints a snapshot of {@link EngineMetrics} at a fixed interval from a daemon thread, and once more when closed.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final EngineMetrics metrics;
+    private final PrintStream out;
+    private final Thread thread;
+
+    public MetricsReporter(EngineMetrics metrics, PrintStream out, long intervalMillis) {
+        this.metrics = metrics;
+        this.out = out;
+        this.thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(intervalMillis);
+                    report();
+                }
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }, "metrics-reporter");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void report() {
+        out.println(metrics);
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        Threads.joinUninterruptibly(thread);
+        report();
+    }
+}
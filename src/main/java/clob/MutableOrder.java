@@ -0,0 +1,123 @@
+package clob;
+
+/**
+ * Reusable {@link IOrder} for feeding decoded messages into a book without creating an order per message. Only
+ * safe with a book that copies resting orders, such as {@link LadderLimitOrderBook}; {@link LimitOrderBook} keeps
+ * a reference to the order object itself.
+ */
+public class MutableOrder implements IOrder {
+    private char buySellIndicator;
+    private int uid;
+    private long price;
+    private int remainingQty;
+    private int peakSize;
+    private TimeInForce timeInForce = TimeInForce.GOOD_TILL_CANCEL;
+
+    public MutableOrder set(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        this.buySellIndicator = buySellIndicator;
+        this.uid = uid;
+        this.price = price;
+        this.remainingQty = qty;
+        this.peakSize = peakSize;
+        this.timeInForce = TimeInForce.GOOD_TILL_CANCEL;
+        return this;
+    }
+
+    /**
+     * Set up an immediate-or-cancel or fill-or-kill limit order, or a market order if the price is the
+     * {@link MarketOrder#marketPrice market price} of its side.
+     */
+    public MutableOrder set(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+        set(buySellIndicator, uid, price, qty, 0);
+        this.timeInForce = timeInForce;
+        return this;
+    }
+
+    @Override
+    public void executedTrade(Trade trade) {
+        fill(trade.getPrice(), trade.getTradedQty());
+    }
+
+    @Override
+    public void fill(long price, int tradedQty) {
+        remainingQty -= tradedQty;
+    }
+
+    @Override
+    public void amend(int newQty, long newPrice) {
+        remainingQty = newQty;
+        price = newPrice;
+    }
+
+    @Override
+    public boolean isFilled() {
+        return remainingQty == 0;
+    }
+
+    @Override
+    public boolean isBuy() {
+        return buySellIndicator == 'B';
+    }
+
+    @Override
+    public boolean isSell() {
+        return buySellIndicator == 'S';
+    }
+
+    @Override
+    public boolean isIcebergOrder() {
+        return peakSize > 0;
+    }
+
+    @Override
+    public boolean isLimitOrder() {
+        return peakSize == 0;
+    }
+
+    @Override
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    @Override
+    public boolean isMarketOrder() {
+        return timeInForce != TimeInForce.GOOD_TILL_CANCEL && price == MarketOrder.marketPrice(buySellIndicator);
+    }
+
+    @Override
+    public int getUid() {
+        return uid;
+    }
+
+    @Override
+    public long getPrice() {
+        return price;
+    }
+
+    @Override
+    public int getRemainingQty() {
+        return remainingQty;
+    }
+
+    @Override
+    public int getRevealedQty() {
+        return peakSize > 0 ? Math.min(peakSize, remainingQty) : remainingQty;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    @Override
+    public String toString() {
+        return "MutableOrder{" +
+                "buySellIndicator=" + buySellIndicator +
+                ", uid=" + uid +
+                ", price=" + price +
+                ", peakSize=" + peakSize +
+                ", timeInForce=" + timeInForce +
+                ", remainingQty=" + remainingQty +
+                '}';
+    }
+}
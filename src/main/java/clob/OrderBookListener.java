@@ -0,0 +1,57 @@
+package clob;
+
+/**
+ * Receives the events of an {@link ILimitOrderBook}. Callbacks run on the matching thread, inside newOrder,
+ * cancelOrder and amendOrder, so an implementation doing any real work should hand it off rather than block.
+ */
+public interface OrderBookListener {
+    OrderBookListener NO_OP = new OrderBookListener() {
+    };
+
+    /**
+     * An incoming order has been accepted by the book and is about to be matched.
+     */
+    default void onOrderAccepted(IOrder order) {
+    }
+
+    /**
+     * A fill between two orders, passed as primitives so that reporting it does not allocate a {@link Trade}.
+     */
+    default void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+    }
+
+    /**
+     * The aggregate of a price level has changed: its visible quantity, which counts only the revealed peak of an
+     * iceberg, or its number of orders. Called for every level an event touches, possibly more than once per level,
+     * before {@link #onBookChanged}; a level with no orders left has been removed.
+     */
+    default void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+    }
+
+    /**
+     * Matching has taken the last order off a price level.
+     *
+     * @param bidSide true if the level was a bid level, i.e. a sell order swept it
+     */
+    default void onLevelSwept(boolean bidSide, long price) {
+    }
+
+    /**
+     * Matching has used up the visible peak of a resting iceberg order and revealed the next one.
+     */
+    default void onIcebergReplenished(int uid) {
+    }
+
+    /**
+     * The part of an immediate-or-cancel or market order that could not be filled at once has been dropped rather
+     * than added to the book; for a fill-or-kill order that could not be filled in full, that is all of it.
+     */
+    default void onOrderExpired(int uid, int expiredQty) {
+    }
+
+    /**
+     * The book has finished processing an event and may have changed.
+     */
+    default void onBookChanged(ILimitOrderBook book) {
+    }
+}
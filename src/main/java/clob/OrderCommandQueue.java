@@ -0,0 +1,157 @@
+package clob;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded lock free queue of order entry commands for many producer threads and a single consumer thread. Commands
+ * are kept as primitives in preallocated parallel arrays, so queueing one creates no objects.
+ *
+ * Each slot carries a sequence number telling producers and the consumer whose turn it is: a producer claims a
+ * position with a CAS on the tail and publishes the slot by advancing its sequence number once the command is
+ * written, the consumer frees it by advancing the sequence number by the capacity.
+ */
+public class OrderCommandQueue {
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final byte[] types;
+    private final int[] instrumentIds;
+    private final char[] sides;
+    private final int[] uids;
+    private final long[] prices;
+    private final int[] qtys;
+    private final int[] peakSizes;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public OrderCommandQueue(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.types = new byte[this.capacity];
+        this.instrumentIds = new int[this.capacity];
+        this.sides = new char[this.capacity];
+        this.uids = new int[this.capacity];
+        this.prices = new long[this.capacity];
+        this.qtys = new int[this.capacity];
+        this.peakSizes = new int[this.capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean offerNewOrder(int instrumentId, char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        return offer(OrderMessage.NEW_ORDER, instrumentId, buySellIndicator, uid, price, qty, peakSize);
+    }
+
+    public boolean offerImmediateOrder(int instrumentId, char buySellIndicator, int uid, long price, int qty,
+                                       TimeInForce timeInForce) {
+        return offer(OrderMessage.newOrderType(timeInForce), instrumentId, buySellIndicator, uid, price, qty, 0);
+    }
+
+    public boolean offerCancelOrder(int instrumentId, int uid) {
+        return offer(OrderMessage.CANCEL_ORDER, instrumentId, (char) 0, uid, 0, 0, 0);
+    }
+
+    public boolean offerAmendOrder(int instrumentId, int uid, int newQty, long newPrice) {
+        return offer(OrderMessage.AMEND_ORDER, instrumentId, (char) 0, uid, newPrice, newQty, 0);
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    private boolean offer(byte type, int instrumentId, char side, int uid, long price, int qty, int peakSize) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+        }
+        types[index] = type;
+        instrumentIds[index] = instrumentId;
+        sides[index] = side;
+        uids[index] = uid;
+        prices[index] = price;
+        qtys[index] = qty;
+        peakSizes[index] = peakSize;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Hand up to {@code limit} queued commands, oldest first, to the handler of their instrument. Only the consumer
+     * thread may call this.
+     *
+     * @return the number of commands handed over
+     */
+    public int drain(IntFunction<OrderHandler> handlersByInstrument, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            byte type = types[index];
+            int instrumentId = instrumentIds[index];
+            char side = sides[index];
+            int uid = uids[index];
+            long price = prices[index];
+            int qty = qtys[index];
+            int peakSize = peakSizes[index];
+            // free the slot before handing the command over, so a handler that throws does not wedge the queue
+            sequences.lazySet(index, head + capacity);
+            head++;
+
+            OrderHandler handler = handlersByInstrument.apply(instrumentId);
+            switch (type) {
+                case OrderMessage.NEW_ORDER:
+                    handler.onNewOrder(side, uid, price, qty, peakSize);
+                    break;
+                case OrderMessage.NEW_IOC_ORDER:
+                case OrderMessage.NEW_FOK_ORDER:
+                    handler.onImmediateOrder(side, uid, price, qty, OrderMessage.timeInForce(type));
+                    break;
+                case OrderMessage.CANCEL_ORDER:
+                    handler.onCancelOrder(uid);
+                    break;
+                default:
+                    handler.onAmendOrder(uid, qty, price);
+                    break;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return the number of commands taken off the queue so far, including one whose handler threw; only the
+     * consumer thread may call this
+     */
+    public long getConsumedCount() {
+        return head;
+    }
+
+    /**
+     * @return true if nothing is queued; only exact when called by the consumer with the producers quiescent
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
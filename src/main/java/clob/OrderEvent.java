@@ -0,0 +1,95 @@
+package clob;
+
+/**
+ * Preallocated slot of an {@link OrderPipeline} ring. The decoder fills in the order entry command, the matcher
+ * appends its fills to the slot's own trade buffer and the publisher reads them from there; a slot is reused once
+ * every stage is done with it.
+ */
+public class OrderEvent {
+    public static final byte END_OF_STREAM = 0;
+
+    private byte type;
+    private char buySellIndicator;
+    private int uid;
+    private long price;
+    private int qty;
+    private int peakSize;
+    private final TradeBuffer trades = new TradeBuffer();
+    private long publishedNanos;
+
+    public void set(byte type, char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        this.type = type;
+        this.buySellIndicator = buySellIndicator;
+        this.uid = uid;
+        this.price = price;
+        this.qty = qty;
+        this.peakSize = peakSize;
+        trades.clear();
+    }
+
+    /**
+     * Hand the command to a handler as if it had just been decoded.
+     */
+    public void dispatch(OrderHandler handler) {
+        switch (type) {
+            case OrderMessage.NEW_ORDER:
+                handler.onNewOrder(buySellIndicator, uid, price, qty, peakSize);
+                break;
+            case OrderMessage.NEW_IOC_ORDER:
+            case OrderMessage.NEW_FOK_ORDER:
+                handler.onImmediateOrder(buySellIndicator, uid, price, qty, OrderMessage.timeInForce(type));
+                break;
+            case OrderMessage.CANCEL_ORDER:
+                handler.onCancelOrder(uid);
+                break;
+            case OrderMessage.AMEND_ORDER:
+                handler.onAmendOrder(uid, qty, price);
+                break;
+            default:
+                throw new IllegalStateException("cannot dispatch event type " + type);
+        }
+    }
+
+    /**
+     * @return one of the {@link OrderMessage} types, or {@link #END_OF_STREAM}
+     */
+    public byte getType() {
+        return type;
+    }
+
+    public char getBuySellIndicator() {
+        return buySellIndicator;
+    }
+
+    public int getUid() {
+        return uid;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    public TradeBuffer getTrades() {
+        return trades;
+    }
+
+    /**
+     * @return when the event was handed to the pipeline, as {@link System#nanoTime()}; only set when the pipeline
+     * records stage latencies
+     */
+    public long getPublishedNanos() {
+        return publishedNanos;
+    }
+
+    public void setPublishedNanos(long publishedNanos) {
+        this.publishedNanos = publishedNanos;
+    }
+}
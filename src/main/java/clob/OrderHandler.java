@@ -0,0 +1,24 @@
+package clob;
+
+/**
+ * Receives decoded order entry messages as primitives, so that decoding does not have to create an order object.
+ */
+public interface OrderHandler {
+    /**
+     * @param peakSize 0 for a limit order, otherwise the peak of an iceberg order
+     */
+    void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize);
+
+    /**
+     * A market, immediate-or-cancel or fill-or-kill order, which never rests in the book.
+     *
+     * @param price the limit, or the {@link MarketOrder#marketPrice market price} of the side for a market order
+     */
+    void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce);
+
+    default void onCancelOrder(int uid) {
+    }
+
+    default void onAmendOrder(int uid, int newQty, long newPrice) {
+    }
+}
@@ -0,0 +1,127 @@
+package clob;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed layout binary order entry message. Every message is {@link #LENGTH} bytes, little endian:
+ *
+ * <pre>
+ * offset  size  field
+ * 0       1     message type: 'N' new order, 'I' immediate-or-cancel and 'F' fill-or-kill new order, 'C' cancel,
+ *               'A' amend
+ * 1       1     'B' or 'S' (new order only)
+ * 2       2     reserved, zero
+ * 4       4     uid
+ * 8       4     quantity (new order and amend)
+ * 12      4     iceberg peak size, 0 for a limit order (good-till-cancel new order only)
+ * 16      8     price in ticks (new order and amend)
+ * </pre>
+ *
+ * Fields a message type does not use are written as zero. A market order is an immediate new order carrying the
+ * {@link MarketOrder#marketPrice market price} of its side.
+ */
+public class OrderMessage {
+    public static final int LENGTH = 24;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final byte NEW_ORDER = 'N';
+    public static final byte NEW_IOC_ORDER = 'I';
+    public static final byte NEW_FOK_ORDER = 'F';
+    public static final byte CANCEL_ORDER = 'C';
+    public static final byte AMEND_ORDER = 'A';
+
+    public static final int TYPE_OFFSET = 0;
+    public static final int SIDE_OFFSET = 1;
+    public static final int UID_OFFSET = 4;
+    public static final int QTY_OFFSET = 8;
+    public static final int PEAK_SIZE_OFFSET = 12;
+    public static final int PRICE_OFFSET = 16;
+
+    /**
+     * Write a new order message at the buffer's position and advance it. The buffer must be in {@link #BYTE_ORDER}.
+     */
+    public static void encodeNewOrder(ByteBuffer buffer, char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        encode(buffer, NEW_ORDER, (byte) buySellIndicator, uid, price, qty, peakSize);
+    }
+
+    public static void encodeImmediateOrder(ByteBuffer buffer, char buySellIndicator, int uid, long price, int qty,
+                                            TimeInForce timeInForce) {
+        encode(buffer, newOrderType(timeInForce), (byte) buySellIndicator, uid, price, qty, 0);
+    }
+
+    /**
+     * @return the type of a new order message for the time in force
+     */
+    public static byte newOrderType(TimeInForce timeInForce) {
+        switch (timeInForce) {
+            case IMMEDIATE_OR_CANCEL:
+                return NEW_IOC_ORDER;
+            case FILL_OR_KILL:
+                return NEW_FOK_ORDER;
+            default:
+                return NEW_ORDER;
+        }
+    }
+
+    /**
+     * @return the time in force of an immediate new order message type
+     */
+    public static TimeInForce timeInForce(byte type) {
+        return type == NEW_FOK_ORDER ? TimeInForce.FILL_OR_KILL : TimeInForce.IMMEDIATE_OR_CANCEL;
+    }
+
+    public static void encodeCancelOrder(ByteBuffer buffer, int uid) {
+        encode(buffer, CANCEL_ORDER, (byte) 0, uid, 0, 0, 0);
+    }
+
+    public static void encodeAmendOrder(ByteBuffer buffer, int uid, int newQty, long newPrice) {
+        encode(buffer, AMEND_ORDER, (byte) 0, uid, newPrice, newQty, 0);
+    }
+
+    private static void encode(ByteBuffer buffer, byte type, byte side, int uid, long price, int qty, int peakSize) {
+        int offset = buffer.position();
+        buffer.put(offset + TYPE_OFFSET, type);
+        buffer.put(offset + SIDE_OFFSET, side);
+        buffer.putShort(offset + SIDE_OFFSET + 1, (short) 0);
+        buffer.putInt(offset + UID_OFFSET, uid);
+        buffer.putInt(offset + QTY_OFFSET, qty);
+        buffer.putInt(offset + PEAK_SIZE_OFFSET, peakSize);
+        buffer.putLong(offset + PRICE_OFFSET, price);
+        buffer.position(offset + LENGTH);
+    }
+
+    /**
+     * Decode the message starting at an absolute offset in place, without moving the buffer's position.
+     */
+    public static void decode(ByteBuffer buffer, int offset, OrderHandler handler) {
+        byte type = buffer.get(offset + TYPE_OFFSET);
+        switch (type) {
+            case NEW_ORDER:
+                handler.onNewOrder((char) buffer.get(offset + SIDE_OFFSET),
+                        buffer.getInt(offset + UID_OFFSET),
+                        buffer.getLong(offset + PRICE_OFFSET),
+                        buffer.getInt(offset + QTY_OFFSET),
+                        buffer.getInt(offset + PEAK_SIZE_OFFSET));
+                break;
+            case NEW_IOC_ORDER:
+            case NEW_FOK_ORDER:
+                handler.onImmediateOrder((char) buffer.get(offset + SIDE_OFFSET),
+                        buffer.getInt(offset + UID_OFFSET),
+                        buffer.getLong(offset + PRICE_OFFSET),
+                        buffer.getInt(offset + QTY_OFFSET),
+                        timeInForce(type));
+                break;
+            case CANCEL_ORDER:
+                handler.onCancelOrder(buffer.getInt(offset + UID_OFFSET));
+                break;
+            case AMEND_ORDER:
+                handler.onAmendOrder(buffer.getInt(offset + UID_OFFSET),
+                        buffer.getInt(offset + QTY_OFFSET),
+                        buffer.getLong(offset + PRICE_OFFSET));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown message type " + type + " at offset " + offset);
+        }
+    }
+}
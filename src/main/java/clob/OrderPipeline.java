@@ -0,0 +1,226 @@
+package clob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs decoding, journalling, matching and publishing as separate stages on their own threads, connected by one
+ * ring of preallocated {@link OrderEvent}s in the style of the LMAX disruptor. The decoding thread feeds the
+ * pipeline as an {@link OrderHandler}; each following stage waits for the sequence of the stage before it and then
+ * handles every event available in one batch, so a slow journal or a slow output stream only holds back matching
+ * once the whole ring is full.
+ *
+ * The book belongs to the matching thread. Give it a listener that does not render the book, since that would
+ * run on the matching thread; trades reach the publishing listener's {@link OrderBookListener#onTrade} instead.
+ */
+public class OrderPipeline implements OrderHandler, AutoCloseable {
+    private final OrderEvent[] events;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final EngineMetrics metrics;
+    private long nextSequence;
+    private long cachedGatingSequence = -1;
+    private volatile Exception lastError;
+
+    /**
+     * @param ringSize  rounded up to a power of two
+     * @param journal   null to run without a journalling stage
+     * @param publisher receives the trades of every event, in order, on the publishing thread
+     */
+    public OrderPipeline(int ringSize, WaitStrategy waitStrategy, ILimitOrderBook book, EventJournal journal,
+                         OrderBookListener publisher) {
+        this(ringSize, waitStrategy, book, journal, publisher, null);
+    }
+
+    /**
+     * @param metrics null, or where to record for every stage the latency from an event entering the pipeline to
+     *                the stage having handled it, as {@code stage-<name>}
+     */
+    public OrderPipeline(int ringSize, WaitStrategy waitStrategy, ILimitOrderBook book, EventJournal journal,
+                         OrderBookListener publisher, EngineMetrics metrics) {
+        this.metrics = metrics;
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.events = new OrderEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new OrderEvent();
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+
+        AtomicLong dependency = cursor;
+        if (journal != null) {
+            dependency = addStage("journal", dependency, (event, endOfBatch) -> {
+                switch (event.getType()) {
+                    case OrderMessage.NEW_ORDER:
+                        journal.appendNewOrder(event.getBuySellIndicator(), event.getUid(), event.getPrice(),
+                                event.getQty(), event.getPeakSize());
+                        break;
+                    case OrderMessage.NEW_IOC_ORDER:
+                    case OrderMessage.NEW_FOK_ORDER:
+                        journal.appendImmediateOrder(event.getBuySellIndicator(), event.getUid(), event.getPrice(),
+                                event.getQty(), OrderMessage.timeInForce(event.getType()));
+                        break;
+                    case OrderMessage.CANCEL_ORDER:
+                        journal.appendCancelOrder(event.getUid());
+                        break;
+                    default:
+                        journal.appendAmendOrder(event.getUid(), event.getQty(), event.getPrice());
+                        break;
+                }
+                // group commit: one force per batch handed over by the decoder rather than per event
+                if (endOfBatch && journal.getSyncPolicy() == SyncPolicy.BATCH) {
+                    journal.sync();
+                }
+            });
+        }
+        BookOrderHandler matcher = new BookOrderHandler(book, null, book instanceof LadderLimitOrderBook);
+        dependency = addStage("match", dependency, (event, endOfBatch) -> {
+            matcher.setTrades(event.getTrades());
+            try {
+                event.dispatch(matcher);
+            } catch (RuntimeException e) {
+                if (metrics != null) {
+                    metrics.eventFailed();
+                }
+                throw e;
+            }
+        });
+        addStage("publish", dependency, (event, endOfBatch) -> {
+            TradeBuffer trades = event.getTrades();
+            for (int i = 0; i < trades.size(); i++) {
+                publisher.onTrade(trades.getBuyOrderId(i), trades.getSellOrderId(i), trades.getPrice(i), trades.getTradedQty(i));
+            }
+        });
+    }
+
+    private AtomicLong addStage(String name, AtomicLong dependency, EventHandler handler) {
+        Stage stage = new Stage(dependency, handler, metrics == null ? null : metrics.latency("stage-" + name));
+        stages.add(stage);
+        threads.add(new Thread(stage, "pipeline-" + name));
+        return stage.sequence;
+    }
+
+    public void start() {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    @Override
+    public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        claim().set(OrderMessage.NEW_ORDER, buySellIndicator, uid, price, qty, peakSize);
+        publish();
+    }
+
+    @Override
+    public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+        claim().set(OrderMessage.newOrderType(timeInForce), buySellIndicator, uid, price, qty, 0);
+        publish();
+    }
+
+    @Override
+    public void onCancelOrder(int uid) {
+        claim().set(OrderMessage.CANCEL_ORDER, (char) 0, uid, 0, 0, 0);
+        publish();
+    }
+
+    @Override
+    public void onAmendOrder(int uid, int newQty, long newPrice) {
+        claim().set(OrderMessage.AMEND_ORDER, (char) 0, uid, newPrice, newQty, 0);
+        publish();
+    }
+
+    /**
+     * Wait for the slot of the next sequence to be released by the last stage. Only the decoding thread calls this.
+     */
+    private OrderEvent claim() {
+        long wrapPoint = nextSequence - events.length;
+        if (wrapPoint > cachedGatingSequence) {
+            cachedGatingSequence = waitStrategy.waitFor(wrapPoint, stages.get(stages.size() - 1).sequence);
+        }
+        return events[(int) nextSequence & mask];
+    }
+
+    private void publish() {
+        if (metrics != null) {
+            events[(int) nextSequence & mask].setPublishedNanos(System.nanoTime());
+        }
+        cursor.lazySet(nextSequence++);
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * @return the sequence of the last event every stage has finished with
+     */
+    public long getCompletedSequence() {
+        return stages.get(stages.size() - 1).sequence.get();
+    }
+
+    /**
+     * @return the last exception a stage threw while handling an event, or null if there was none
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Send an end of stream marker through the pipeline and wait for every stage to handle the events before it.
+     */
+    @Override
+    public void close() {
+        claim().set(OrderEvent.END_OF_STREAM, (char) 0, 0, 0, 0, 0);
+        publish();
+        Threads.joinUninterruptibly(threads.toArray(new Thread[0]));
+    }
+
+    interface EventHandler {
+        void onEvent(OrderEvent event, boolean endOfBatch) throws Exception;
+    }
+
+    private class Stage implements Runnable {
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong dependency;
+        private final EventHandler handler;
+        private final LatencyHistogram latency;
+
+        private Stage(AtomicLong dependency, EventHandler handler, LatencyHistogram latency) {
+            this.dependency = dependency;
+            this.handler = handler;
+            this.latency = latency;
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            while (true) {
+                long available = waitStrategy.waitFor(next, dependency);
+                boolean endOfStream = false;
+                for (long s = next; s <= available; s++) {
+                    OrderEvent event = events[(int) s & mask];
+                    if (event.getType() == OrderEvent.END_OF_STREAM) {
+                        endOfStream = true;
+                        break;
+                    }
+                    try {
+                        handler.onEvent(event, s == available);
+                    } catch (Exception e) {
+                        lastError = e;
+                    }
+                    if (latency != null) {
+                        latency.record(System.nanoTime() - event.getPublishedNanos());
+                    }
+                }
+                sequence.lazySet(available);
+                waitStrategy.signalAll();
+                if (endOfStream) {
+                    return;
+                }
+                next = available + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package clob;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays a captured order flow through a book as fast as it will go, to measure throughput and latency on real flow
+ * and to check one book against another.
+ *
+ * The capture, a text file of order lines, a file of {@link OrderMessage}s or an {@link EventJournal}, is first
+ * loaded into memory as {@link OrderMessage}s, so the timed run neither parses nor reads from disk. Every message is
+ * then timed on its own into a {@link LatencyHistogram}, and the fills are collected in one {@link TradeBuffer} for
+ * comparison with a reference: the fills of another book, or trade lines as written by {@link #writeTrades}.
+ */
+public class OrderReplay {
+    public static final String LIST = "list";
+    public static final String LADDER = "ladder";
+
+    private final ByteBuffer messages;
+
+    /**
+     * @param messages {@link OrderMessage}s from position 0 to the limit, in {@link OrderMessage#BYTE_ORDER}
+     */
+    public OrderReplay(ByteBuffer messages) {
+        this.messages = messages;
+    }
+
+    public static OrderReplay loadCsv(Path path, TickSize tickSize) throws IOException {
+        MessageEncoder encoder = new MessageEncoder((int) Math.min(Integer.MAX_VALUE / 2, Files.size(path)));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            new CsvOrderDecoder(channel, 64 * 1024, tickSize).readAll(encoder);
+        }
+        return new OrderReplay(encoder.finish());
+    }
+
+    public static OrderReplay loadBinary(Path path) throws IOException {
+        MessageEncoder encoder = new MessageEncoder((int) Files.size(path));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            new BinaryOrderDecoder(channel).readAll(encoder);
+        }
+        return new OrderReplay(encoder.finish());
+    }
+
+    public static OrderReplay loadJournal(Path path) throws IOException {
+        try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+            long expectedBytes = journal.getLastSequence() * OrderMessage.LENGTH;
+            MessageEncoder encoder = new MessageEncoder((int) Math.min(Integer.MAX_VALUE / 2, expectedBytes));
+            journal.replay(encoder);
+            return new OrderReplay(encoder.finish());
+        }
+    }
+
+    public int getMessageCount() {
+        return messages.limit() / OrderMessage.LENGTH;
+    }
+
+    /**
+     * @return a new, empty book by name, {@value #LIST} or {@value #LADDER}
+     */
+    public static ILimitOrderBook newBook(String implementation) {
+        switch (implementation) {
+            case LIST:
+                return new LimitOrderBook();
+            case LADDER:
+                return new LadderLimitOrderBook();
+            default:
+                throw new IllegalArgumentException("unknown book implementation " + implementation);
+        }
+    }
+
+    /**
+     * Push every message through the book, which should be empty, timing each one.
+     *
+     * @param reuseOrders see {@link BookOrderHandler}; only for books that copy their resting orders
+     */
+    public Result run(ILimitOrderBook book, boolean reuseOrders) {
+        TradeBuffer trades = new TradeBuffer(Math.max(64, getMessageCount()));
+        LatencyHistogram latency = new LatencyHistogram();
+        BookOrderHandler handler = new BookOrderHandler(book, trades, reuseOrders);
+        int end = messages.limit();
+        long start = System.nanoTime();
+        long messageStart = start;
+        for (int offset = 0; offset < end; offset += OrderMessage.LENGTH) {
+            OrderMessage.decode(messages, offset, handler);
+            long messageEnd = System.nanoTime();
+            latency.record(messageEnd - messageStart);
+            messageStart = messageEnd;
+        }
+        return new Result(getMessageCount(), trades, latency, System.nanoTime() - start);
+    }
+
+    public Result run(String implementation) {
+        ILimitOrderBook book = newBook(implementation);
+        return run(book, book instanceof LadderLimitOrderBook);
+    }
+
+    /**
+     * Compare two trade streams fill by fill.
+     *
+     * @return the index of the first fill that differs, or -1 if the streams are the same
+     */
+    public static int diff(TradeBuffer expected, TradeBuffer actual) {
+        int common = Math.min(expected.size(), actual.size());
+        for (int i = 0; i < common; i++) {
+            if (expected.getBuyOrderId(i) != actual.getBuyOrderId(i)
+                    || expected.getSellOrderId(i) != actual.getSellOrderId(i)
+                    || expected.getPrice(i) != actual.getPrice(i)
+                    || expected.getTradedQty(i) != actual.getTradedQty(i)) {
+                return i;
+            }
+        }
+        return expected.size() == actual.size() ? -1 : common;
+    }
+
+    /**
+     * @return a description of the first difference between the streams, or null if they are the same
+     */
+    public static String describeDiff(TradeBuffer expected, TradeBuffer actual) {
+        int index = diff(expected, actual);
+        if (index < 0) {
+            return null;
+        }
+        return "trade streams differ at fill " + index + " of " + expected.size() + " expected, " + actual.size()
+                + " actual: expected " + (index < expected.size() ? expected.getTrade(index) : "none")
+                + ", actual " + (index < actual.size() ? actual.getTrade(index) : "none");
+    }
+
+    /**
+     * Write the fills one per line as {@code buyOrderId,sellOrderId,price,tradedQty}, the way the command line tool
+     * prints them.
+     */
+    public static void writeTrades(Path path, TradeBuffer trades) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteFormatter formatter = new ByteFormatter(channel, 64 * 1024);
+            for (int i = 0; i < trades.size(); i++) {
+                DisplayUtil.printTradeOn(formatter, trades.getBuyOrderId(i), trades.getSellOrderId(i),
+                        trades.getPrice(i), trades.getTradedQty(i));
+            }
+            formatter.flush();
+        }
+    }
+
+    /**
+     * Read trade lines as written by {@link #writeTrades}; blank lines are skipped.
+     */
+    public static TradeBuffer readTrades(Path path) throws IOException {
+        TradeBuffer trades = new TradeBuffer();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.trim().split(",");
+                if (fields.length != 4) {
+                    throw new IOException("line " + lineNumber + " is not a trade: " + line);
+                }
+                try {
+                    trades.add(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+                            Integer.parseInt(fields[3]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("line " + lineNumber + " is not a trade: " + line, e);
+                }
+            }
+        }
+        return trades;
+    }
+
+    /**
+     * Replays a capture given as {@code --csv <file>}, {@code --binary <file>} or {@code --journal <file>} through
+     * the book named by {@code --book <list|ladder>}, the ladder by default, and prints throughput and latency.
+     * {@code --runs <n>} repeats the replay on a fresh book, e.g. to let the JIT warm up.
+     * {@code --compare <list|ladder>} replays through a second book and {@code --reference <file>} reads trade
+     * lines; either way the fills are diffed and the tool exits with status 1 if they differ. {@code --trades <file>}
+     * writes the fills as a reference for later runs, {@code --tick-size <decimal>} reads text prices as decimals in
+     * that tick size.
+     */
+    public static void main(String[] args) throws IOException {
+        String csvFile = null;
+        String binaryFile = null;
+        String journalFile = null;
+        String implementation = LADDER;
+        String compareImplementation = null;
+        String referenceFile = null;
+        String tradesFile = null;
+        TickSize tickSize = TickSize.ONE;
+        int runs = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--csv".equals(args[i])) {
+                csvFile = args[i + 1];
+            } else if ("--binary".equals(args[i])) {
+                binaryFile = args[i + 1];
+            } else if ("--journal".equals(args[i])) {
+                journalFile = args[i + 1];
+            } else if ("--book".equals(args[i])) {
+                implementation = args[i + 1];
+            } else if ("--compare".equals(args[i])) {
+                compareImplementation = args[i + 1];
+            } else if ("--reference".equals(args[i])) {
+                referenceFile = args[i + 1];
+            } else if ("--trades".equals(args[i])) {
+                tradesFile = args[i + 1];
+            } else if ("--tick-size".equals(args[i])) {
+                tickSize = TickSize.parse(args[i + 1]);
+            } else if ("--runs".equals(args[i])) {
+                runs = Integer.parseInt(args[i + 1]);
+            }
+        }
+
+        long loadStart = System.nanoTime();
+        OrderReplay replay;
+        if (csvFile != null) {
+            replay = loadCsv(Paths.get(csvFile), tickSize);
+        } else if (binaryFile != null) {
+            replay = loadBinary(Paths.get(binaryFile));
+        } else if (journalFile != null) {
+            replay = loadJournal(Paths.get(journalFile));
+        } else {
+            System.err.println("usage: OrderReplay --csv|--binary|--journal <file> [--book list|ladder] [--runs n]"
+                    + " [--compare list|ladder] [--reference <trades>] [--trades <file>] [--tick-size <decimal>]");
+            System.exit(2);
+            return;
+        }
+        System.out.println(String.format("loaded %d messages in %.3f ms", replay.getMessageCount(),
+                (System.nanoTime() - loadStart) / 1e6));
+
+        Result result = null;
+        for (int run = 1; run <= Math.max(1, runs); run++) {
+            result = replay.run(implementation);
+            System.out.println(implementation + " run " + run + ": " + result);
+        }
+
+        if (tradesFile != null) {
+            writeTrades(Paths.get(tradesFile), result.getTrades());
+        }
+        String difference = null;
+        if (compareImplementation != null) {
+            Result reference = replay.run(compareImplementation);
+            System.out.println(compareImplementation + " reference: " + reference);
+            difference = describeDiff(reference.getTrades(), result.getTrades());
+        }
+        if (difference == null && referenceFile != null) {
+            difference = describeDiff(readTrades(Paths.get(referenceFile)), result.getTrades());
+        }
+        if (difference != null) {
+            System.out.println(difference);
+            System.exit(1);
+        } else if (compareImplementation != null || referenceFile != null) {
+            System.out.println("trade streams match, " + result.getTrades().size() + " fills");
+        }
+    }
+
+    /**
+     * The outcome of one replay.
+     */
+    public static class Result {
+        private final int messages;
+        private final TradeBuffer trades;
+        private final LatencyHistogram latency;
+        private final long elapsedNanos;
+
+        Result(int messages, TradeBuffer trades, LatencyHistogram latency, long elapsedNanos) {
+            this.messages = messages;
+            this.trades = trades;
+            this.latency = latency;
+            this.elapsedNanos = Math.max(1, elapsedNanos);
+        }
+
+        public int getMessages() {
+            return messages;
+        }
+
+        public TradeBuffer getTrades() {
+            return trades;
+        }
+
+        /**
+         * @return the time each message took to decode and match, in nanoseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getMessagesPerSecond() {
+            return messages * 1e9 / elapsedNanos;
+        }
+
+        public double getTradesPerSecond() {
+            return trades.size() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d messages, %d trades in %.3f ms, %.0f orders/s, %.0f trades/s, latency us ",
+                    messages, trades.size(), elapsedNanos / 1e6, getMessagesPerSecond(), getTradesPerSecond()));
+            latency.appendSummary(sb, 1000);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Appends every decoded message to a growing buffer.
+     */
+    private static class MessageEncoder implements OrderHandler {
+        private ByteBuffer buffer;
+
+        MessageEncoder(int expectedBytes) {
+            buffer = ByteBuffer.allocate(Math.max(OrderMessage.LENGTH * 1024, expectedBytes))
+                    .order(OrderMessage.BYTE_ORDER);
+        }
+
+        @Override
+        public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+            ensureRemaining();
+            OrderMessage.encodeNewOrder(buffer, buySellIndicator, uid, price, qty, peakSize);
+        }
+
+        @Override
+        public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+            ensureRemaining();
+            OrderMessage.encodeImmediateOrder(buffer, buySellIndicator, uid, price, qty, timeInForce);
+        }
+
+        @Override
+        public void onCancelOrder(int uid) {
+            ensureRemaining();
+            OrderMessage.encodeCancelOrder(buffer, uid);
+        }
+
+        @Override
+        public void onAmendOrder(int uid, int newQty, long newPrice) {
+            ensureRemaining();
+            OrderMessage.encodeAmendOrder(buffer, uid, newQty, newPrice);
+        }
+
+        private void ensureRemaining() {
+            if (buffer.remaining() < OrderMessage.LENGTH) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(OrderMessage.BYTE_ORDER);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        ByteBuffer finish() {
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * Pool of resting orders kept as parallel primitive arrays and addressed by slot index. Freed slots are chained
+ * through {@code nextSlots} into a free list and handed out again before the pool grows, so a book at its
+ * working size neither allocates nor leaves garbage behind.
+ *
+ * A slot also carries the prev/next links of the price level queue it sits in, which lets a book unlink an order
+ * from the middle of a queue in constant time.
+ */
+public class OrderStore {
+    public static final int NULL_SLOT = -1;
+
+    private int[] uids;
+    private boolean[] buys;
+    private long[] prices;
+    private int[] remainingQtys;
+    private int[] peakSizes;
+    private int[] revealedQtys;
+    private int[] prevSlots;
+    private int[] nextSlots;
+    private int freeHead = NULL_SLOT;
+    private int highWaterMark;
+    private int size;
+
+    public OrderStore() {
+        this(1024);
+    }
+
+    public OrderStore(int initialCapacity) {
+        uids = new int[initialCapacity];
+        buys = new boolean[initialCapacity];
+        prices = new long[initialCapacity];
+        remainingQtys = new int[initialCapacity];
+        peakSizes = new int[initialCapacity];
+        revealedQtys = new int[initialCapacity];
+        prevSlots = new int[initialCapacity];
+        nextSlots = new int[initialCapacity];
+    }
+
+    /**
+     * @param peakSize 0 for a plain limit order, otherwise the iceberg peak
+     * @return the slot now holding the order, not linked into any queue
+     */
+    public int allocate(int uid, boolean buy, long price, int remainingQty, int peakSize) {
+        int slot;
+        if (freeHead != NULL_SLOT) {
+            slot = freeHead;
+            freeHead = nextSlots[slot];
+        } else {
+            if (highWaterMark == uids.length) {
+                grow();
+            }
+            slot = highWaterMark++;
+        }
+        uids[slot] = uid;
+        buys[slot] = buy;
+        prices[slot] = price;
+        remainingQtys[slot] = remainingQty;
+        peakSizes[slot] = peakSize;
+        revealedQtys[slot] = peakSize > 0 ? Math.min(peakSize, remainingQty) : remainingQty;
+        prevSlots[slot] = NULL_SLOT;
+        nextSlots[slot] = NULL_SLOT;
+        size++;
+        return slot;
+    }
+
+    public void free(int slot) {
+        nextSlots[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    public void clear() {
+        freeHead = NULL_SLOT;
+        highWaterMark = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take a fill off the revealed quantity of a resting order. A limit order reveals all of its remaining
+     * quantity, so the revealed quantity only drops to zero with something left over for an iceberg whose peak
+     * has been used up; the next peak is revealed straight away.
+     *
+     * @return true if an iceberg peak was used up and replenished, i.e. the order loses its place in the queue
+     */
+    public boolean fill(int slot, int tradedQty) {
+        remainingQtys[slot] -= tradedQty;
+        revealedQtys[slot] -= tradedQty;
+        if (revealedQtys[slot] == 0 && remainingQtys[slot] > 0) {
+            revealedQtys[slot] = Math.min(peakSizes[slot], remainingQtys[slot]);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Set a new open quantity, keeping whatever part of it is already revealed.
+     */
+    public void amend(int slot, int newQty) {
+        remainingQtys[slot] = newQty;
+        revealedQtys[slot] = Math.min(revealedQtys[slot], newQty);
+    }
+
+    /**
+     * Move an order to a new price with a freshly revealed peak, as if it had just arrived.
+     */
+    public void reprice(int slot, long price, int remainingQty) {
+        prices[slot] = price;
+        remainingQtys[slot] = remainingQty;
+        revealedQtys[slot] = peakSizes[slot] > 0 ? Math.min(peakSizes[slot], remainingQty) : remainingQty;
+    }
+
+    public int getUid(int slot) {
+        return uids[slot];
+    }
+
+    public boolean isBuy(int slot) {
+        return buys[slot];
+    }
+
+    public long getPrice(int slot) {
+        return prices[slot];
+    }
+
+    public int getRemainingQty(int slot) {
+        return remainingQtys[slot];
+    }
+
+    public int getPeakSize(int slot) {
+        return peakSizes[slot];
+    }
+
+    public int getRevealedQty(int slot) {
+        return revealedQtys[slot];
+    }
+
+    public void setRevealedQty(int slot, int revealedQty) {
+        revealedQtys[slot] = revealedQty;
+    }
+
+    public int getPrev(int slot) {
+        return prevSlots[slot];
+    }
+
+    public int getNext(int slot) {
+        return nextSlots[slot];
+    }
+
+    public void setPrev(int slot, int prev) {
+        prevSlots[slot] = prev;
+    }
+
+    public void setNext(int slot, int next) {
+        nextSlots[slot] = next;
+    }
+
+    public IOrder view(int slot) {
+        return new OrderView(this).wrap(slot);
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, uids.length << 1);
+        uids = Arrays.copyOf(uids, capacity);
+        buys = Arrays.copyOf(buys, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        remainingQtys = Arrays.copyOf(remainingQtys, capacity);
+        peakSizes = Arrays.copyOf(peakSizes, capacity);
+        revealedQtys = Arrays.copyOf(revealedQtys, capacity);
+        prevSlots = Arrays.copyOf(prevSlots, capacity);
+        nextSlots = Arrays.copyOf(nextSlots, capacity);
+    }
+
+    /**
+     * Read only {@link IOrder} over one slot of the store. It reflects the slot, not the order, so it is only
+     * meaningful until that order leaves the book and the slot is reused; {@link #wrap(int)} re-points it.
+     */
+    public static class OrderView implements IOrder {
+        private final OrderStore store;
+        private int slot;
+
+        public OrderView(OrderStore store) {
+            this.store = store;
+        }
+
+        public OrderView wrap(int slot) {
+            this.slot = slot;
+            return this;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        @Override
+        public void executedTrade(Trade trade) {
+            throw new UnsupportedOperationException("resting orders are only changed by their book");
+        }
+
+        @Override
+        public void fill(long price, int tradedQty) {
+            throw new UnsupportedOperationException("resting orders are only changed by their book");
+        }
+
+        @Override
+        public void amend(int newQty, long newPrice) {
+            throw new UnsupportedOperationException("resting orders are only changed by their book");
+        }
+
+        @Override
+        public boolean isFilled() {
+            return store.getRemainingQty(slot) == 0;
+        }
+
+        @Override
+        public boolean isBuy() {
+            return store.isBuy(slot);
+        }
+
+        @Override
+        public boolean isSell() {
+            return !store.isBuy(slot);
+        }
+
+        @Override
+        public boolean isIcebergOrder() {
+            return store.getPeakSize(slot) > 0;
+        }
+
+        @Override
+        public boolean isLimitOrder() {
+            return store.getPeakSize(slot) == 0;
+        }
+
+        @Override
+        public int getUid() {
+            return store.getUid(slot);
+        }
+
+        @Override
+        public long getPrice() {
+            return store.getPrice(slot);
+        }
+
+        @Override
+        public int getRemainingQty() {
+            return store.getRemainingQty(slot);
+        }
+
+        @Override
+        public int getRevealedQty() {
+            return store.getRevealedQty(slot);
+        }
+
+        @Override
+        public int getPeakSize() {
+            return store.getPeakSize(slot);
+        }
+
+        @Override
+        public String toString() {
+            return "OrderView{" +
+                    "slot=" + slot +
+                    ", buySellIndicator=" + (isBuy() ? 'B' : 'S') +
+                    ", uid=" + getUid() +
+                    ", price=" + getPrice() +
+                    ", peakSize=" + getPeakSize() +
+                    ", remainingQty=" + getRemainingQty() +
+                    '}';
+        }
+    }
+}
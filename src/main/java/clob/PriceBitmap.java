@@ -0,0 +1,115 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * Two level bitmap of occupied price levels. The lower level holds one bit per level, the upper level one bit
+ * per non-empty 64 bit word, so finding the next occupied level above or below a price touches at most a
+ * handful of words regardless of how far away it is.
+ */
+public class PriceBitmap {
+    private final int size;
+    private final long[] words;
+    private final long[] summary;
+
+    public PriceBitmap(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+        this.summary = new long[(words.length + 63) >>> 6];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        int word = index >>> 6;
+        words[word] |= 1L << index;
+        summary[word >>> 6] |= 1L << word;
+    }
+
+    public void clear(int index) {
+        int word = index >>> 6;
+        words[word] &= ~(1L << index);
+        if (words[word] == 0) {
+            summary[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+        Arrays.fill(summary, 0);
+    }
+
+    /**
+     * @return the lowest set index >= fromIndex, or -1 if there is none
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int word = fromIndex >>> 6;
+        long bits = words[word] & (-1L << fromIndex);
+        if (bits != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        word = nextSetWord(word + 1);
+        return word < 0 ? -1 : (word << 6) + Long.numberOfTrailingZeros(words[word]);
+    }
+
+    /**
+     * @return the highest set index <= fromIndex, or -1 if there is none
+     */
+    public int prevSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+        if (fromIndex >= size) {
+            fromIndex = size - 1;
+        }
+        int word = fromIndex >>> 6;
+        long bits = words[word] & (-1L >>> (63 - (fromIndex & 63)));
+        if (bits != 0) {
+            return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+        }
+        word = prevSetWord(word - 1);
+        return word < 0 ? -1 : (word << 6) + 63 - Long.numberOfLeadingZeros(words[word]);
+    }
+
+    private int nextSetWord(int fromWord) {
+        if (fromWord >= words.length) {
+            return -1;
+        }
+        int group = fromWord >>> 6;
+        long bits = summary[group] & (-1L << fromWord);
+        while (bits == 0) {
+            if (++group == summary.length) {
+                return -1;
+            }
+            bits = summary[group];
+        }
+        return (group << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    private int prevSetWord(int fromWord) {
+        if (fromWord < 0) {
+            return -1;
+        }
+        int group = fromWord >>> 6;
+        long bits = summary[group] & (-1L >>> (63 - (fromWord & 63)));
+        while (bits == 0) {
+            if (--group < 0) {
+                return -1;
+            }
+            bits = summary[group];
+        }
+        return (group << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+}
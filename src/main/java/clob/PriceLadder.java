@@ -0,0 +1,342 @@
+package clob;
+
+import java.util.Arrays;
+
+/**
+ * Price levels of one side of a book keyed by a 64 bit tick price. Levels inside a window of ticks around the
+ * current market sit in a dense array indexed by their distance from the start of the window, with a
+ * {@link PriceBitmap} of the occupied slots, so the active part of the book is reached in O(1) and the next
+ * occupied price is a bitmap scan. Levels outside the window are kept in sorted parallel arrays and found by binary
+ * search; far away orders are rare, so the arrays stay short.
+ *
+ * {@link #recentre(long)} moves the window as the market drifts: levels falling out of it move to the sparse arrays
+ * and sparse levels falling into it move to the dense array. Memory grows with the window and the number of far
+ * levels in use, never with the price range itself.
+ *
+ * Each level has to know its own price, so walking the ladder hands out levels rather than prices and no price
+ * needs to be reserved to mean "none".
+ */
+public class PriceLadder<L extends PriceLadder.Level> {
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 12;
+
+    public interface Level {
+        long getPrice();
+    }
+
+    private final int windowSize;
+    private final Object[] window;
+    private final PriceBitmap occupied;
+    private long windowLow;
+    private long windowHigh;
+    private int windowCount;
+
+    private long[] sparsePrices = new long[16];
+    private Object[] sparseLevels = new Object[16];
+    private int sparseCount;
+
+    public PriceLadder() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of ticks held densely, a power of two
+     */
+    public PriceLadder(int windowSize) {
+        if (windowSize < 64 || Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("window size must be a power of two of at least 64: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.window = new Object[windowSize];
+        this.occupied = new PriceBitmap(windowSize);
+        moveWindow(0);
+    }
+
+    public int size() {
+        return windowCount + sparseCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public long getWindowLow() {
+        return windowLow;
+    }
+
+    public long getWindowHigh() {
+        return windowHigh;
+    }
+
+    public boolean inWindow(long price) {
+        return price >= windowLow && price <= windowHigh;
+    }
+
+    @SuppressWarnings("unchecked")
+    public L get(long price) {
+        if (inWindow(price)) {
+            return (L) window[(int) (price - windowLow)];
+        }
+        int index = sparseIndex(price);
+        return index >= 0 ? (L) sparseLevels[index] : null;
+    }
+
+    /**
+     * Add a level at its own price, which must not be occupied yet. The first level of an empty ladder centres the
+     * window on itself.
+     */
+    public void put(L level) {
+        long price = level.getPrice();
+        if (isEmpty() && !inWindow(price)) {
+            moveWindow(price);
+        }
+        if (inWindow(price)) {
+            int index = (int) (price - windowLow);
+            if (window[index] != null) {
+                throw new IllegalStateException("price " + price + " is already occupied");
+            }
+            window[index] = level;
+            occupied.set(index);
+            windowCount++;
+        } else {
+            int index = sparseIndex(price);
+            if (index >= 0) {
+                throw new IllegalStateException("price " + price + " is already occupied");
+            }
+            insertSparse(-index - 1, price, level);
+        }
+    }
+
+    /**
+     * @return the level removed, or null if the price was not occupied
+     */
+    @SuppressWarnings("unchecked")
+    public L remove(long price) {
+        if (inWindow(price)) {
+            int index = (int) (price - windowLow);
+            L level = (L) window[index];
+            if (level != null) {
+                window[index] = null;
+                occupied.clear(index);
+                windowCount--;
+            }
+            return level;
+        }
+        int index = sparseIndex(price);
+        if (index < 0) {
+            return null;
+        }
+        L level = (L) sparseLevels[index];
+        removeSparse(index);
+        return level;
+    }
+
+    public void clear() {
+        for (int index = occupied.nextSetBit(0); index >= 0; index = occupied.nextSetBit(index + 1)) {
+            window[index] = null;
+            occupied.clear(index);
+        }
+        windowCount = 0;
+        Arrays.fill(sparseLevels, 0, sparseCount, null);
+        sparseCount = 0;
+    }
+
+    /**
+     * @return the level with the lowest price, or null if the ladder is empty
+     */
+    public L first() {
+        return ceiling(Long.MIN_VALUE);
+    }
+
+    /**
+     * @return the level with the highest price, or null if the ladder is empty
+     */
+    public L last() {
+        return floor(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the level with the lowest price at or above the given one, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public L ceiling(long price) {
+        // levels below the window are sparse, then come the window and the sparse levels above it
+        int sparse = sparseIndex(price);
+        if (sparse < 0) {
+            sparse = -sparse - 1;
+        }
+        if (sparse < sparseCount && sparsePrices[sparse] < windowLow) {
+            return (L) sparseLevels[sparse];
+        }
+        if (price <= windowHigh) {
+            int index = occupied.nextSetBit(price <= windowLow ? 0 : (int) (price - windowLow));
+            if (index >= 0) {
+                return (L) window[index];
+            }
+        }
+        return sparse < sparseCount ? (L) sparseLevels[sparse] : null;
+    }
+
+    /**
+     * @return the level with the highest price at or below the given one, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public L floor(long price) {
+        int sparse = sparseIndex(price);
+        sparse = sparse < 0 ? -sparse - 2 : sparse;
+        if (sparse >= 0 && sparsePrices[sparse] > windowHigh) {
+            return (L) sparseLevels[sparse];
+        }
+        if (price >= windowLow) {
+            int index = occupied.prevSetBit(price >= windowHigh ? windowSize - 1 : (int) (price - windowLow));
+            if (index >= 0) {
+                return (L) window[index];
+            }
+        }
+        return sparse >= 0 ? (L) sparseLevels[sparse] : null;
+    }
+
+    /**
+     * @return the level with the lowest price strictly above the given one, or null if there is none
+     */
+    public L higher(long price) {
+        return price == Long.MAX_VALUE ? null : ceiling(price + 1);
+    }
+
+    /**
+     * @return the level with the highest price strictly below the given one, or null if there is none
+     */
+    public L lower(long price) {
+        return price == Long.MIN_VALUE ? null : floor(price - 1);
+    }
+
+    /**
+     * Move the window if the price has drifted into its outer quarters, so that it sits in the middle again. The
+     * check is a few comparisons, so a book can call this after every event.
+     *
+     * @return true if the window moved
+     */
+    public boolean recentre(long price) {
+        long quarter = windowSize >>> 2;
+        if (inWindow(price) && price - windowLow >= quarter && windowHigh - price >= quarter
+                || windowLowFor(price) == windowLow) {
+            return false;
+        }
+        if (windowCount > 0) {
+            pushOutOfWindow();
+        }
+        moveWindow(price);
+        pullIntoWindow();
+        return true;
+    }
+
+    /**
+     * @return the number of levels held outside the window
+     */
+    public int getSparseCount() {
+        return sparseCount;
+    }
+
+    private void moveWindow(long centre) {
+        windowLow = windowLowFor(centre);
+        windowHigh = windowLow + (windowSize - 1);
+    }
+
+    /**
+     * @return the start of a window centred on the price, kept clear of the ends of the price range
+     */
+    private long windowLowFor(long centre) {
+        long half = windowSize >>> 1;
+        long low = centre < Long.MIN_VALUE + half ? Long.MIN_VALUE : centre - half;
+        return Math.min(low, Long.MAX_VALUE - (windowSize - 1));
+    }
+
+    /**
+     * Merge every window level into the sorted sparse arrays, which leaves the window empty.
+     */
+    private void pushOutOfWindow() {
+        // the window levels all lie between the sparse levels below and above it
+        int below = -sparseIndex(windowLow) - 1;
+        ensureSparseCapacity(sparseCount + windowCount);
+        System.arraycopy(sparsePrices, below, sparsePrices, below + windowCount, sparseCount - below);
+        System.arraycopy(sparseLevels, below, sparseLevels, below + windowCount, sparseCount - below);
+        int to = below;
+        for (int index = occupied.nextSetBit(0); index >= 0; index = occupied.nextSetBit(index + 1)) {
+            sparsePrices[to] = windowLow + index;
+            sparseLevels[to++] = window[index];
+            window[index] = null;
+            occupied.clear(index);
+        }
+        sparseCount += windowCount;
+        windowCount = 0;
+    }
+
+    /**
+     * Move the sparse levels that lie inside the window into it.
+     */
+    private void pullIntoWindow() {
+        int from = sparseIndex(windowLow);
+        from = from < 0 ? -from - 1 : from;
+        int to = from;
+        while (to < sparseCount && sparsePrices[to] <= windowHigh) {
+            int index = (int) (sparsePrices[to] - windowLow);
+            window[index] = sparseLevels[to];
+            occupied.set(index);
+            to++;
+        }
+        int moved = to - from;
+        if (moved > 0) {
+            System.arraycopy(sparsePrices, to, sparsePrices, from, sparseCount - to);
+            System.arraycopy(sparseLevels, to, sparseLevels, from, sparseCount - to);
+            sparseCount -= moved;
+            Arrays.fill(sparseLevels, sparseCount, sparseCount + moved, null);
+            windowCount += moved;
+        }
+    }
+
+    /**
+     * @return the index of the price in the sparse arrays, or -(insertion point + 1) if it is not there
+     */
+    private int sparseIndex(long price) {
+        int low = 0;
+        int high = sparseCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = sparsePrices[mid];
+            if (midPrice < price) {
+                low = mid + 1;
+            } else if (midPrice > price) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertSparse(int index, long price, Object level) {
+        ensureSparseCapacity(sparseCount + 1);
+        System.arraycopy(sparsePrices, index, sparsePrices, index + 1, sparseCount - index);
+        System.arraycopy(sparseLevels, index, sparseLevels, index + 1, sparseCount - index);
+        sparsePrices[index] = price;
+        sparseLevels[index] = level;
+        sparseCount++;
+    }
+
+    private void removeSparse(int index) {
+        System.arraycopy(sparsePrices, index + 1, sparsePrices, index, sparseCount - index - 1);
+        System.arraycopy(sparseLevels, index + 1, sparseLevels, index, sparseCount - index - 1);
+        sparseLevels[--sparseCount] = null;
+    }
+
+    private void ensureSparseCapacity(int capacity) {
+        if (capacity > sparsePrices.length) {
+            int newLength = Math.max(capacity, sparsePrices.length << 1);
+            sparsePrices = Arrays.copyOf(sparsePrices, newLength);
+            sparseLevels = Arrays.copyOf(sparseLevels, newLength);
+        }
+    }
+}
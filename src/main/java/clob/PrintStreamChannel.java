@@ -0,0 +1,45 @@
+package clob;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A channel onto a {@link PrintStream} that hands each buffer to the stream in a single write, which the stream
+ * makes atomic, so text written by several threads through their own channels is never interleaved within a write.
+ * {@link java.nio.channels.Channels#newChannel} would instead split a large buffer into several writes.
+ */
+class PrintStreamChannel implements WritableByteChannel {
+    private final PrintStream out;
+
+    PrintStreamChannel(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        int length = src.remaining();
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+        } else {
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            out.write(bytes, 0, length);
+        }
+        return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    /**
+     * Flushes the stream but leaves it open, as it is not the channel's to close.
+     */
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
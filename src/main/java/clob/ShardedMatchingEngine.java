@@ -0,0 +1,189 @@
+package clob;
+
+import java.util.function.IntFunction;
+
+/**
+ * Matches orders for many instruments on a fixed set of shards. Every instrument is owned by one shard, chosen from
+ * its id, and each shard runs its books on a single dedicated thread fed by its own {@link OrderCommandQueue}.
+ * The books therefore keep their single threaded matching, and shards share nothing but their queues' tails.
+ *
+ * Any number of threads may submit orders. Orders for one instrument are matched in the order they were queued,
+ * so a client that needs a sequence across its orders must submit them from one thread. Books are created on
+ * their shard's thread when the first order for their instrument arrives.
+ */
+public class ShardedMatchingEngine implements AutoCloseable {
+    private static final int DRAIN_LIMIT = 256;
+    private static final int SPINS_BEFORE_YIELD = 100;
+
+    private final Shard[] shards;
+    private final Thread[] threads;
+
+    public ShardedMatchingEngine(int shardCount) {
+        this(shardCount, 64 * 1024, instrumentId -> new LadderLimitOrderBook());
+    }
+
+    /**
+     * @param bookFactory creates the book of an instrument; called on the owning shard's thread
+     */
+    public ShardedMatchingEngine(int shardCount, int queueCapacity, IntFunction<ILimitOrderBook> bookFactory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shard count must be positive: " + shardCount);
+        }
+        shards = new Shard[shardCount];
+        threads = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new OrderCommandQueue(queueCapacity), bookFactory);
+            threads[i] = new Thread(shards[i], "shard-" + i);
+        }
+    }
+
+    public void start() {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardFor(int instrumentId) {
+        return Math.floorMod(instrumentId, shards.length);
+    }
+
+    /**
+     * Queue a new order, waiting for room while the shard's queue is full.
+     */
+    public void newOrder(int instrumentId, char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        OrderCommandQueue queue = shards[shardFor(instrumentId)].queue;
+        while (!queue.offerNewOrder(instrumentId, buySellIndicator, uid, price, qty, peakSize)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Queue a market, immediate-or-cancel or fill-or-kill order, waiting for room while the shard's queue is full.
+     */
+    public void immediateOrder(int instrumentId, char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+        OrderCommandQueue queue = shards[shardFor(instrumentId)].queue;
+        while (!queue.offerImmediateOrder(instrumentId, buySellIndicator, uid, price, qty, timeInForce)) {
+            Thread.yield();
+        }
+    }
+
+    public void cancelOrder(int instrumentId, int uid) {
+        OrderCommandQueue queue = shards[shardFor(instrumentId)].queue;
+        while (!queue.offerCancelOrder(instrumentId, uid)) {
+            Thread.yield();
+        }
+    }
+
+    public void amendOrder(int instrumentId, int uid, int newQty, long newPrice) {
+        OrderCommandQueue queue = shards[shardFor(instrumentId)].queue;
+        while (!queue.offerAmendOrder(instrumentId, uid, newQty, newPrice)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * @return the book of an instrument, or null if it never received an order. Only safe to use once the engine
+     * is closed, since the book belongs to its shard's thread while the engine runs.
+     */
+    public ILimitOrderBook getBook(int instrumentId) {
+        BookOrderHandler handler = shards[shardFor(instrumentId)].handlersByInstrument.get(instrumentId);
+        return handler == null ? null : handler.getBook();
+    }
+
+    public long getProcessedCount() {
+        long processed = 0;
+        for (Shard shard : shards) {
+            processed += shard.processedCount;
+        }
+        return processed;
+    }
+
+    public long getTradeCount() {
+        long trades = 0;
+        for (Shard shard : shards) {
+            trades += shard.tradeCount;
+        }
+        return trades;
+    }
+
+    /**
+     * @return the last exception thrown while a shard handled an order, e.g. an amend to a non-positive quantity,
+     * or null if there was none
+     */
+    public RuntimeException getLastError() {
+        for (Shard shard : shards) {
+            if (shard.lastError != null) {
+                return shard.lastError;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Let every shard finish the orders already queued and stop its thread. Stop submitting orders first.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.running = false;
+        }
+        Threads.joinUninterruptibly(threads);
+    }
+
+    private static class Shard implements Runnable {
+        private final OrderCommandQueue queue;
+        private final IntFunction<ILimitOrderBook> bookFactory;
+        private final IntObjectHashMap<BookOrderHandler> handlersByInstrument = new IntObjectHashMap<>();
+        private final IntFunction<OrderHandler> router = this::handlerFor;
+        private final TradeBuffer trades = new TradeBuffer();
+        private volatile boolean running = true;
+        private volatile long processedCount;
+        private volatile long tradeCount;
+        private volatile RuntimeException lastError;
+
+        private Shard(OrderCommandQueue queue, IntFunction<ILimitOrderBook> bookFactory) {
+            this.queue = queue;
+            this.bookFactory = bookFactory;
+        }
+
+        private OrderHandler handlerFor(int instrumentId) {
+            BookOrderHandler handler = handlersByInstrument.get(instrumentId);
+            if (handler == null) {
+                ILimitOrderBook book = bookFactory.apply(instrumentId);
+                // only a book that copies its resting orders may be fed one reused order object
+                handler = new BookOrderHandler(book, trades, book instanceof LadderLimitOrderBook);
+                handlersByInstrument.put(instrumentId, handler);
+            }
+            return handler;
+        }
+
+        @Override
+        public void run() {
+            int idleSpins = 0;
+            while (running || !queue.isEmpty()) {
+                long consumedBefore = queue.getConsumedCount();
+                try {
+                    queue.drain(router, DRAIN_LIMIT);
+                } catch (RuntimeException e) {
+                    lastError = e;
+                }
+                // a throwing handler cuts the drain short, so count what left the queue rather than trust a result
+                int drained = (int) (queue.getConsumedCount() - consumedBefore);
+                if (drained == 0) {
+                    if (++idleSpins > SPINS_BEFORE_YIELD) {
+                        Thread.yield();
+                    }
+                } else {
+                    idleSpins = 0;
+                    processedCount += drained;
+                    tradeCount += trades.size();
+                    trades.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package clob;
+
+/**
+ * When an {@link EventJournal} forces its appended events from the page cache to the storage device.
+ */
+public enum SyncPolicy {
+    /**
+     * Leave flushing to the operating system. Survives a crash of the process but not of the machine.
+     */
+    NONE,
+    /**
+     * Force once every batch of events and on close.
+     */
+    BATCH,
+    /**
+     * Force after every single event before it is matched.
+     */
+    EVERY_EVENT
+}
@@ -0,0 +1,27 @@
+package clob;
+
+final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Wait for the thread to die even if the caller is interrupted meanwhile, then restore the caller's interrupt
+     * flag, so that {@link AutoCloseable#close()} can stop its threads without throwing {@link InterruptedException}.
+     */
+    static void joinUninterruptibly(Thread... threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package clob;
+
+import java.math.BigDecimal;
+
+/**
+ * The minimum price increment of an instrument, converting between decimal prices and the whole number of ticks the
+ * books work with. A tick size is held as an unscaled value and a decimal scale, 0.0005 as 5 with scale 4, so the
+ * conversions are exact and {@link #toTicks(long, int)} needs no objects at all.
+ */
+public class TickSize {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public static final TickSize ONE = new TickSize(1, 0);
+
+    private final long unscaledTick;
+    private final int scale;
+
+    public TickSize(long unscaledTick, int scale) {
+        if (unscaledTick <= 0) {
+            throw new IllegalArgumentException("tick size must be positive: " + unscaledTick);
+        }
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("tick size scale out of range: " + scale);
+        }
+        this.unscaledTick = unscaledTick;
+        this.scale = scale;
+    }
+
+    /**
+     * @param tickSize a positive decimal, e.g. "0.01" or "5"
+     */
+    public static TickSize parse(String tickSize) {
+        BigDecimal value = new BigDecimal(tickSize).stripTrailingZeros();
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        return new TickSize(value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    /**
+     * @return the number of ticks in the price unscaledPrice * 10^-priceScale
+     * @throws IllegalArgumentException if the price is not a whole number of ticks or the tick count overflows
+     */
+    public long toTicks(long unscaledPrice, int priceScale) {
+        if (priceScale < 0 || priceScale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("price scale out of range: " + priceScale);
+        }
+        try {
+            // bring the price and the tick to the same scale and divide
+            long numerator = priceScale < scale ? Math.multiplyExact(unscaledPrice, POWERS_OF_TEN[scale - priceScale]) : unscaledPrice;
+            long denominator = priceScale > scale ? Math.multiplyExact(unscaledTick, POWERS_OF_TEN[priceScale - scale]) : unscaledTick;
+            if (numerator % denominator != 0) {
+                throw new IllegalArgumentException("price " + BigDecimal.valueOf(unscaledPrice, priceScale)
+                        + " is not a multiple of the tick size " + this);
+            }
+            return numerator / denominator;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("price " + BigDecimal.valueOf(unscaledPrice, priceScale)
+                    + " is out of range for the tick size " + this);
+        }
+    }
+
+    public long toTicks(BigDecimal price) {
+        BigDecimal value = price.stripTrailingZeros();
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        try {
+            return toTicks(value.unscaledValue().longValueExact(), value.scale());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("price " + price + " is out of range for the tick size " + this);
+        }
+    }
+
+    public BigDecimal toPrice(long ticks) {
+        return BigDecimal.valueOf(ticks).multiply(BigDecimal.valueOf(unscaledTick, scale));
+    }
+
+    public long getUnscaledTick() {
+        return unscaledTick;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TickSize tickSize = (TickSize) o;
+        return unscaledTick == tickSize.unscaledTick && scale == tickSize.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(unscaledTick) + scale;
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(unscaledTick, scale).toPlainString();
+    }
+}
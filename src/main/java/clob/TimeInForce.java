@@ -0,0 +1,20 @@
+package clob;
+
+/**
+ * What happens to the part of a new order that cannot be filled as soon as it arrives.
+ */
+public enum TimeInForce {
+    /**
+     * Rest in the book until filled or cancelled.
+     */
+    GOOD_TILL_CANCEL,
+    /**
+     * Take whatever can be filled at once and drop the rest.
+     */
+    IMMEDIATE_OR_CANCEL,
+    /**
+     * Fill completely at once or not at all. An order that cannot be filled in full is rejected before it trades,
+     * so it leaves the resting orders untouched.
+     */
+    FILL_OR_KILL
+}
@@ -1,16 +1,17 @@
 package clob;
 
-import java.util.Objects;
-
+/**
+ * A fill between a buy and a sell order, as handed out by the books. Trades are immutable values; to read fills
+ * without allocating, point a {@link TradeView} at them instead.
+ */
 public class Trade {
 
     private final int buyOrderId;
     private final int sellOrderId;
-    private final short price;
+    private final long price;
     private final int tradedQty;
 
-    public Trade(int buyOrderId, int sellOrderId, short price, int tradedQty) {
-
+    public Trade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
         this.buyOrderId = buyOrderId;
         this.sellOrderId = sellOrderId;
         this.price = price;
@@ -25,7 +26,7 @@ public class Trade {
         return sellOrderId;
     }
 
-    public short getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -35,7 +36,7 @@ public class Trade {
 
     @Override
     public String toString() {
-        return String.format("%s,%s,%s,%s", buyOrderId, sellOrderId, price, tradedQty);
+        return buyOrderId + "," + sellOrderId + "," + price + "," + tradedQty;
     }
 
     @Override
@@ -51,7 +52,9 @@ public class Trade {
 
     @Override
     public int hashCode() {
-
-        return Objects.hash(buyOrderId, sellOrderId, price, tradedQty);
+        int result = buyOrderId;
+        result = 31 * result + sellOrderId;
+        result = 31 * result + Long.hashCode(price);
+        return 31 * result + tradedQty;
     }
 }
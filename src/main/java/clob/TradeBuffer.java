@@ -0,0 +1,97 @@
+package clob;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable buffer of trades held in parallel primitive arrays. A caller that keeps one buffer and clears it
+ * between orders can match without allocating once the arrays have grown to the largest sweep seen.
+ */
+public class TradeBuffer {
+    private int[] buyOrderIds;
+    private int[] sellOrderIds;
+    private long[] prices;
+    private int[] tradedQtys;
+    private int size;
+
+    public TradeBuffer() {
+        this(64);
+    }
+
+    public TradeBuffer(int initialCapacity) {
+        buyOrderIds = new int[initialCapacity];
+        sellOrderIds = new int[initialCapacity];
+        prices = new long[initialCapacity];
+        tradedQtys = new int[initialCapacity];
+    }
+
+    public void add(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        if (size == buyOrderIds.length) {
+            grow();
+        }
+        buyOrderIds[size] = buyOrderId;
+        sellOrderIds[size] = sellOrderId;
+        prices[size] = price;
+        tradedQtys[size] = tradedQty;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int getBuyOrderId(int index) {
+        return buyOrderIds[index];
+    }
+
+    public int getSellOrderId(int index) {
+        return sellOrderIds[index];
+    }
+
+    public long getPrice(int index) {
+        return prices[index];
+    }
+
+    public int getTradedQty(int index) {
+        return tradedQtys[index];
+    }
+
+    public Trade getTrade(int index) {
+        return new Trade(buyOrderIds[index], sellOrderIds[index], prices[index], tradedQtys[index]);
+    }
+
+    /**
+     * @return the given view pointed at the trade at this index
+     */
+    public TradeView getTrade(int index, TradeView into) {
+        return into.set(buyOrderIds[index], sellOrderIds[index], prices[index], tradedQtys[index]);
+    }
+
+    /**
+     * @return the trades from fromIndex onwards as newly allocated {@link Trade} objects
+     */
+    public List<Trade> toTrades(int fromIndex) {
+        List<Trade> trades = new ArrayList<>(size - fromIndex);
+        for (int i = fromIndex; i < size; i++) {
+            trades.add(getTrade(i));
+        }
+        return trades;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, buyOrderIds.length << 1);
+        buyOrderIds = Arrays.copyOf(buyOrderIds, capacity);
+        sellOrderIds = Arrays.copyOf(sellOrderIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        tradedQtys = Arrays.copyOf(tradedQtys, capacity);
+    }
+}
@@ -0,0 +1,87 @@
+package clob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optional in-memory record of every fill a book reports. Orders only keep cumulative fill statistics, so this is
+ * where to look for the full history of an order, e.g. for audit. Events are passed on to a delegate listener, so
+ * a journal can sit in front of any other listener.
+ */
+public class TradeJournal implements OrderBookListener {
+    private final TradeBuffer trades = new TradeBuffer();
+    private final OrderBookListener delegate;
+
+    public TradeJournal() {
+        this(OrderBookListener.NO_OP);
+    }
+
+    public TradeJournal(OrderBookListener delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        delegate.onOrderAccepted(order);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        trades.add(buyOrderId, sellOrderId, price, tradedQty);
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        delegate.onLevelSwept(bidSide, price);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        delegate.onIcebergReplenished(uid);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        delegate.onOrderExpired(uid, expiredQty);
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        delegate.onBookChanged(book);
+    }
+
+    public int size() {
+        return trades.size();
+    }
+
+    public Trade getTrade(int index) {
+        return trades.getTrade(index);
+    }
+
+    public TradeView getTrade(int index, TradeView into) {
+        return trades.getTrade(index, into);
+    }
+
+    /**
+     * @return the fills of one order in the order they happened; scans the whole journal
+     */
+    public List<Trade> getTrades(int uid) {
+        List<Trade> orderTrades = new ArrayList<>();
+        for (int i = 0; i < trades.size(); i++) {
+            if (trades.getBuyOrderId(i) == uid || trades.getSellOrderId(i) == uid) {
+                orderTrades.add(trades.getTrade(i));
+            }
+        }
+        return orderTrades;
+    }
+
+    public void clear() {
+        trades.clear();
+    }
+}
@@ -0,0 +1,145 @@
+package clob;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring of the most recent fills for one writer and any number of reader threads. Each trade is packed
+ * into a slot of four longs: its sequence number, the buy and sell order ids, the price and the traded quantity, so
+ * recording a fill creates no objects. Readers keep their own cursor and read a fill by its sequence number into a
+ * {@link TradeView}.
+ *
+ * The writer never waits for readers: once the ring wraps, the oldest fills are overwritten. A slot's sequence number
+ * is invalidated before the slot is rewritten and set again afterwards, so a reader that finds the same sequence
+ * number before and after copying the fields knows it read one whole trade, and a reader that has fallen a whole
+ * ring behind finds out instead of reading a newer fill.
+ *
+ * The ring is an {@link OrderBookListener} passing every event on to a delegate, so it can sit in front of any other
+ * listener, e.g. as the publisher of an {@link OrderPipeline} for consumers on other threads.
+ */
+public class TradeRing implements OrderBookListener {
+    private static final int STRIDE = 4;
+    private static final int SEQUENCE = 0;
+    private static final int ORDER_IDS = 1;
+    private static final int PRICE = 2;
+    private static final int QTY = 3;
+    private static final long NO_TRADE = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray slots;
+    private final AtomicLong published = new AtomicLong();
+    private final OrderBookListener delegate;
+    private long next;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public TradeRing(int capacity) {
+        this(capacity, OrderBookListener.NO_OP);
+    }
+
+    public TradeRing(int capacity, OrderBookListener delegate) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicLongArray(this.capacity * STRIDE);
+        for (int i = 0; i < this.capacity; i++) {
+            slots.set(i * STRIDE + SEQUENCE, NO_TRADE);
+        }
+        this.delegate = delegate;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Record a fill. Only the writer thread may call this.
+     *
+     * @return the sequence number of the fill
+     */
+    public long add(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        long sequence = next++;
+        int base = ((int) sequence & mask) * STRIDE;
+        slots.lazySet(base + SEQUENCE, NO_TRADE);
+        slots.lazySet(base + ORDER_IDS, (long) buyOrderId << 32 | (sellOrderId & 0xFFFFFFFFL));
+        slots.lazySet(base + PRICE, price);
+        slots.lazySet(base + QTY, tradedQty);
+        slots.lazySet(base + SEQUENCE, sequence);
+        published.lazySet(sequence + 1);
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number the next fill will get, i.e. the number of fills recorded so far
+     */
+    public long getPublishedSequence() {
+        return published.get();
+    }
+
+    /**
+     * @return the sequence number of the oldest fill still held
+     */
+    public long getOldestSequence() {
+        return Math.max(0, published.get() - capacity);
+    }
+
+    /**
+     * Copy a fill into the view. Safe to call from any thread.
+     *
+     * @return false if the fill has not been recorded yet or has already been overwritten, leaving the view as it was
+     */
+    public boolean read(long sequence, TradeView into) {
+        if (sequence < 0) {
+            return false;
+        }
+        int base = ((int) sequence & mask) * STRIDE;
+        if (slots.get(base + SEQUENCE) != sequence) {
+            return false;
+        }
+        long orderIds = slots.get(base + ORDER_IDS);
+        long price = slots.get(base + PRICE);
+        long tradedQty = slots.get(base + QTY);
+        if (slots.get(base + SEQUENCE) != sequence) {
+            return false;
+        }
+        into.set((int) (orderIds >>> 32), (int) orderIds, price, (int) tradedQty);
+        return true;
+    }
+
+    @Override
+    public void onOrderAccepted(IOrder order) {
+        delegate.onOrderAccepted(order);
+    }
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        add(buyOrderId, sellOrderId, price, tradedQty);
+        delegate.onTrade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public void onLevelChanged(boolean bidSide, long price, long visibleQty, int orderCount) {
+        delegate.onLevelChanged(bidSide, price, visibleQty, orderCount);
+    }
+
+    @Override
+    public void onLevelSwept(boolean bidSide, long price) {
+        delegate.onLevelSwept(bidSide, price);
+    }
+
+    @Override
+    public void onIcebergReplenished(int uid) {
+        delegate.onIcebergReplenished(uid);
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        delegate.onOrderExpired(uid, expiredQty);
+    }
+
+    @Override
+    public void onBookChanged(ILimitOrderBook book) {
+        delegate.onBookChanged(book);
+    }
+}
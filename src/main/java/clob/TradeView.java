@@ -0,0 +1,49 @@
+package clob;
+
+/**
+ * A reusable, mutable view of one fill, which {@link TradeBuffer}, {@link TradeJournal} and {@link TradeRing} point
+ * at a fill so that reading it allocates nothing. A view is overwritten by the next read, so it has no value
+ * equality; keep a fill with {@link #toTrade()}.
+ */
+public class TradeView {
+    private int buyOrderId;
+    private int sellOrderId;
+    private long price;
+    private int tradedQty;
+
+    public TradeView set(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        this.buyOrderId = buyOrderId;
+        this.sellOrderId = sellOrderId;
+        this.price = price;
+        this.tradedQty = tradedQty;
+        return this;
+    }
+
+    public int getBuyOrderId() {
+        return buyOrderId;
+    }
+
+    public int getSellOrderId() {
+        return sellOrderId;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getTradedQty() {
+        return tradedQty;
+    }
+
+    /**
+     * @return the fill the view currently shows, as an immutable {@link Trade}
+     */
+    public Trade toTrade() {
+        return new Trade(buyOrderId, sellOrderId, price, tradedQty);
+    }
+
+    @Override
+    public String toString() {
+        return buyOrderId + "," + sellOrderId + "," + price + "," + tradedQty;
+    }
+}
@@ -0,0 +1,104 @@
+package clob;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * How a stage of an {@link OrderPipeline} waits for the stage before it. Spinning gives the lowest latency at the
+ * cost of a whole core per stage, blocking frees the core but pays for a wake up on every hand over.
+ */
+public interface WaitStrategy {
+    /**
+     * Wait until the dependency has reached the sequence.
+     *
+     * @return the dependency's sequence, which may be ahead of the one waited for so that a whole batch can be
+     * handled in one go
+     */
+    long waitFor(long sequence, AtomicLong dependency);
+
+    /**
+     * Called by a stage after advancing its sequence, to wake anyone blocked on it.
+     */
+    void signalAll();
+
+    static WaitStrategy named(String name) {
+        switch (name) {
+            case "busy-spin":
+                return new BusySpin();
+            case "yielding":
+                return new Yielding();
+            case "blocking":
+                return new Blocking();
+            default:
+                throw new IllegalArgumentException("unknown wait strategy " + name + ", use busy-spin, yielding or blocking");
+        }
+    }
+
+    class BusySpin implements WaitStrategy {
+        @Override
+        public long waitFor(long sequence, AtomicLong dependency) {
+            long available;
+            while ((available = dependency.get()) < sequence) {
+                // spin
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    class Yielding implements WaitStrategy {
+        private static final int SPINS_BEFORE_YIELD = 100;
+
+        @Override
+        public long waitFor(long sequence, AtomicLong dependency) {
+            long available;
+            int spins = 0;
+            while ((available = dependency.get()) < sequence) {
+                if (++spins > SPINS_BEFORE_YIELD) {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    class Blocking implements WaitStrategy {
+        private final Lock lock = new ReentrantLock();
+        private final Condition advanced = lock.newCondition();
+
+        @Override
+        public long waitFor(long sequence, AtomicLong dependency) {
+            long available = dependency.get();
+            if (available < sequence) {
+                lock.lock();
+                try {
+                    while ((available = dependency.get()) < sequence) {
+                        advanced.awaitUninterruptibly();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
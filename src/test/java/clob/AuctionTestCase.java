@@ -0,0 +1,166 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuctionTestCase {
+
+    @Test
+    public void testUncrossAtMaximumVolume() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook() : new LimitOrderBook();
+            Auction auction = new Auction(book);
+            auction.addOrder(new LimitOrder('B', 1, (short) 102, 100));
+            auction.addOrder(new LimitOrder('B', 2, (short) 101, 200));
+            auction.addOrder(new LimitOrder('B', 3, (short) 100, 100));
+            auction.addOrder(new LimitOrder('S', 4, (short) 99, 150));
+            auction.addOrder(new LimitOrder('S', 5, (short) 100, 100));
+            auction.addOrder(new LimitOrder('S', 6, (short) 101, 200));
+
+            assertTrue(auction.isCrossed());
+            assertEquals(101, auction.getIndicativePrice());
+            assertEquals(300, auction.getIndicativeVolume());
+            assertEquals(-150, auction.getImbalance());
+
+            TradeBuffer trades = new TradeBuffer();
+            assertEquals(300, auction.uncross(trades));
+            assertEquals(4, trades.size());
+            assertEquals(new Trade(1, 4, (short) 101, 100), trades.getTrade(0));
+            assertEquals(new Trade(2, 4, (short) 101, 50), trades.getTrade(1));
+            assertEquals(new Trade(2, 5, (short) 101, 100), trades.getTrade(2));
+            assertEquals(new Trade(2, 6, (short) 101, 50), trades.getTrade(3));
+
+            assertEquals(1, book.getBidDepth());
+            assertEquals(3, book.getBestBid().getUid());
+            assertEquals(1, book.getOfferDepth());
+            assertEquals(6, book.getBestOffer().getUid());
+            assertEquals(150, book.getBestOffer().getRemainingQty());
+            assertFalse(auction.isCrossed());
+            assertEquals(0, auction.getIndicativeVolume());
+        }
+    }
+
+    @Test
+    public void testIcebergsTakePartWithHiddenQty() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook() : new LimitOrderBook();
+            Auction auction = new Auction(book);
+            auction.addOrder(new IcebergOrder('S', 1, (short) 100, 500, 50));
+            auction.addOrder(new LimitOrder('S', 2, (short) 100, 100));
+            auction.addOrder(new LimitOrder('B', 3, (short) 100, 520));
+            assertEquals(520, auction.getIndicativeVolume());
+            assertEquals(-80, auction.getImbalance());
+
+            TradeBuffer trades = new TradeBuffer();
+            auction.uncross(trades);
+            assertEquals(new Trade(3, 1, (short) 100, 500), trades.getTrade(0));
+            assertEquals(new Trade(3, 2, (short) 100, 20), trades.getTrade(1));
+            assertEquals(0, book.getBidDepth());
+            assertEquals(80, book.getBestOffer().getRemainingQty());
+        }
+    }
+
+    @Test
+    public void testTieBreaksOnSurplus() {
+        Auction buyers = new Auction(new LadderLimitOrderBook());
+        buyers.addOrder(new LimitOrder('B', 1, (short) 105, 300));
+        buyers.addOrder(new LimitOrder('S', 2, (short) 100, 100));
+        // every price from 100 to 105 executes 100 with buyers left over, so the highest price clears
+        assertEquals(105, buyers.getIndicativePrice());
+        assertEquals(200, buyers.getImbalance());
+
+        Auction sellers = new Auction(new LadderLimitOrderBook());
+        sellers.addOrder(new LimitOrder('B', 1, (short) 105, 100));
+        sellers.addOrder(new LimitOrder('S', 2, (short) 100, 300));
+        assertEquals(100, sellers.getIndicativePrice());
+        assertEquals(-200, sellers.getImbalance());
+
+        Auction balanced = new Auction(new LadderLimitOrderBook());
+        balanced.addOrder(new LimitOrder('B', 1, (short) 105, 100));
+        balanced.addOrder(new LimitOrder('S', 2, (short) 100, 100));
+        assertEquals(102, balanced.getIndicativePrice());
+        assertEquals(0, balanced.getImbalance());
+    }
+
+    @Test
+    public void testImmediateOrdersOnlyTakePartInUncross() {
+        ExpiryRecorder listener = new ExpiryRecorder();
+        ILimitOrderBook book = new LadderLimitOrderBook();
+        Auction auction = new Auction(book, listener);
+        auction.addOrder(new MarketOrder('B', 1, 150, TimeInForce.IMMEDIATE_OR_CANCEL));
+        auction.addOrder(new LimitOrder('B', 2, (short) 99, 50, TimeInForce.IMMEDIATE_OR_CANCEL));
+        auction.addOrder(new LimitOrder('S', 3, (short) 101, 60));
+        auction.addOrder(new LimitOrder('S', 4, (short) 102, 40));
+        auction.addOrder(new LimitOrder('S', 5, (short) 103, 10));
+
+        assertEquals(110, auction.getIndicativeVolume());
+        assertEquals(40, auction.getImbalance());
+        assertEquals(103, auction.getIndicativePrice());
+
+        TradeBuffer trades = new TradeBuffer();
+        assertEquals(110, auction.uncross(trades));
+        assertEquals(3, listener.trades);
+        assertEquals("1:40;2:50;", listener.expired.toString());
+        assertEquals(0, book.getBidDepth());
+        assertEquals(0, book.getOfferDepth());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFillOrKillRejected() {
+        new Auction(new LadderLimitOrderBook()).addOrder(new LimitOrder('B', 1, (short) 100, 10, TimeInForce.FILL_OR_KILL));
+    }
+
+    @Test
+    public void testRandomCallPhases() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            ILimitOrderBook ladder = new LadderLimitOrderBook();
+            ILimitOrderBook list = new LimitOrderBook();
+            Auction ladderAuction = new Auction(ladder);
+            Auction listAuction = new Auction(list);
+            for (int uid = 1; uid <= 200; uid++) {
+                char side = random.nextBoolean() ? 'B' : 'S';
+                long price = 95 + random.nextInt(11);
+                int qty = 1 + random.nextInt(100);
+                int peak = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : 0;
+                ladderAuction.addOrder(peak > 0 ? new IcebergOrder(side, uid, price, qty, peak) : new LimitOrder(side, uid, price, qty));
+                listAuction.addOrder(peak > 0 ? new IcebergOrder(side, uid, price, qty, peak) : new LimitOrder(side, uid, price, qty));
+            }
+            long expectedVolume = maximumVolume(ladder);
+            assertEquals(expectedVolume, ladderAuction.getIndicativeVolume());
+
+            TradeBuffer ladderTrades = new TradeBuffer();
+            TradeBuffer listTrades = new TradeBuffer();
+            assertEquals(expectedVolume, ladderAuction.uncross(ladderTrades));
+            assertEquals(expectedVolume, listAuction.uncross(listTrades));
+            assertEquals(ladderTrades.toTrades(0), listTrades.toTrades(0));
+            assertTrue(ladder.getBestBid().getPrice() < ladder.getBestOffer().getPrice());
+            assertEquals(ladder.getBidDepth(), list.getBidDepth());
+            assertEquals(ladder.getOfferDepth(), list.getOfferDepth());
+        }
+    }
+
+    private static long maximumVolume(ILimitOrderBook book) {
+        long best = 0;
+        for (int price = 90; price <= 110; price++) {
+            best = Math.max(best, Math.min(sum(book.getBidsByPriceTime(), price, true), sum(book.getOffersByPriceTime(), price, false)));
+        }
+        return best;
+    }
+
+    private static long sum(List<IOrder> orders, int price, boolean bids) {
+        long total = 0;
+        for (IOrder order : orders) {
+            if (bids ? order.getPrice() >= price : order.getPrice() <= price) {
+                total += order.getRemainingQty();
+            }
+        }
+        return total;
+    }
+}
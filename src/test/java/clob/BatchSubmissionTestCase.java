@@ -0,0 +1,151 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchSubmissionTestCase {
+
+    @Test
+    public void testLadderBatchesMatchSingleOrders() {
+        assertBatchesMatchSingleOrders(new LadderLimitOrderBook(), new LadderLimitOrderBook());
+    }
+
+    @Test
+    public void testListBatchesMatchSingleOrders() {
+        assertBatchesMatchSingleOrders(new LimitOrderBook(), new LimitOrderBook());
+    }
+
+    @Test
+    public void testOneBookChangePerBatch() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            CountingListener listener = new CountingListener();
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook(listener) : new LimitOrderBook(listener);
+            List<IOrder> batch = new ArrayList<>();
+            batch.add(new LimitOrder('S', 1, (short) 101, 10));
+            batch.add(new LimitOrder('S', 2, (short) 102, 10));
+            batch.add(new LimitOrder('B', 3, (short) 102, 15));
+            batch.add(new LimitOrder('B', 4, (short) 90, 15, TimeInForce.FILL_OR_KILL));
+            TradeBuffer trades = new TradeBuffer();
+            book.newOrders(batch, trades);
+
+            assertEquals(1, listener.bookChanges);
+            assertEquals(4, listener.accepted);
+            assertEquals(2, listener.trades);
+            assertEquals(2, trades.size());
+            assertEquals(new Trade(3, 2, (short) 102, 5), trades.getTrade(1));
+
+            book.newOrder(new LimitOrder('S', 5, (short) 103, 10));
+            assertEquals(2, listener.bookChanges);
+        }
+    }
+
+    @Test
+    public void testFeedCoalescesWholeBatch() {
+        List<Byte> actions = new ArrayList<>();
+        L2Book l2Book = new L2Book();
+        ILimitOrderBook book = new LadderLimitOrderBook(new MarketDataFeed(new L2Handler() {
+            @Override
+            public void onLevelUpdate(long sequence, byte action, boolean bidSide, long price, long visibleQty, int orderCount) {
+                actions.add(action);
+                l2Book.onLevelUpdate(sequence, action, bidSide, price, visibleQty, orderCount);
+            }
+
+            @Override
+            public void onRefreshStart(long sequence) {
+            }
+
+            @Override
+            public void onRefreshLevel(boolean bidSide, long price, long visibleQty, int orderCount) {
+            }
+
+            @Override
+            public void onRefreshEnd(long sequence) {
+            }
+        }));
+        List<IOrder> batch = new ArrayList<>();
+        batch.add(new LimitOrder('S', 1, (short) 101, 10));
+        batch.add(new LimitOrder('S', 2, (short) 101, 10));
+        batch.add(new LimitOrder('B', 3, (short) 101, 20));
+        batch.add(new LimitOrder('B', 4, (short) 99, 5));
+        book.newOrders(batch, new TradeBuffer());
+
+        // the offer level came and went within the batch, so only the new bid level is published
+        assertEquals(1, actions.size());
+        assertEquals(L2Handler.ADD, (byte) actions.get(0));
+        assertEquals(5, l2Book.getVisibleQty(true, (short) 99));
+    }
+
+    private static void assertBatchesMatchSingleOrders(ILimitOrderBook single, ILimitOrderBook batched) {
+        Random random = new Random(7);
+        TradeBuffer singleTrades = new TradeBuffer();
+        TradeBuffer batchTrades = new TradeBuffer();
+        int uid = 0;
+        for (int round = 0; round < 200; round++) {
+            List<IOrder> singleBatch = new ArrayList<>();
+            List<IOrder> batch = new ArrayList<>();
+            int size = 1 + random.nextInt(50);
+            for (int i = 0; i < size; i++) {
+                uid++;
+                char side = random.nextBoolean() ? 'B' : 'S';
+                long price = 90 + random.nextInt(21);
+                int qty = 1 + random.nextInt(200);
+                int kind = random.nextInt(10);
+                singleBatch.add(order(kind, side, uid, price, qty));
+                batch.add(order(kind, side, uid, price, qty));
+            }
+            for (IOrder order : singleBatch) {
+                single.newOrder(order, singleTrades);
+            }
+            batched.newOrders(batch, batchTrades);
+        }
+
+        assertEquals(singleTrades.toTrades(0), batchTrades.toTrades(0));
+        assertEquals(single.getBidDepth(), batched.getBidDepth());
+        assertEquals(single.getOfferDepth(), batched.getOfferDepth());
+        for (int i = 0; i < single.getBidDepth(); i++) {
+            assertEquals(single.getBidsByPriceTime().get(i).getUid(), batched.getBidsByPriceTime().get(i).getUid());
+            assertEquals(single.getBidsByPriceTime().get(i).getRemainingQty(), batched.getBidsByPriceTime().get(i).getRemainingQty());
+        }
+    }
+
+    private static IOrder order(int kind, char side, int uid, long price, int qty) {
+        switch (kind) {
+            case 0:
+                return new IcebergOrder(side, uid, price, qty * 5, 1 + qty / 10);
+            case 1:
+                return new LimitOrder(side, uid, price, qty, TimeInForce.IMMEDIATE_OR_CANCEL);
+            case 2:
+                return new LimitOrder(side, uid, price, qty, TimeInForce.FILL_OR_KILL);
+            case 3:
+                return new MarketOrder(side, uid, qty, TimeInForce.IMMEDIATE_OR_CANCEL);
+            default:
+                return new LimitOrder(side, uid, price, qty);
+        }
+    }
+
+    private static class CountingListener implements OrderBookListener {
+        private int accepted;
+        private int trades;
+        private int bookChanges;
+
+        @Override
+        public void onOrderAccepted(IOrder order) {
+            accepted++;
+        }
+
+        @Override
+        public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+            trades++;
+        }
+
+        @Override
+        public void onBookChanged(ILimitOrderBook book) {
+            bookChanges++;
+        }
+    }
+}
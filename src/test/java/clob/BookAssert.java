@@ -0,0 +1,32 @@
+package clob;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Assertions comparing the resting orders of two books, order by order in price-time priority.
+ */
+public final class BookAssert {
+
+    private BookAssert() {
+    }
+
+    public static void assertBooksEqual(ILimitOrderBook expected, ILimitOrderBook actual) {
+        assertOrdersEqual(expected.getBidsByPriceTime(), actual.getBidsByPriceTime());
+        assertOrdersEqual(expected.getOffersByPriceTime(), actual.getOffersByPriceTime());
+    }
+
+    public static void assertOrdersEqual(List<IOrder> expected, List<IOrder> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            IOrder e = expected.get(i);
+            IOrder a = actual.get(i);
+            assertEquals(e.getUid(), a.getUid());
+            assertEquals(e.getPrice(), a.getPrice());
+            assertEquals(e.getRemainingQty(), a.getRemainingQty());
+            assertEquals(e.getPeakSize(), a.getPeakSize());
+            assertEquals(e.getRevealedQty(), a.getRevealedQty());
+        }
+    }
+}
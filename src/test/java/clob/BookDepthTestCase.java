@@ -0,0 +1,129 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BookDepthTestCase {
+
+    @Test
+    public void testLevelTotals() {
+        ILimitOrderBook book = new LadderLimitOrderBook();
+        BookDepth depth = book.getDepth();
+        book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        book.newOrder(new IcebergOrder('B', 2, (short) 100, 100, 20));
+        book.newOrder(new LimitOrder('B', 3, (short) 98, 5));
+        book.newOrder(new LimitOrder('S', 4, (short) 103, 7));
+
+        assertEquals(30, depth.getVisibleQty(true, (short) 100));
+        assertEquals(80, depth.getHiddenQty(true, (short) 100));
+        assertEquals(2, depth.getOrderCount(true, (short) 100));
+        assertFalse(depth.hasLevel(true, (short) 99));
+        assertEquals(0, depth.getVisibleQty(true, (short) 99));
+        assertEquals(2, depth.getLevelCount(true));
+        assertEquals(1, depth.getLevelCount(false));
+        assertEquals(100, depth.getBestPrice(true));
+        assertEquals(103, depth.getBestPrice(false));
+
+        assertEquals(35, depth.getVisibleQtyAtOrBetter(true, (short) 98));
+        assertEquals(30, depth.getVisibleQtyAtOrBetter(true, (short) 99));
+        assertEquals(0, depth.getVisibleQtyAtOrBetter(true, (short) 101));
+        assertEquals(115, depth.getTotalQtyAtOrBetter(true, Long.MIN_VALUE));
+        assertEquals(3, depth.getOrderCountAtOrBetter(true, (short) 98));
+        assertEquals(0, depth.getVisibleQtyAtOrBetter(false, (short) 102));
+        assertEquals(7, depth.getVisibleQtyAtOrBetter(false, Long.MAX_VALUE));
+        assertEquals(30, depth.getVisibleQtyWithinTicks(true, 1));
+        assertEquals(35, depth.getVisibleQtyWithinTicks(true, 2));
+
+        long[] prices = new long[5];
+        assertEquals(2, depth.getTopPrices(true, prices));
+        assertEquals(100, prices[0]);
+        assertEquals(98, prices[1]);
+
+        book.newOrder(new LimitOrder('S', 5, (short) 100, 25));
+        assertEquals(5, depth.getVisibleQty(true, (short) 100));
+        assertEquals(80, depth.getHiddenQty(true, (short) 100));
+        assertEquals(1, depth.getOrderCount(true, (short) 100));
+
+        book.reset();
+        assertEquals(0, depth.getLevelCount(true));
+        assertEquals(0, depth.getLevelCount(false));
+        assertEquals(0, depth.getVisibleQty(true));
+        assertEquals(0, depth.getTopPrices(false, prices));
+        assertEquals(0, depth.getVisibleQtyWithinTicks(false, 10));
+    }
+
+    @Test
+    public void testDepthBuiltFromExistingBook() {
+        for (ILimitOrderBook book : new ILimitOrderBook[]{new LadderLimitOrderBook(), new LimitOrderBook()}) {
+            book.restoreOrder('B', 1, (short) 100, 50, 10, 4);
+            book.restoreOrder('B', 2, (short) 100, 20, 0, 20);
+            book.restoreOrder('S', 3, (short) 101, 30, 0, 30);
+            BookDepth depth = book.getDepth();
+            assertEquals(24, depth.getVisibleQty(true, (short) 100));
+            assertEquals(46, depth.getHiddenQty(true, (short) 100));
+            assertEquals(30, depth.getVisibleQty(false));
+            book.cancelOrder(3);
+            assertEquals(0, depth.getLevelCount(false));
+        }
+    }
+
+    @Test
+    public void testLadderBookRandomFlow() {
+        assertDepthFollowsRandomFlow(new LadderLimitOrderBook(), 3);
+    }
+
+    @Test
+    public void testListBookRandomFlow() {
+        assertDepthFollowsRandomFlow(new LimitOrderBook(), 4);
+    }
+
+    private static void assertDepthFollowsRandomFlow(ILimitOrderBook book, long seed) {
+        BookDepth depth = book.getDepth();
+        RandomOrderFlow.run(seed, 5000, uid -> {
+            assertDepth(book.getBidsByPriceTime(), depth, true);
+            assertDepth(book.getOffersByPriceTime(), depth, false);
+        }, book);
+    }
+
+    @Test
+    public void testJournaledBookDelegates() {
+        LadderLimitOrderBook inner = new LadderLimitOrderBook();
+        assertTrue(inner.getDepth() == new JournaledLimitOrderBook(inner, null).getDepth());
+    }
+
+    private static void assertDepth(List<IOrder> orders, BookDepth depth, boolean bidSide) {
+        long cumulativeVisible = 0;
+        long cumulativeHidden = 0;
+        int levels = 0;
+        int i = 0;
+        while (i < orders.size()) {
+            long price = orders.get(i).getPrice();
+            long visibleQty = 0;
+            long hiddenQty = 0;
+            int count = 0;
+            for (; i < orders.size() && orders.get(i).getPrice() == price; i++) {
+                visibleQty += orders.get(i).getRevealedQty();
+                hiddenQty += orders.get(i).getRemainingQty() - orders.get(i).getRevealedQty();
+                count++;
+            }
+            cumulativeVisible += visibleQty;
+            cumulativeHidden += hiddenQty;
+            levels++;
+            assertEquals("visible at " + price, visibleQty, depth.getVisibleQty(bidSide, price));
+            assertEquals("hidden at " + price, hiddenQty, depth.getHiddenQty(bidSide, price));
+            assertEquals("orders at " + price, count, depth.getOrderCount(bidSide, price));
+            assertEquals("visible up to " + price, cumulativeVisible, depth.getVisibleQtyAtOrBetter(bidSide, price));
+            assertEquals("hidden up to " + price, cumulativeHidden, depth.getHiddenQtyAtOrBetter(bidSide, price));
+            assertEquals("orders up to " + price, i, depth.getOrderCountAtOrBetter(bidSide, price));
+        }
+        assertEquals(levels, depth.getLevelCount(bidSide));
+        assertEquals(orders.size(), depth.getOrderCount(bidSide));
+        assertEquals(cumulativeVisible, depth.getVisibleQty(bidSide));
+    }
+}
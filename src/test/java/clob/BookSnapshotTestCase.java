@@ -0,0 +1,117 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static clob.BookAssert.assertBooksEqual;
+import static org.junit.Assert.assertEquals;
+
+public class BookSnapshotTestCase {
+
+    @Test
+    public void testRoundTripKeepsQueuePositionAndPeaks() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".dat");
+        try {
+            LadderLimitOrderBook original = new LadderLimitOrderBook();
+            original.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+            original.newOrder(new IcebergOrder('B', 2, (short) 100, 50, 20));
+            original.newOrder(new LimitOrder('B', 3, (short) 101, 5));
+            original.newOrder(new IcebergOrder('S', 4, (short) 110, 100, 30));
+            original.newOrder(new LimitOrder('S', 5, (short) 110, 15));
+            original.newOrder(new LimitOrder('B', 6, (short) 110, 12));
+
+            BookSnapshot.write(original, 42, path);
+            assertEquals(BookSnapshot.HEADER_LENGTH + 5 * BookSnapshot.ORDER_LENGTH, Files.size(path));
+
+            for (ILimitOrderBook restored : new ILimitOrderBook[]{new LadderLimitOrderBook(), new LimitOrderBook()}) {
+                assertEquals(42, BookSnapshot.load(path, restored));
+                assertBooksEqual(original, restored);
+                assertEquals(18, restored.getBestOffer().getRevealedQty());
+
+                // both books continue matching from the restored state
+                List<Trade> trades = restored.newOrder(new LimitOrder('B', 7, (short) 110, 20));
+                assertEquals(new Trade(7, 4, (short) 110, 18), trades.get(0));
+                assertEquals(new Trade(7, 5, (short) 110, 2), trades.get(1));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testSnapshotPlusJournalTail() throws IOException {
+        Path journalPath = Files.createTempFile("journal", ".dat");
+        Path snapshotPath = Files.createTempFile("snapshot", ".dat");
+        try {
+            LadderLimitOrderBook live = new LadderLimitOrderBook();
+            Random random = new Random(7);
+            long snapshotSequence = 0;
+            long lastSequence;
+            try (EventJournal journal = new EventJournal(journalPath, SyncPolicy.NONE)) {
+                JournaledLimitOrderBook book = new JournaledLimitOrderBook(live, journal);
+                for (int uid = 1; uid <= 2000; uid++) {
+                    submitRandomOrder(book, random, uid);
+                    if (uid == 1500) {
+                        book.snapshot(snapshotPath);
+                        snapshotSequence = journal.getLastSequence();
+                    }
+                }
+                lastSequence = journal.getLastSequence();
+            }
+
+            try (EventJournal journal = new EventJournal(journalPath, SyncPolicy.NONE)) {
+                LadderLimitOrderBook restored = new LadderLimitOrderBook();
+                long sequence = BookSnapshot.load(snapshotPath, restored);
+                assertEquals(snapshotSequence, sequence);
+                assertEquals(lastSequence - snapshotSequence, new JournaledLimitOrderBook(restored, journal).recover(sequence));
+                assertBooksEqual(live, restored);
+            }
+        } finally {
+            Files.delete(journalPath);
+            Files.delete(snapshotPath);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadIntoNonEmptyBook() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".dat");
+        try {
+            BookSnapshot.write(new LimitOrderBook(), 0, path);
+            LimitOrderBook book = new LimitOrderBook();
+            book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+            BookSnapshot.load(path, book);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRejectsOtherFiles() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".dat");
+        try {
+            Files.write(path, new byte[BookSnapshot.HEADER_LENGTH]);
+            BookSnapshot.load(path, new LimitOrderBook());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void submitRandomOrder(ILimitOrderBook book, Random random, int uid) {
+        char side = random.nextBoolean() ? 'B' : 'S';
+        long price = side == 'B' ? 95 + random.nextInt(10) : 100 + random.nextInt(10);
+        int qty = 1 + random.nextInt(100);
+        if (random.nextInt(4) == 0) {
+            book.newOrder(new IcebergOrder(side, uid, price, qty, 1 + random.nextInt(20)));
+        } else {
+            book.newOrder(new LimitOrder(side, uid, price, qty));
+        }
+        if (random.nextInt(10) == 0) {
+            book.cancelOrder(1 + random.nextInt(uid));
+        }
+    }
+}
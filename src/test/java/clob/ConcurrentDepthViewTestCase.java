@@ -0,0 +1,160 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentDepthViewTestCase {
+
+    @Test
+    public void testPublishesTopLevels() {
+        ConcurrentDepthView view = new ConcurrentDepthView(2);
+        LadderLimitOrderBook book = new LadderLimitOrderBook(view);
+        book.newOrder(new LimitOrder('B', 1, 100, 10));
+        book.newOrder(new IcebergOrder('B', 2, 100, 50, 5));
+        book.newOrder(new LimitOrder('B', 3, 98, 30));
+        book.newOrder(new LimitOrder('B', 4, 97, 40));
+        book.newOrder(new LimitOrder('S', 5, 103, 50));
+
+        DepthSnapshot snapshot = view.read(new DepthSnapshot());
+        assertEquals(2, snapshot.getLevelCount(true));
+        assertEquals(1, snapshot.getLevelCount(false));
+        assertEquals(100, snapshot.getBestPrice(true));
+        assertEquals(15, snapshot.getVisibleQty(true, 0));
+        assertEquals(45, snapshot.getHiddenQty(true, 0));
+        assertEquals(2, snapshot.getOrderCount(true, 0));
+        assertEquals(98, snapshot.getPrice(true, 1));
+        assertEquals(103, snapshot.getBestPrice(false));
+        assertEquals(view.getVersion(), snapshot.getVersion());
+
+        // sweeping the best bid pulls the next level into view
+        book.newOrder(new LimitOrder('S', 6, 100, 60));
+        view.read(snapshot);
+        assertEquals(98, snapshot.getBestPrice(true));
+        assertEquals(97, snapshot.getPrice(true, 1));
+    }
+
+    @Test
+    public void testChangesOutsideTheViewAreNotPublished() {
+        ConcurrentDepthView view = new ConcurrentDepthView(1);
+        LimitOrderBook book = new LimitOrderBook(view);
+        book.newOrder(new LimitOrder('B', 1, 100, 10));
+        book.newOrder(new LimitOrder('S', 2, 101, 10));
+        long version = view.getVersion();
+        book.newOrder(new LimitOrder('B', 3, 99, 10));
+        book.newOrder(new LimitOrder('S', 4, 102, 10));
+        book.cancelOrder(3);
+        assertEquals(version, view.getVersion());
+        book.newOrder(new LimitOrder('B', 5, 100, 10));
+        assertEquals(version + 1, view.getVersion());
+        assertEquals(20, view.read(new DepthSnapshot()).getVisibleQty(true, 0));
+    }
+
+    @Test
+    public void testMatchesBookDepth() {
+        ConcurrentDepthView view = new ConcurrentDepthView(8);
+        LadderLimitOrderBook book = new LadderLimitOrderBook(view);
+        Random random = new Random(21);
+        DepthSnapshot snapshot = new DepthSnapshot();
+        long[] prices = new long[8];
+        for (int uid = 1; uid <= 20_000; uid++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            long price = 1000 + random.nextInt(40) - (side == 'B' ? 25 : 0);
+            int peak = random.nextInt(4) == 0 ? 1 + random.nextInt(10) : 0;
+            int qty = 1 + random.nextInt(100);
+            book.newOrder(peak > 0 ? new IcebergOrder(side, uid, price, qty, peak) : new LimitOrder(side, uid, price, qty));
+            if (random.nextInt(3) == 0) {
+                book.cancelOrder(1 + random.nextInt(uid));
+            }
+
+            view.read(snapshot);
+            BookDepth depth = book.getDepth();
+            for (boolean bidSide : new boolean[]{true, false}) {
+                int count = depth.getTopPrices(bidSide, prices);
+                assertEquals(count, snapshot.getLevelCount(bidSide));
+                for (int level = 0; level < count; level++) {
+                    assertEquals(prices[level], snapshot.getPrice(bidSide, level));
+                    assertEquals(depth.getVisibleQty(bidSide, prices[level]), snapshot.getVisibleQty(bidSide, level));
+                    assertEquals(depth.getHiddenQty(bidSide, prices[level]), snapshot.getHiddenQty(bidSide, level));
+                    assertEquals(depth.getOrderCount(bidSide, prices[level]), snapshot.getOrderCount(bidSide, level));
+                }
+            }
+        }
+    }
+
+    /**
+     * Every batch adds a bid and an offer of the same size, so a consistent view always shows as much on both sides.
+     */
+    @Test
+    public void testReadersNeverSeeHalfAnUpdate() throws InterruptedException {
+        ConcurrentDepthView view = new ConcurrentDepthView(16);
+        LadderLimitOrderBook book = new LadderLimitOrderBook(view);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                DepthSnapshot snapshot = new DepthSnapshot();
+                long lastVersion = -1;
+                while (!done.get() && failure.get() == null) {
+                    view.read(snapshot);
+                    String problem = check(snapshot, lastVersion);
+                    if (problem != null) {
+                        failure.compareAndSet(null, problem + "\n" + snapshot);
+                    }
+                    lastVersion = snapshot.getVersion();
+                    reads.incrementAndGet();
+                }
+            });
+            readers[r].start();
+        }
+        Random random = new Random(13);
+        TradeBuffer trades = new TradeBuffer();
+        int uid = 1;
+        for (int i = 0; i < 200_000 && failure.get() == null; i++) {
+            int qty = 1 + random.nextInt(100);
+            book.newOrders(Arrays.asList(new LimitOrder('B', uid++, 100 - random.nextInt(16), qty),
+                    new LimitOrder('S', uid++, 101 + random.nextInt(16), qty)), trades);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(reads.get() > 0);
+    }
+
+    private static String check(DepthSnapshot snapshot, long lastVersion) {
+        if (snapshot.getVersion() < lastVersion) {
+            return "version went back from " + lastVersion;
+        }
+        long bidQty = 0;
+        long offerQty = 0;
+        int bidOrders = 0;
+        int offerOrders = 0;
+        for (int level = 0; level < snapshot.getLevelCount(true); level++) {
+            if (level > 0 && snapshot.getPrice(true, level) >= snapshot.getPrice(true, level - 1)) {
+                return "bids out of order";
+            }
+            bidQty += snapshot.getVisibleQty(true, level);
+            bidOrders += snapshot.getOrderCount(true, level);
+        }
+        for (int level = 0; level < snapshot.getLevelCount(false); level++) {
+            if (level > 0 && snapshot.getPrice(false, level) <= snapshot.getPrice(false, level - 1)) {
+                return "offers out of order";
+            }
+            offerQty += snapshot.getVisibleQty(false, level);
+            offerOrders += snapshot.getOrderCount(false, level);
+        }
+        return bidQty == offerQty && bidOrders == offerOrders ? null : "sides differ";
+    }
+}
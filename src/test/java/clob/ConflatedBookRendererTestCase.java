@@ -0,0 +1,228 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConflatedBookRendererTestCase {
+
+    @Test
+    public void testRendersEveryNEvents() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 10, 0);
+        LimitOrderBook book = new LimitOrderBook(renderer);
+        renderer.start();
+        for (int uid = 1; uid <= 95; uid++) {
+            book.newOrder(new LimitOrder(uid % 2 == 0 ? 'B' : 'S', uid, uid % 2 == 0 ? 100 - uid % 7 : 101 + uid % 7, 10));
+        }
+        renderer.close();
+
+        // at most one capture per ten events, fewer while the printer still holds the snapshot, and the rest on close
+        assertTrue(renderer.getCaptureCount() >= 1 && renderer.getCaptureCount() <= 10);
+        assertEquals(renderer.getCaptureCount(), renderer.getRenderCount());
+        StringBuilder expected = new StringBuilder();
+        DisplayUtil.displayBook(expected, book);
+        String output = out.toString();
+        assertTrue(output.endsWith(expected + "\n"));
+    }
+
+    @Test
+    public void testTopLevelsOnly() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 0, 2);
+        LimitOrderBook book = new LimitOrderBook(renderer);
+        book.newOrder(new LimitOrder('B', 1, 100, 10));
+        book.newOrder(new LimitOrder('B', 2, 99, 20));
+        book.newOrder(new LimitOrder('B', 3, 100, 30));
+        book.newOrder(new LimitOrder('B', 4, 98, 40));
+        book.newOrder(new LimitOrder('S', 5, 103, 50));
+        renderer.close();
+
+        String table = out.toString();
+        String last = table.substring(table.lastIndexOf("+-----------------------------------------------------------------+\n| BUY"));
+        assertEquals("+-----------------------------------------------------------------+\n" +
+                "| BUY                            | SELL                           |\n" +
+                "| Id       | Volume      | Price | Price | Volume      | Id       |\n" +
+                "+----------+-------------+-------+-------+-------------+----------+\n" +
+                "|         1|           10|    100|    103|           50|         5|\n" +
+                "|         3|           30|    100|       |             |          |\n" +
+                "|         2|           20|     99|       |             |          |\n" +
+                "+-----------------------------------------------------------------+\n", last);
+    }
+
+    @Test
+    public void testChangesBelowTheTopLevelsAreNotRendered() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 0, 1);
+        LimitOrderBook book = new LimitOrderBook(renderer);
+        book.newOrder(new LimitOrder('B', 1, 100, 10));
+        assertEquals(1, renderer.getCaptureCount());
+        assertFalse(renderer.isDirty());
+        book.newOrder(new LimitOrder('B', 2, 99, 10));
+        book.newOrder(new LimitOrder('B', 3, 98, 10));
+        book.cancelOrder(3);
+        assertFalse(renderer.isDirty());
+        assertEquals(1, renderer.getCaptureCount());
+
+        // the printer never started, so the snapshot is not back and the change stays pending until close
+        book.newOrder(new LimitOrder('B', 5, 100, 10));
+        assertTrue(renderer.isDirty());
+        assertEquals(1, renderer.getCaptureCount());
+        renderer.close();
+        assertFalse(renderer.isDirty());
+        assertEquals(2, renderer.getCaptureCount());
+        assertEquals(2, renderer.getRenderCount());
+    }
+
+    @Test
+    public void testFlushIfDueKeepsToTheEventLimit() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 5, 0);
+        LimitOrderBook book = new LimitOrderBook(renderer);
+        for (int uid = 1; uid <= 4; uid++) {
+            book.newOrder(new LimitOrder('B', uid, 100 - uid, 10));
+            renderer.flushIfDue();
+        }
+        assertEquals(0, renderer.getCaptureCount());
+        assertTrue(renderer.isDirty());
+
+        book.newOrder(new LimitOrder('B', 5, 95, 10));
+        assertEquals(1, renderer.getCaptureCount());
+        book.newOrder(new LimitOrder('B', 6, 94, 10));
+        renderer.flushIfDue();
+        assertEquals(1, renderer.getCaptureCount());
+        renderer.close();
+        assertEquals(2, renderer.getCaptureCount());
+        assertEquals(2, renderer.getRenderCount());
+    }
+
+    @Test
+    public void testCaptureVisitsOnlyTheLevelsShown() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 0, 2);
+        StringBuilder visited = new StringBuilder();
+        LadderLimitOrderBook book = new LadderLimitOrderBook(renderer) {
+            @Override
+            public List<IOrder> getBidsByPriceTime() {
+                throw new AssertionError("copied every bid");
+            }
+
+            @Override
+            public List<IOrder> getOffersByPriceTime() {
+                throw new AssertionError("copied every offer");
+            }
+
+            @Override
+            public void forEachOrderAt(boolean bidSide, long price, LevelVisitor visitor) {
+                visited.append(bidSide ? 'B' : 'S').append(price).append(';');
+                super.forEachOrderAt(bidSide, price, visitor);
+            }
+        };
+        renderer.setMuted(true);
+        for (int uid = 1; uid <= 1_000; uid++) {
+            book.newOrder(new LimitOrder('B', uid, 1_000 - uid, 10));
+            book.newOrder(new LimitOrder('S', uid + 1_000, 1_001 + uid, 10));
+        }
+        book.newOrder(new LimitOrder('B', 3_000, 999, 10));
+        renderer.setMuted(false);
+        renderer.flush();
+
+        assertEquals(1, renderer.getCaptureCount());
+        assertEquals("B999;B998;S1002;S1003;", visited.toString());
+        renderer.close();
+        assertTrue(out.toString().contains("|      3000|           10|    999|"));
+    }
+
+    @Test
+    public void testBackgroundPrinterSeesConsistentBooks() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 1, 0, 5);
+        LadderLimitOrderBook book = new LadderLimitOrderBook(renderer);
+        renderer.start();
+        Random random = new Random(7);
+        for (int uid = 1; uid <= 200_000; uid++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            book.newOrder(new LimitOrder(side, uid, 100 + random.nextInt(20) - (side == 'B' ? 12 : 0), 1 + random.nextInt(100)));
+        }
+        renderer.close();
+
+        assertTrue(renderer.getRenderCount() > 0);
+        assertTrue(renderer.getCaptureCount() < 200_000);
+        // every table is whole: full width lines, opened and closed by the same border
+        for (String table : out.toString().split("(?<=\\+-{65}\\+\n)(?=\\+-{65}\\+\n\\| BUY)")) {
+            String[] lines = table.split("\n");
+            assertEquals(lines[0], lines[lines.length - 1]);
+            for (String line : lines) {
+                assertEquals(67, line.length());
+            }
+        }
+    }
+
+    @Test
+    public void testTradeLinesNeverLandInsideATable() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(out, true);
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(stream, 0, 0, 0,
+                new ConsoleOrderBookListener(stream, false));
+        LadderLimitOrderBook book = new LadderLimitOrderBook(renderer);
+        // several hundred levels make every table several times the size of a formatter's initial buffer
+        for (int uid = 1; uid <= 400; uid++) {
+            book.newOrder(new LimitOrder('B', uid, 1000 - uid, 1_000));
+        }
+        renderer.start();
+        for (int uid = 401; uid <= 5_000; uid++) {
+            book.newOrder(new LimitOrder('S', uid, 600, 1));
+            book.newOrder(new LimitOrder('B', uid + 10_000, 100, 1));
+        }
+        renderer.close();
+
+        assertTrue(renderer.getRenderCount() > 1);
+        String border = "+-----------------------------------------------------------------+";
+        int tableLines = 0;
+        int trades = 0;
+        for (String line : out.toString().split("\n")) {
+            if (tableLines == 0) {
+                if (line.equals(border)) {
+                    tableLines = 1;
+                } else if (!line.isEmpty()) {
+                    assertTrue(line, line.matches("\\d+,\\d+,\\d+,1"));
+                    trades++;
+                }
+            } else {
+                assertTrue("inside a table: " + line, line.startsWith("|") || line.startsWith("+"));
+                tableLines = line.equals(border) ? 0 : tableLines + 1;
+            }
+        }
+        assertEquals(0, tableLines);
+        assertEquals(4_600, trades);
+    }
+
+    @Test
+    public void testMutedRendererShowsTheStateOnceResumed() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConflatedBookRenderer renderer = new ConflatedBookRenderer(new PrintStream(out, true), 0, 0, 0);
+        LimitOrderBook book = new LimitOrderBook(renderer);
+        renderer.setMuted(true);
+        book.newOrder(new LimitOrder('B', 1, 100, 10));
+        book.newOrder(new LimitOrder('S', 2, 101, 10));
+        renderer.flush();
+        assertEquals(0, renderer.getCaptureCount());
+        assertTrue(renderer.isDirty());
+
+        renderer.setMuted(false);
+        renderer.flush();
+        assertEquals(1, renderer.getCaptureCount());
+        renderer.close();
+        assertEquals(1, renderer.getRenderCount());
+        StringBuilder expected = new StringBuilder();
+        DisplayUtil.displayBook(expected, book);
+        assertEquals(expected + "\n", out.toString());
+    }
+}
@@ -2,6 +2,12 @@ package clob;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.Locale;
+import java.util.Random;
+
 import static clob.DisplayUtil.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -119,4 +125,88 @@ public class DisplayUtilTestCase {
                 "|          |             |       | 32,507|        3,000|     42100|\n" +
                 "+-----------------------------------------------------------------+", sb.toString());
     }
+
+    @Test
+    public void testConsoleListenerPrintsTradesAndBook() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LimitOrderBook lob = new LimitOrderBook(new ConsoleOrderBookListener(new PrintStream(out, true)));
+        lob.newOrder(new LimitOrder('B', 1138, (short) 31_502, 7_500));
+        out.reset();
+
+        lob.newOrder(new LimitOrder('S', 6808, (short) 31_502, 7_777));
+        assertEquals("1138,6808,31502,7500\n" +
+                "+-----------------------------------------------------------------+\n" +
+                "| BUY                            | SELL                           |\n" +
+                "| Id       | Volume      | Price | Price | Volume      | Id       |\n" +
+                "+----------+-------------+-------+-------+-------------+----------+\n" +
+                "|          |             |       | 31,502|          277|      6808|\n" +
+                "+-----------------------------------------------------------------+\n", out.toString().replace(System.lineSeparator(), "\n"));
+    }
+
+    @Test
+    public void testByteFormatterMatchesStringFormat() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteFormatter formatter = new ByteFormatter(Channels.newChannel(out), 64);
+        StringBuilder expected = new StringBuilder();
+        long[] edges = {0, 7, -7, 999, 1000, -1000, 999_999, 1_000_000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        Random random = new Random(17);
+        for (int i = 0; i < 10_000; i++) {
+            long value = i < edges.length ? edges[i] : random.nextLong() >> random.nextInt(64);
+            int width = random.nextInt(16);
+            boolean grouped = random.nextBoolean();
+            String format = "%" + (grouped ? "," : "") + (width == 0 ? "" : width) + "d|";
+            expected.append(String.format(Locale.ENGLISH, format, value));
+            formatter.appendRight(value, width, grouped).append('|');
+        }
+        formatter.flush();
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testByteFormatterPrintsBook() {
+        LimitOrderBook lob = new LimitOrderBook();
+        lob.newOrder(new LimitOrder('B', 1234567890, 32_503, 1_234_567_890));
+        lob.newOrder(new IcebergOrder('B', 1138, 31_502, 7_500, 500));
+        lob.newOrder(new LimitOrder('B', 7, -12_000_000, 3));
+        lob.newOrder(new LimitOrder('S', 1234567891, 32_504, 1_234_567_890));
+        lob.newOrder(new LimitOrder('S', 6808, 32_505, 7_777));
+        lob.newOrder(new LimitOrder('S', 42100, 32_507, 3_000));
+        StringBuilder sb = new StringBuilder();
+        displayBook(sb, lob);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteFormatter formatter = new ByteFormatter(Channels.newChannel(out), 100);
+        displayBook(formatter, lob);
+        printTradeOn(formatter, 1, 2, -3, 4);
+        formatter.flush();
+        assertEquals(sb + "1,2,-3,4\n", out.toString());
+    }
+
+    @Test
+    public void testGrowingByteFormatterWritesOnceOnFlush() {
+        int[] writes = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(out) {
+            @Override
+            public void write(byte[] buf, int off, int len) {
+                writes[0]++;
+                super.write(buf, off, len);
+            }
+        };
+        ByteFormatter formatter = new ByteFormatter(new PrintStreamChannel(stream), 32, true);
+        formatter.repeat('-', 100).appendRight(1_234_567, 40, true).newLine();
+        assertEquals(0, writes[0]);
+        assertEquals(141, formatter.size());
+        formatter.flush();
+        assertEquals(1, writes[0]);
+        assertEquals(repeat('-', 100) + repeat(' ', 31) + "1,234,567\n", out.toString());
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,191 @@
+package clob;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EngineMetricsTestCase {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertWithinPrecision(5000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(9900, histogram.getValueAtPercentile(99));
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value : new long[]{0, 1, 127, 128, 129, 255, 256, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueInBucket(index);
+            assertTrue(value + " above its bucket", value <= highest);
+            assertTrue(value + " too coarse", highest - value <= value / 64);
+            if (index > 0) {
+                assertTrue(value + " below its bucket", LatencyHistogram.highestValueInBucket(index - 1) < value);
+            }
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void testCountersOnLadderBook() {
+        EngineMetrics metrics = new EngineMetrics();
+        ILimitOrderBook book = new LadderLimitOrderBook(metrics);
+        book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+        book.newOrder(new IcebergOrder('S', 2, (short) 102, 100, 10));
+        book.newOrder(new LimitOrder('S', 3, (short) 103, 10));
+        book.newOrder(new LimitOrder('B', 4, (short) 102, 25));
+        book.cancelOrder(3);
+
+        assertEquals(4, metrics.getOrderCount());
+        assertEquals(1, metrics.getCancelAndAmendCount());
+        assertEquals(3, metrics.getTradeCount());
+        assertEquals(25, metrics.getTradedQty());
+        assertEquals(1, metrics.getLevelsSwept());
+        assertEquals(1, metrics.getIcebergReplenishments());
+        assertEquals(0, metrics.getBidDepth());
+        assertEquals(1, metrics.getOfferDepth());
+        assertEquals(4, metrics.getMatchLatency().getCount());
+        assertEquals(0, metrics.getRenderLatency().getCount());
+        assertTrue(metrics.toString(), metrics.toString().contains("levelsSwept=1"));
+    }
+
+    @Test
+    public void testCountersOnListBook() {
+        EngineMetrics metrics = new EngineMetrics(new ConsoleOrderBookListener(new PrintStream(new ByteArrayOutputStream())));
+        ILimitOrderBook book = new LimitOrderBook(metrics);
+        book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        book.newOrder(new LimitOrder('B', 2, (short) 99, 10));
+        book.newOrder(new LimitOrder('S', 3, (short) 99, 15));
+
+        assertEquals(3, metrics.getOrderCount());
+        assertEquals(2, metrics.getTradeCount());
+        assertEquals(1, metrics.getLevelsSwept());
+        assertEquals(1, metrics.getBidDepth());
+        assertEquals(3, metrics.getRenderLatency().getCount());
+    }
+
+    @Test
+    public void testMatchLatencyExcludesTheDelegate() {
+        OrderBookListener slowPrinter = new OrderBookListener() {
+            @Override
+            public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+                sleep(20);
+            }
+        };
+        EngineMetrics metrics = new EngineMetrics(slowPrinter);
+        ILimitOrderBook book = new LadderLimitOrderBook(metrics);
+        book.newOrder(new LimitOrder('S', 1, 101, 10));
+        book.newOrder(new LimitOrder('S', 2, 101, 10));
+        book.newOrder(new LimitOrder('B', 3, 101, 20));
+
+        assertEquals(3, metrics.getMatchLatency().getCount());
+        assertTrue(metrics.toString(), metrics.getMatchLatency().getMax() < 20_000_000);
+        assertTrue(metrics.toString(), metrics.getRenderLatency().getMax() >= 40_000_000);
+    }
+
+    @Test
+    public void testRepricingAmendIsTimed() {
+        EngineMetrics listMetrics = new EngineMetrics();
+        assertRepricingAmendIsTimed(new LimitOrderBook(listMetrics), listMetrics);
+        EngineMetrics ladderMetrics = new EngineMetrics();
+        assertRepricingAmendIsTimed(new LadderLimitOrderBook(ladderMetrics), ladderMetrics);
+    }
+
+    private static void assertRepricingAmendIsTimed(ILimitOrderBook book, EngineMetrics metrics) {
+        book.newOrder(new LimitOrder('S', 1, 101, 10));
+        book.newOrder(new LimitOrder('B', 2, 100, 5));
+        assertEquals(1, book.amendOrder(2, 5, 101).size());
+        book.cancelOrder(1);
+
+        assertEquals(2, metrics.getMatchLatency().getCount());
+        assertEquals(2, metrics.getCancelAndAmendCount());
+        assertEquals(2, metrics.getAmendLatency().getCount());
+        assertEquals(1, metrics.getTradeCount());
+    }
+
+    @Test
+    public void testFailedEventIsNotChargedToTheNext() {
+        OrderBookListener failing = new OrderBookListener() {
+            @Override
+            public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+                sleep(20);
+                throw new IllegalStateException("publisher down");
+            }
+        };
+        EngineMetrics metrics = new EngineMetrics(failing);
+        ILimitOrderBook book = new LadderLimitOrderBook(metrics);
+        book.newOrder(new LimitOrder('S', 1, 101, 10));
+        try {
+            book.newOrder(new LimitOrder('B', 2, 101, 5));
+        } catch (IllegalStateException e) {
+            metrics.eventFailed();
+        }
+        sleep(20);
+        book.cancelOrder(1);
+
+        assertEquals(1, metrics.getMatchLatency().getCount());
+        assertEquals(1, metrics.getAmendLatency().getCount());
+        assertTrue(metrics.toString(), metrics.getAmendLatency().getMax() < 20_000_000);
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        EngineMetrics metrics = new EngineMetrics();
+        LadderLimitOrderBook book = new LadderLimitOrderBook(metrics);
+        MutableOrder order = new MutableOrder();
+        TradeBuffer trades = new TradeBuffer();
+        for (int i = 0; i < 20000; i++) {
+            cycle(book, order, trades, i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 20000; i++) {
+            cycle(book, order, trades, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+        assertEquals(80000, metrics.getOrderCount());
+    }
+
+    private static void cycle(LadderLimitOrderBook book, MutableOrder order, TradeBuffer trades, int i) {
+        trades.clear();
+        book.newOrder(order.set('S', 2 * i, (short) 100, 10, 4), trades);
+        book.newOrder(order.set('B', 2 * i + 1, (short) 100, 10, 0), trades);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 64 + 1);
+    }
+}
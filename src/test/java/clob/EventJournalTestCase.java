@@ -0,0 +1,121 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static clob.BookAssert.assertBooksEqual;
+import static org.junit.Assert.assertEquals;
+
+public class EventJournalTestCase {
+
+    @Test
+    public void testRecoverBookAfterRestart() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try {
+            LimitOrderBook original = new LimitOrderBook();
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.EVERY_EVENT)) {
+                JournaledLimitOrderBook book = new JournaledLimitOrderBook(original, journal);
+                book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+                book.newOrder(new LimitOrder('B', 2, (short) 101, 20));
+                book.newOrder(new LimitOrder('S', 3, (short) 105, 30));
+                book.newOrder(new LimitOrder('S', 4, (short) 101, 5));
+                book.cancelOrder(1);
+                book.amendOrder(3, 25, (short) 104);
+                assertEquals(6, journal.getLastSequence());
+            }
+
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                assertEquals(6, journal.getLastSequence());
+                LimitOrderBook recovered = new LimitOrderBook();
+                JournaledLimitOrderBook book = new JournaledLimitOrderBook(recovered, journal);
+                assertEquals(6, book.recover());
+                assertBooksEqual(original, recovered);
+
+                book.newOrder(new LimitOrder('B', 5, (short) 99, 1));
+                assertEquals(7, journal.getLastSequence());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try {
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.BATCH, 2, 1024)) {
+                journal.appendNewOrder(new LimitOrder('B', 1, (short) 100, 10));
+                journal.appendNewOrder(new LimitOrder('S', 2, (short) 110, 10));
+            }
+            // a crash after writing the message but before writing the sequence number of the second record
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 0L),
+                        EventJournal.RECORD_LENGTH + EventJournal.SEQUENCE_OFFSET);
+            }
+
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                assertEquals(1, journal.getLastSequence());
+                LimitOrderBook book = new LimitOrderBook();
+                assertEquals(1, new JournaledLimitOrderBook(book, journal).recover());
+                assertEquals(1, book.getBidDepth());
+                assertEquals(0, book.getOfferDepth());
+                assertEquals(2, journal.appendCancelOrder(1));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testJournalGrowsBeyondInitialMapping() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try {
+            int orders = 1000;
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE, 1, 4 * EventJournal.RECORD_LENGTH)) {
+                JournaledLimitOrderBook book = new JournaledLimitOrderBook(new LadderLimitOrderBook(), journal);
+                for (int i = 1; i <= orders; i++) {
+                    book.newOrder(new LimitOrder(i % 2 == 0 ? 'B' : 'S', i, (short) (i % 2 == 0 ? 100 - i % 7 : 101 + i % 7), i));
+                }
+            }
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                assertEquals(orders, journal.getLastSequence());
+                LadderLimitOrderBook book = new LadderLimitOrderBook();
+                new JournaledLimitOrderBook(book, journal).recover();
+                assertEquals(orders / 2, book.getBidDepth());
+                assertEquals(orders / 2, book.getOfferDepth());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testResetDiscardsJournal() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try {
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                JournaledLimitOrderBook book = new JournaledLimitOrderBook(new LimitOrderBook(), journal);
+                book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+                book.newOrder(new LimitOrder('B', 2, (short) 100, 10));
+                book.reset();
+                book.newOrder(new LimitOrder('S', 3, (short) 100, 10));
+                assertEquals(1, journal.getLastSequence());
+            }
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                LimitOrderBook book = new LimitOrderBook();
+                assertEquals(1, new JournaledLimitOrderBook(book, journal).recover());
+                assertEquals(0, book.getBidDepth());
+                assertEquals(3, book.getBestOffer().getUid());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
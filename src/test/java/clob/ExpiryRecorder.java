@@ -0,0 +1,19 @@
+package clob;
+
+/**
+ * Records the orders a book expires, as {@code uid:expiredQty;}, and counts its fills.
+ */
+class ExpiryRecorder implements OrderBookListener {
+    final StringBuilder expired = new StringBuilder();
+    int trades;
+
+    @Override
+    public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+        trades++;
+    }
+
+    @Override
+    public void onOrderExpired(int uid, int expiredQty) {
+        expired.append(uid).append(':').append(expiredQty).append(';');
+    }
+}
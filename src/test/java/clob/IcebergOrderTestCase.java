@@ -50,4 +50,16 @@ public class IcebergOrderTestCase {
         assertEquals(0, o1.getRevealedPeakQty());
         assertTrue(o1.isFilled());
     }
+
+    @Test
+    public void testFillStatistics() {
+        IcebergOrder o1 = new IcebergOrder('S', 1, (short) 100, 1000, 100);
+
+        o1.executedTrade(new Trade(2, 1, (short)101, 100));
+        o1.executedTrade(new Trade(3, 1, (short)102, 30));
+        assertEquals(130, o1.getFilledQty());
+        assertEquals(2, o1.getFillCount());
+        assertEquals(102, o1.getLastFillPrice());
+        assertEquals(870, o1.getRemainingQty());
+    }
 }
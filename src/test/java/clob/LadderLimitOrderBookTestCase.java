@@ -0,0 +1,355 @@
+package clob;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LadderLimitOrderBookTestCase {
+
+    @Test
+    public void testLimitOrderNlevels() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new LimitOrder('B', 1, (short) 101, 10);
+        IOrder o2 = new LimitOrder('B', 2, (short) 100, 10);
+        IOrder o3 = new LimitOrder('S', 3, (short) 103, 10);
+
+        List<Trade> trades = setupBook(lob, o1, o2, o3);
+        assertTrue(trades.isEmpty());
+
+        IOrder o5 = new LimitOrder('S', 5, (short) 100, 20);
+        trades = lob.newOrder(o5);
+        assertEquals(2, trades.size());
+        assertEquals(0, lob.getBidDepth());
+        assertEquals(1, lob.getOfferDepth());
+        assertEquals(new Trade(o1.getUid(), o5.getUid(), (short) 101, 10), trades.get(0));
+        assertEquals(new Trade(o2.getUid(), o5.getUid(), (short) 100, 10), trades.get(1));
+        assertNull(lob.getBestBid());
+        assertEquals(o3.getUid(), lob.getBestOffer().getUid());
+    }
+
+    @Test
+    public void testLimitOrderNewOrderPartiallyFilled() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new LimitOrder('B', 1, (short) 101, 10);
+        IOrder o2 = new LimitOrder('B', 2, (short) 100, 10);
+
+        List<Trade> trades = setupBook(lob, o1, o2);
+        assertTrue(trades.isEmpty());
+
+        IOrder o5 = new LimitOrder('S', 5, (short) 100, 25);
+        trades = lob.newOrder(o5);
+        assertEquals(2, trades.size());
+        assertEquals(0, lob.getBidDepth());
+        assertEquals(1, lob.getOfferDepth());
+        assertEquals(o5.getUid(), lob.getBestOffer().getUid());
+        assertEquals(5, lob.getBestOffer().getRemainingQty());
+    }
+
+    @Test
+    public void testAggressiveIcebergOrder() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new LimitOrder('B', 1, (short) 99, 50_000);
+        IOrder o2 = new LimitOrder('B', 2, (short) 98, 25_500);
+        IOrder o3 = new LimitOrder('S', 3, (short) 100, 10_000);
+        IOrder o4 = new LimitOrder('S', 4, (short) 100, 7_500);
+        IOrder o5 = new LimitOrder('S', 5, (short) 101, 20_000);
+
+        List<Trade> trades = setupBook(lob, o1, o2, o3, o4, o5);
+        assertTrue(trades.isEmpty());
+
+        IOrder o6 = new IcebergOrder('B', 6, (short) 100, 100_000, 10_000);
+        trades = lob.newOrder(o6);
+        assertEquals(2, trades.size());
+        assertEquals(3, lob.getBidDepth());
+        assertEquals(1, lob.getOfferDepth());
+        assertEquals(new Trade(o6.getUid(), o3.getUid(), (short) 100, 10_000), trades.get(0));
+        assertEquals(new Trade(o6.getUid(), o4.getUid(), (short) 100, 7_500), trades.get(1));
+        assertEquals(o6.getUid(), lob.getBestBid().getUid());
+        assertEquals(82_500, lob.getBestBid().getRemainingQty());
+        assertEquals(10_000, lob.getBestBid().getRevealedQty());
+    }
+
+    @Test
+    public void testPassiveIcebergOrderExceedingPeak() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new IcebergOrder('B', 1, (short) 100, 72_500, 10_000);
+        IOrder o2 = new LimitOrder('B', 2, (short) 99, 50_000);
+        IOrder o3 = new LimitOrder('B', 3, (short) 98, 25_500);
+        IOrder o4 = new LimitOrder('S', 4, (short) 101, 20_000);
+
+        List<Trade> trades = setupBook(lob, o1, o2, o3, o4);
+        assertTrue(trades.isEmpty());
+
+        IOrder o5 = new LimitOrder('S', 5, (short) 99, 11_000);
+        trades = lob.newOrder(o5);
+        assertEquals(2, trades.size());
+        assertEquals(new Trade(o1.getUid(), o5.getUid(), (short) 100, 10_000), trades.get(0));
+        assertEquals(new Trade(o1.getUid(), o5.getUid(), (short) 100, 1_000), trades.get(1));
+        assertEquals(o1.getUid(), lob.getBestBid().getUid());
+        assertEquals(61_500, lob.getBestBid().getRemainingQty());
+        assertEquals(9_000, lob.getBestBid().getRevealedQty());
+    }
+
+    @Test
+    public void testSecondPassiveIcebergOrder() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new IcebergOrder('B', 1, (short) 100, 72_500, 10_000);
+        IOrder o2 = new IcebergOrder('B', 2, (short) 100, 50_000, 20_000);
+        IOrder o3 = new LimitOrder('B', 3, (short) 99, 50_000);
+        IOrder o4 = new LimitOrder('S', 4, (short) 101, 20_000);
+
+        List<Trade> trades = setupBook(lob, o1, o2, o3, o4);
+        assertTrue(trades.isEmpty());
+
+        IOrder o5 = new LimitOrder('S', 5, (short) 99, 35_000);
+        trades = lob.newOrder(o5);
+        assertEquals(3, trades.size());
+        assertEquals(3, lob.getBidDepth());
+        assertEquals(new Trade(o1.getUid(), o5.getUid(), (short) 100, 10_000), trades.get(0));
+        assertEquals(new Trade(o2.getUid(), o5.getUid(), (short) 100, 20_000), trades.get(1));
+        assertEquals(new Trade(o1.getUid(), o5.getUid(), (short) 100, 5_000), trades.get(2));
+        assertEquals(o1.getUid(), lob.getBestBid().getUid());
+        assertEquals(57_500, lob.getBestBid().getRemainingQty());
+        assertEquals(5_000, lob.getBestBid().getRevealedQty());
+    }
+
+    @Test
+    public void testPartiallyConsumedIcebergIsReplenished() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        IOrder o1 = new IcebergOrder('S', 1, (short) 100, 30, 10);
+        IOrder o2 = new LimitOrder('S', 2, (short) 100, 5);
+        setupBook(lob, o1, o2);
+
+        lob.newOrder(new LimitOrder('B', 3, (short) 100, 4));
+        List<Trade> trades = lob.newOrder(new LimitOrder('B', 4, (short) 100, 12));
+
+        // the remaining 6 of the first peak, then the limit order behind it, then the replenished peak
+        assertEquals(3, trades.size());
+        assertEquals(new Trade(4, 1, (short) 100, 6), trades.get(0));
+        assertEquals(new Trade(4, 2, (short) 100, 5), trades.get(1));
+        assertEquals(new Trade(4, 1, (short) 100, 1), trades.get(2));
+        assertEquals(o1.getUid(), lob.getBestOffer().getUid());
+        assertEquals(19, lob.getBestOffer().getRemainingQty());
+        assertEquals(9, lob.getBestOffer().getRevealedQty());
+    }
+
+    @Test
+    public void testPriceTimeOrdering() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 99, 10),
+                new LimitOrder('B', 2, (short) 101, 10),
+                new LimitOrder('B', 3, (short) 99, 10),
+                new LimitOrder('S', 4, (short) 105, 10),
+                new LimitOrder('S', 5, (short) 102, 10),
+                new LimitOrder('S', 6, (short) 105, 10));
+
+        assertEquals(Arrays.asList(2, 1, 3), uids(lob.getBidsByPriceTime()));
+        assertEquals(Arrays.asList(5, 4, 6), uids(lob.getOffersByPriceTime()));
+    }
+
+    @Test
+    public void testSameTradesAsLimitOrderBook() {
+        Random random = new Random(42);
+        LimitOrderBook reference = new LimitOrderBook();
+        LadderLimitOrderBook ladder = new LadderLimitOrderBook();
+
+        for (int uid = 1; uid <= 500; uid++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            long price = 95 + random.nextInt(11);
+            int qty = 1 + random.nextInt(100);
+
+            List<Trade> expected = reference.newOrder(new LimitOrder(side, uid, price, qty));
+            List<Trade> actual = ladder.newOrder(new LimitOrder(side, uid, price, qty));
+            assertEquals(expected, actual);
+            assertEquals(reference.getBidDepth(), ladder.getBidDepth());
+            assertEquals(reference.getOfferDepth(), ladder.getOfferDepth());
+        }
+        assertEquals(uids(reference.getBidsByPriceTime()), uids(ladder.getBidsByPriceTime()));
+        assertEquals(uids(reference.getOffersByPriceTime()), uids(ladder.getOffersByPriceTime()));
+    }
+
+    @Test
+    public void testCancelOrder() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 101, 10),
+                new LimitOrder('B', 2, (short) 100, 10),
+                new LimitOrder('S', 3, (short) 103, 10));
+
+        assertTrue(lob.cancelOrder(1));
+        assertFalse(lob.cancelOrder(1));
+        assertEquals(1, lob.getBidDepth());
+        assertEquals(2, lob.getBestBid().getUid());
+
+        assertTrue(lob.cancelOrder(3));
+        assertNull(lob.getBestOffer());
+        assertEquals(0, lob.getOfferDepth());
+
+        List<Trade> trades = lob.newOrder(new LimitOrder('S', 4, (short) 100, 5));
+        assertEquals(1, trades.size());
+        assertEquals(new Trade(2, 4, (short) 100, 5), trades.get(0));
+    }
+
+    @Test
+    public void testCancelFilledOrder() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob, new LimitOrder('B', 1, (short) 101, 10));
+        lob.newOrder(new LimitOrder('S', 2, (short) 101, 10));
+
+        assertFalse(lob.cancelOrder(1));
+        assertFalse(lob.cancelOrder(2));
+    }
+
+    @Test
+    public void testAmendReducingQtyKeepsPriority() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 100, 10),
+                new LimitOrder('B', 2, (short) 100, 10));
+
+        assertTrue(lob.amendOrder(1, 4, (short) 100).isEmpty());
+        assertEquals(Arrays.asList(1, 2), uids(lob.getBidsByPriceTime()));
+
+        List<Trade> trades = lob.newOrder(new LimitOrder('S', 3, (short) 100, 6));
+        assertEquals(new Trade(1, 3, (short) 100, 4), trades.get(0));
+        assertEquals(new Trade(2, 3, (short) 100, 2), trades.get(1));
+    }
+
+    @Test
+    public void testAmendIncreasingQtyLosesPriority() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 100, 10),
+                new LimitOrder('B', 2, (short) 100, 10));
+
+        assertTrue(lob.amendOrder(1, 15, (short) 100).isEmpty());
+        assertEquals(Arrays.asList(2, 1), uids(lob.getBidsByPriceTime()));
+        assertEquals(15, lob.getBidsByPriceTime().get(1).getRemainingQty());
+    }
+
+    @Test
+    public void testAmendPriceLosesPriority() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 100, 10),
+                new LimitOrder('B', 2, (short) 101, 10),
+                new LimitOrder('S', 3, (short) 105, 10));
+
+        assertTrue(lob.amendOrder(1, 10, (short) 101).isEmpty());
+        assertEquals(Arrays.asList(2, 1), uids(lob.getBidsByPriceTime()));
+        assertEquals(2, lob.getBidDepth());
+    }
+
+    @Test
+    public void testAmendPriceThroughTheSpreadTrades() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        setupBook(lob,
+                new LimitOrder('B', 1, (short) 100, 10),
+                new LimitOrder('S', 2, (short) 105, 4));
+
+        List<Trade> trades = lob.amendOrder(1, 10, (short) 105);
+        assertEquals(1, trades.size());
+        assertEquals(new Trade(1, 2, (short) 105, 4), trades.get(0));
+        assertEquals(0, lob.getOfferDepth());
+        assertEquals(6, lob.getBestBid().getRemainingQty());
+        assertEquals(105, lob.getBestBid().getPrice());
+    }
+
+    @Test
+    public void testAmendUnknownOrder() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        assertNull(lob.amendOrder(42, 10, (short) 100));
+    }
+
+    @Test
+    public void testOrderSlotsAreRecycled() {
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        for (int i = 0; i < 10_000; i++) {
+            lob.newOrder(new IcebergOrder('B', 2 * i, (short) 100, 30, 10));
+            lob.newOrder(new LimitOrder('S', 2 * i + 1, (short) 100, 30));
+        }
+        assertEquals(0, lob.getBidDepth());
+        assertEquals(0, lob.getOfferDepth());
+
+        lob.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        assertEquals(1, lob.getBestBid().getUid());
+        assertTrue(lob.cancelOrder(1));
+        assertNull(lob.getBestBid());
+    }
+
+    @Test
+    public void testNoAllocationOnceWarmedUp() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        LadderLimitOrderBook lob = new LadderLimitOrderBook();
+        for (int i = 0; i < 100; i++) {
+            lob.newOrder(new LimitOrder('B', 1_000_000 + i, (short) (90 - i % 10), 100));
+            lob.newOrder(new LimitOrder('S', 2_000_000 + i, (short) (110 + i % 10), 100));
+        }
+
+        // a passive iceberg, a sell that takes it in several peaks and rests, a buy that takes the remainder
+        int rounds = 20_000;
+        IOrder[] orders = new IOrder[rounds * 3];
+        for (int i = 0; i < rounds; i++) {
+            long price = 95 + i % 10;
+            orders[3 * i] = new IcebergOrder('B', 3 * i, price, 30, 10);
+            orders[3 * i + 1] = new LimitOrder('S', 3 * i + 1, price, 35);
+            orders[3 * i + 2] = new LimitOrder('B', 3 * i + 2, price, 5);
+        }
+        TradeBuffer trades = new TradeBuffer();
+        int warmUp = orders.length / 2;
+        for (int i = 0; i < warmUp; i++) {
+            trades.clear();
+            lob.newOrder(orders[i], trades);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = warmUp; i < orders.length; i++) {
+            trades.clear();
+            lob.newOrder(orders[i], trades);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals(0, allocated);
+        assertEquals(100, lob.getBidDepth());
+        assertEquals(100, lob.getOfferDepth());
+    }
+
+    private static List<Integer> uids(List<IOrder> orders) {
+        List<Integer> uids = new ArrayList<>();
+        for (IOrder order : orders) {
+            uids.add(order.getUid());
+        }
+        return uids;
+    }
+
+    private List<Trade> setupBook(ILimitOrderBook book, IOrder... orders) {
+        book.reset();
+        List<Trade> trades = new ArrayList<>();
+
+        for (IOrder order : orders) {
+            trades.addAll(book.newOrder(order));
+        }
+        long bidCount = Arrays.stream(orders).filter(order -> order.isBuy()).count();
+        long offerCount = Arrays.stream(orders).filter(order -> order.isSell()).count();
+        assertEquals(bidCount, book.getBidDepth());
+        assertEquals(offerCount, book.getOfferDepth());
+        return trades;
+    }
+}
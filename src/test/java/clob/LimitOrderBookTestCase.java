@@ -1,14 +1,20 @@
 package clob;
 
+import com.sun.management.ThreadMXBean;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static clob.LimitOrderBook.insertBidPriceIndex;
 import static clob.LimitOrderBook.insertOfferPriceIndex;
+import static clob.BookAssert.assertBooksEqual;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class LimitOrderBookTestCase {
@@ -17,7 +23,7 @@ public class LimitOrderBookTestCase {
         field idx    type     description
         0            char     'B', 'S'
         1            int      uid
-        2            short    price in pence (>0)
+        2            long     price in ticks (>0)
         3            int      quantity (>0)
 
         B,100322,5103,7500
@@ -129,7 +135,6 @@ public class LimitOrderBookTestCase {
         assertEquals(82_500, lob.getBestBid().getRemainingQty());
     }
 
-
     //    8:20:25 50,000 99 100 10,000 8:20:32
 //            8:24:09 25,500 98 100 7,500 8:22:57
 //            101 20,000 8:19:00
@@ -260,6 +265,128 @@ public class LimitOrderBookTestCase {
         assertEquals(5_000, ((IcebergOrder)lob.getBestBid()).getRevealedPeakQty());
     }
 
+    @Test
+    public void testCancelOrder() {
+        LimitOrderBook lob = new LimitOrderBook();
+        IOrder o1 = new LimitOrder('B', 1, (short) 100, 10);
+        IOrder o2 = new LimitOrder('B', 2, (short) 100, 10);
+        IOrder o3 = new LimitOrder('B', 3, (short) 99, 10);
+        setupBook(lob, o1, o2, o3);
+
+        assertTrue(lob.cancelOrder(2));
+        assertFalse(lob.cancelOrder(2));
+        assertEquals(Arrays.asList(o1, o3), lob.getBidsByPriceTime());
+    }
+
+    @Test
+    public void testAmendOrder() {
+        LimitOrderBook lob = new LimitOrderBook();
+        IOrder o1 = new LimitOrder('B', 1, (short) 100, 10);
+        IOrder o2 = new LimitOrder('B', 2, (short) 100, 10);
+        IOrder o3 = new LimitOrder('S', 3, (short) 102, 5);
+        setupBook(lob, o1, o2, o3);
+
+        // reducing the quantity keeps time priority
+        assertTrue(lob.amendOrder(1, 5, (short) 100).isEmpty());
+        assertEquals(Arrays.asList(o1, o2), lob.getBidsByPriceTime());
+
+        // re-pricing loses it and may trade
+        List<Trade> trades = lob.amendOrder(2, 10, (short) 102);
+        assertEquals(1, trades.size());
+        assertEquals(new Trade(2, 3, (short) 102, 5), trades.get(0));
+        assertEquals(Arrays.asList(o2, o1), lob.getBidsByPriceTime());
+        assertEquals(0, lob.getOfferDepth());
+        assertNull(lob.amendOrder(3, 5, (short) 102));
+    }
+
+    @Test
+    public void testListenerEvents() {
+        List<String> events = new ArrayList<>();
+        LimitOrderBook lob = new LimitOrderBook(new OrderBookListener() {
+            @Override
+            public void onOrderAccepted(IOrder order) {
+                events.add("accepted " + order.getUid());
+            }
+
+            @Override
+            public void onTrade(int buyOrderId, int sellOrderId, long price, int tradedQty) {
+                events.add("trade " + new Trade(buyOrderId, sellOrderId, price, tradedQty));
+            }
+
+            @Override
+            public void onBookChanged(ILimitOrderBook book) {
+                events.add("book " + book.getBidDepth() + "/" + book.getOfferDepth());
+            }
+        });
+
+        lob.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        lob.newOrder(new LimitOrder('S', 2, (short) 100, 4));
+        lob.cancelOrder(1);
+
+        assertEquals(Arrays.asList(
+                "accepted 1", "book 1/0",
+                "accepted 2", "trade 1,2,100,4", "book 1/0",
+                "book 0/0"), events);
+    }
+
+    @Test
+    public void testTradeJournal() {
+        TradeJournal journal = new TradeJournal();
+        LimitOrderBook lob = new LimitOrderBook(journal);
+        LimitOrder o1 = new LimitOrder('B', 1, (short) 100, 10);
+        lob.newOrder(o1);
+        lob.newOrder(new LimitOrder('S', 2, (short) 100, 4));
+        lob.newOrder(new LimitOrder('S', 3, (short) 99, 4));
+
+        assertEquals(2, journal.size());
+        assertEquals(Arrays.asList(new Trade(1, 2, (short) 100, 4), new Trade(1, 3, (short) 100, 4)), journal.getTrades(1));
+        assertEquals(Arrays.asList(new Trade(1, 3, (short) 100, 4)), journal.getTrades(3));
+        assertEquals(8, o1.getFilledQty());
+        assertEquals(2, o1.getFillCount());
+    }
+
+    @Test
+    public void testNoAllocationOnceWarmedUp() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        LimitOrderBook lob = new LimitOrderBook();
+        for (int i = 0; i < 100; i++) {
+            lob.newOrder(new LimitOrder('B', 1_000_000 + i, (short) (90 - i % 10), 100));
+            lob.newOrder(new LimitOrder('S', 2_000_000 + i, (short) (110 + i % 10), 100));
+        }
+
+        // a passive bid, a sell that fills it and rests the remainder, and a buy that takes the remainder
+        int rounds = 20_000;
+        IOrder[] orders = new IOrder[rounds * 3];
+        for (int i = 0; i < rounds; i++) {
+            long price = 95 + i % 10;
+            orders[3 * i] = new LimitOrder('B', 3 * i, price, 10);
+            orders[3 * i + 1] = new LimitOrder('S', 3 * i + 1, price, 15);
+            orders[3 * i + 2] = new LimitOrder('B', 3 * i + 2, price, 5);
+        }
+        TradeBuffer trades = new TradeBuffer();
+        int warmUp = orders.length / 2;
+        for (int i = 0; i < warmUp; i++) {
+            trades.clear();
+            lob.newOrder(orders[i], trades);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = warmUp; i < orders.length; i++) {
+            trades.clear();
+            lob.newOrder(orders[i], trades);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals(0, allocated);
+        assertEquals(100, lob.getBidDepth());
+        assertEquals(100, lob.getOfferDepth());
+    }
 
     @Test
     public void testInsertOfferPriceIndex() {
@@ -307,6 +434,57 @@ public class LimitOrderBookTestCase {
         assertEquals(4, insertBidPriceIndex(bids, 5));
     }
 
+    @Test
+    public void testIcebergsOnSeveralLevels() {
+        LimitOrderBook lob = new LimitOrderBook();
+        for (int uid = 1; uid <= 200; uid++) {
+            lob.newOrder(new IcebergOrder('S', uid, (short) (100 + uid % 20), 1_000, 10));
+        }
+
+        // each iceberg is cycled through its level in round-robin, 10 at a time
+        IOrder sweep = new LimitOrder('B', 1_000, (short) 119, 200_000);
+        List<Trade> trades = lob.newOrder(sweep);
+        assertEquals(20_000, trades.size());
+        assertEquals(0, lob.getOfferDepth());
+        assertEquals(0, lob.getBidDepth());
+        assertEquals(0, sweep.getRemainingQty());
+        assertEquals(new Trade(1_000, 20, (short) 119, 10), trades.get(0));
+        assertEquals(new Trade(1_000, 40, (short) 119, 10), trades.get(1));
+        assertEquals(new Trade(1_000, 20, (short) 119, 10), trades.get(10));
+        for (Trade trade : trades) {
+            assertEquals(10, trade.getTradedQty());
+        }
+    }
+
+    @Test
+    public void testRotatedIcebergGoesBehindTheRestOfTheLevel() {
+        LimitOrderBook lob = new LimitOrderBook();
+        lob.newOrder(new IcebergOrder('S', 1, (short) 100, 30, 10));
+        lob.newOrder(new LimitOrder('S', 2, (short) 100, 10));
+        lob.newOrder(new LimitOrder('S', 3, (short) 100, 10));
+        lob.newOrder(new LimitOrder('S', 4, (short) 101, 10));
+
+        List<Trade> trades = lob.newOrder(new LimitOrder('B', 5, (short) 100, 15));
+        assertEquals(Arrays.asList(new Trade(5, 1, (short) 100, 10), new Trade(5, 2, (short) 100, 5)), trades);
+        List<IOrder> offers = lob.getOffersByPriceTime();
+        assertEquals(4, offers.size());
+        assertEquals(2, offers.get(0).getUid());
+        assertEquals(5, offers.get(0).getRemainingQty());
+        assertEquals(3, offers.get(1).getUid());
+        assertEquals(1, offers.get(2).getUid());
+        assertEquals(20, offers.get(2).getRemainingQty());
+        assertEquals(4, offers.get(3).getUid());
+    }
+
+    @Test
+    public void testMatchesLadderBook() {
+        LimitOrderBook list = new LimitOrderBook();
+        LadderLimitOrderBook ladder = new LadderLimitOrderBook();
+        RandomOrderFlow.run(5, 20_000, uid -> {
+        }, ladder, list);
+        assertBooksEqual(ladder, list);
+    }
+
     private List<Trade> setupBook(LimitOrderBook book, IOrder... orders) {
         book.reset();
         List<Trade> trades = new ArrayList<>();
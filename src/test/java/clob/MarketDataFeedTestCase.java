@@ -0,0 +1,192 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MarketDataFeedTestCase {
+
+    @Test
+    public void testLadderBookDepthMatchesFeed() {
+        L2Book l2Book = new L2Book();
+        ILimitOrderBook book = new LadderLimitOrderBook(new MarketDataFeed(l2Book));
+        runRandomFlow(book, l2Book, 1);
+    }
+
+    @Test
+    public void testListBookDepthMatchesFeed() {
+        L2Book l2Book = new L2Book();
+        ILimitOrderBook book = new LimitOrderBook(new MarketDataFeed(l2Book));
+        runRandomFlow(book, l2Book, 2);
+    }
+
+    @Test
+    public void testSweepIsCoalescedIntoOneUpdatePerLevel() {
+        RecordingHandler handler = new RecordingHandler();
+        ILimitOrderBook book = new LadderLimitOrderBook(new MarketDataFeed(handler));
+        book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+        book.newOrder(new LimitOrder('S', 2, (short) 101, 10));
+        book.newOrder(new LimitOrder('S', 3, (short) 101, 10));
+        book.newOrder(new LimitOrder('S', 4, (short) 102, 10));
+        assertEquals(4, handler.updates.size());
+        assertEquals("1 A S 101 10 1", handler.updates.get(0));
+        assertEquals("3 C S 101 30 3", handler.updates.get(2));
+
+        handler.updates.clear();
+        book.newOrder(new LimitOrder('B', 5, (short) 102, 35));
+        assertEquals(2, handler.updates.size());
+        assertEquals("5 D S 101 0 0", handler.updates.get(0));
+        assertEquals("6 C S 102 5 1", handler.updates.get(1));
+
+        handler.updates.clear();
+        book.newOrder(new LimitOrder('B', 6, (short) 100, 10));
+        book.cancelOrder(6);
+        assertEquals(2, handler.updates.size());
+        assertEquals("7 A B 100 10 1", handler.updates.get(0));
+        assertEquals("8 D B 100 0 0", handler.updates.get(1));
+    }
+
+    @Test
+    public void testIcebergOnlyShowsItsPeak() {
+        RecordingHandler handler = new RecordingHandler();
+        ILimitOrderBook book = new LadderLimitOrderBook(new MarketDataFeed(handler));
+        book.newOrder(new IcebergOrder('B', 1, (short) 100, 100, 10));
+        book.newOrder(new LimitOrder('S', 2, (short) 100, 4));
+        book.newOrder(new LimitOrder('S', 3, (short) 100, 6));
+        assertEquals("1 A B 100 10 1", handler.updates.get(0));
+        assertEquals("2 C B 100 6 1", handler.updates.get(1));
+        assertEquals("3 C B 100 10 1", handler.updates.get(2));
+        assertEquals(3, handler.updates.size());
+    }
+
+    @Test
+    public void testRefreshResynchronisesAfterGap() {
+        L2Book l2Book = new L2Book();
+        GapHandler gaps = new GapHandler(l2Book);
+        MarketDataFeed feed = new MarketDataFeed(gaps, OrderBookListener.NO_OP, 5);
+        ILimitOrderBook book = new LadderLimitOrderBook(feed);
+
+        book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        book.newOrder(new LimitOrder('S', 2, (short) 105, 10));
+        gaps.dropNext = true;
+        book.newOrder(new LimitOrder('B', 3, (short) 99, 10));
+        book.newOrder(new LimitOrder('B', 4, (short) 98, 10));
+        assertFalse(l2Book.isSynchronised());
+        assertEquals(0, l2Book.getVisibleQty(true, (short) 98));
+
+        book.newOrder(new LimitOrder('B', 5, (short) 100, 5));
+        assertTrue(l2Book.isSynchronised());
+        assertEquals(feed.getSequence(), l2Book.getLastSequence());
+        assertEquals(3, l2Book.getLevelCount(true));
+        assertEquals(15, l2Book.getVisibleQty(true, (short) 100));
+        assertEquals(2, l2Book.getOrderCount(true, (short) 100));
+        assertEquals(10, l2Book.getVisibleQty(true, (short) 99));
+        assertEquals(100, l2Book.getBestPrice(true));
+        assertEquals(105, l2Book.getBestPrice(false));
+
+        book.cancelOrder(2);
+        assertEquals(0, l2Book.getLevelCount(false));
+        assertEquals(feed.getSequence(), l2Book.getLastSequence());
+    }
+
+    @Test
+    public void testResetDeletesAllLevels() {
+        L2Book l2Book = new L2Book();
+        ILimitOrderBook book = new LadderLimitOrderBook(new MarketDataFeed(l2Book));
+        book.newOrder(new LimitOrder('B', 1, (short) 100, 10));
+        book.newOrder(new LimitOrder('B', 2, (short) 99, 10));
+        book.newOrder(new LimitOrder('S', 3, (short) 101, 10));
+        book.reset();
+        book.newOrder(new LimitOrder('S', 4, (short) 110, 10));
+        assertTrue(l2Book.isSynchronised());
+        assertEquals(0, l2Book.getLevelCount(true));
+        assertEquals(1, l2Book.getLevelCount(false));
+        assertEquals(110, l2Book.getBestPrice(false));
+    }
+
+    private static void runRandomFlow(ILimitOrderBook book, L2Book l2Book, long seed) {
+        RandomOrderFlow.run(seed, 5000, uid -> {
+            assertDepth(book.getBidsByPriceTime(), l2Book, true);
+            assertDepth(book.getOffersByPriceTime(), l2Book, false);
+        }, book);
+        assertTrue(l2Book.isSynchronised());
+    }
+
+    private static void assertDepth(List<IOrder> orders, L2Book l2Book, boolean bidSide) {
+        int levels = 0;
+        int i = 0;
+        while (i < orders.size()) {
+            long price = orders.get(i).getPrice();
+            long qty = 0;
+            int count = 0;
+            for (; i < orders.size() && orders.get(i).getPrice() == price; i++) {
+                qty += orders.get(i).getRevealedQty();
+                count++;
+            }
+            assertEquals("qty at " + price, qty, l2Book.getVisibleQty(bidSide, price));
+            assertEquals("orders at " + price, count, l2Book.getOrderCount(bidSide, price));
+            levels++;
+        }
+        assertEquals(levels, l2Book.getLevelCount(bidSide));
+    }
+
+    private static class RecordingHandler implements L2Handler {
+        private final List<String> updates = new ArrayList<>();
+
+        @Override
+        public void onLevelUpdate(long sequence, byte action, boolean bidSide, long price, long visibleQty, int orderCount) {
+            updates.add(sequence + " " + (char) action + " " + (bidSide ? 'B' : 'S') + " " + price + " " + visibleQty + " " + orderCount);
+        }
+
+        @Override
+        public void onRefreshStart(long sequence) {
+        }
+
+        @Override
+        public void onRefreshLevel(boolean bidSide, long price, long visibleQty, int orderCount) {
+        }
+
+        @Override
+        public void onRefreshEnd(long sequence) {
+        }
+    }
+
+    private static class GapHandler implements L2Handler {
+        private final L2Handler target;
+        private boolean dropNext;
+
+        private GapHandler(L2Handler target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onLevelUpdate(long sequence, byte action, boolean bidSide, long price, long visibleQty, int orderCount) {
+            if (dropNext) {
+                dropNext = false;
+                return;
+            }
+            target.onLevelUpdate(sequence, action, bidSide, price, visibleQty, orderCount);
+        }
+
+        @Override
+        public void onRefreshStart(long sequence) {
+            target.onRefreshStart(sequence);
+        }
+
+        @Override
+        public void onRefreshLevel(boolean bidSide, long price, long visibleQty, int orderCount) {
+            target.onRefreshLevel(bidSide, price, visibleQty, orderCount);
+        }
+
+        @Override
+        public void onRefreshEnd(long sequence) {
+            target.onRefreshEnd(sequence);
+        }
+    }
+}
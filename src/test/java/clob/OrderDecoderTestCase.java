@@ -0,0 +1,184 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OrderDecoderTestCase {
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        ByteBuffer messages = encodeMessages();
+        StringBuilder events = new StringBuilder();
+        long decoded = new BinaryOrderDecoder(channel(messages.array(), messages.limit())).readAll(recorder(events));
+
+        assertEquals(4, decoded);
+        assertEquals("N,B,1,100,10,0;N,S,2,-5,30000,5000;C,1;A,2,20,101;", events.toString());
+    }
+
+    @Test
+    public void testBinaryMessagesSplitAcrossReads() throws IOException {
+        ByteBuffer messages = encodeMessages();
+        StringBuilder events = new StringBuilder();
+        long decoded = new BinaryOrderDecoder(channel(messages.array(), 5), 32).readAll(recorder(events));
+
+        assertEquals(4, decoded);
+        assertEquals("N,B,1,100,10,0;N,S,2,-5,30000,5000;C,1;A,2,20,101;", events.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testBinaryTruncatedMessage() throws IOException {
+        ByteBuffer messages = encodeMessages();
+        byte[] truncated = new byte[messages.limit() - 3];
+        System.arraycopy(messages.array(), 0, truncated, 0, truncated.length);
+        new BinaryOrderDecoder(channel(truncated, truncated.length)).readAll(recorder(new StringBuilder()));
+    }
+
+    @Test
+    public void testCsvParsing() throws IOException {
+        String input = "B,1,100,10\r\n\nS,2,-5,30000,5000\nB,3,32767,2147483647";
+        for (int chunk = 1; chunk <= input.length(); chunk++) {
+            StringBuilder events = new StringBuilder();
+            long decoded = new CsvOrderDecoder(channel(input.getBytes(StandardCharsets.US_ASCII), chunk), 32).readAll(recorder(events));
+
+            assertEquals(3, decoded);
+            assertEquals("N,B,1,100,10,0;N,S,2,-5,30000,5000;N,B,3,32767,2147483647,0;", events.toString());
+        }
+    }
+
+    @Test
+    public void testCsvDecimalPrices() throws IOException {
+        String input = "B,1,51.03,10\nS,2,51,10\n";
+        StringBuilder events = new StringBuilder();
+        new CsvOrderDecoder(channel(input.getBytes(StandardCharsets.US_ASCII), input.length()), 64, TickSize.parse("0.01"))
+                .readAll(recorder(events));
+        assertEquals("N,B,1,5103,10,0;N,S,2,5100,10,0;", events.toString());
+    }
+
+    @Test
+    public void testCsvMalformedLines() throws IOException {
+        assertMalformed("B,1,100\n", "line 1");
+        assertMalformed("B,1,100,10\nX,2,100,10\n", "line 2");
+        assertMalformed("B,1,9223372036854775808,10\n", "number out of range");
+        assertMalformed("B,1,100.5,10\n", "not a multiple of the tick size");
+        assertMalformed("B,1,100,1x\n", "not a number");
+        assertMalformed("B,1,100,,10\n", "empty field");
+        assertMalformed("B,1,100,10,5,6\n", "too many fields");
+        assertMalformed("B,3000000000,100,10\n", "number out of range");
+    }
+
+    @Test
+    public void testCsvLineLongerThanBuffer() {
+        byte[] input = "B,1,100,10\nB,2,100,1000000000\n".getBytes(StandardCharsets.US_ASCII);
+        try {
+            new CsvOrderDecoder(channel(input, input.length), 16).readAll(recorder(new StringBuilder()));
+            fail("expected the second line to overflow the buffer");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+        }
+    }
+
+    @Test
+    public void testCsvIntoBooks() throws IOException {
+        String input = "B,100322,5103,7500\nB,100345,5103,100000,10000\nS,100346,5103,30000\nS,100347,5100,60000,1000\n";
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+
+        BookOrderHandler freshHandler = new BookOrderHandler(new LadderLimitOrderBook(), new TradeBuffer(), false);
+        new CsvOrderDecoder(channel(bytes, bytes.length)).readAll(freshHandler);
+        LadderLimitOrderBook ladder = new LadderLimitOrderBook();
+        BookOrderHandler ladderHandler = new BookOrderHandler(ladder, new TradeBuffer(), true);
+        new CsvOrderDecoder(channel(bytes, 7)).readAll(ladderHandler);
+
+        assertEquals(freshHandler.getTrades().toTrades(0), ladderHandler.getTrades().toTrades(0));
+        assertEquals(11, ladderHandler.getTrades().size());
+        assertEquals(new Trade(100322, 100346, (short) 5103, 7500), ladderHandler.getTrades().getTrade(0));
+        assertEquals(0, ladder.getOfferDepth());
+        assertEquals(1, ladder.getBidDepth());
+        assertEquals(100345, ladder.getBestBid().getUid());
+        assertEquals(100000 - 22500 - 60000, ladder.getBestBid().getRemainingQty());
+    }
+
+    private static void assertMalformed(String input, String expectedMessage) throws IOException {
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+        try {
+            new CsvOrderDecoder(channel(bytes, bytes.length)).readAll(recorder(new StringBuilder()));
+            fail("expected " + input + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    private static ByteBuffer encodeMessages() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * OrderMessage.LENGTH).order(OrderMessage.BYTE_ORDER);
+        OrderMessage.encodeNewOrder(buffer, 'B', 1, (short) 100, 10, 0);
+        OrderMessage.encodeNewOrder(buffer, 'S', 2, (short) -5, 30000, 5000);
+        OrderMessage.encodeCancelOrder(buffer, 1);
+        OrderMessage.encodeAmendOrder(buffer, 2, 20, (short) 101);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A channel handing out at most {@code chunk} bytes per read, to split messages and lines across reads.
+     */
+    private static ReadableByteChannel channel(byte[] bytes, int chunk) {
+        ReadableByteChannel delegate = Channels.newChannel(new ByteArrayInputStream(bytes));
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int limit = dst.limit();
+                dst.limit(Math.min(limit, dst.position() + chunk));
+                try {
+                    return delegate.read(dst);
+                } finally {
+                    dst.limit(limit);
+                }
+            }
+
+            @Override
+            public boolean isOpen() {
+                return delegate.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+        };
+    }
+
+    private static OrderHandler recorder(StringBuilder events) {
+        return new OrderHandler() {
+            @Override
+            public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+                events.append("N,").append(buySellIndicator).append(',').append(uid).append(',').append(price)
+                        .append(',').append(qty).append(',').append(peakSize).append(';');
+            }
+
+            @Override
+            public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+                events.append("I,").append(buySellIndicator).append(',').append(uid).append(',').append(price)
+                        .append(',').append(qty).append(',').append(timeInForce).append(';');
+            }
+
+            @Override
+            public void onCancelOrder(int uid) {
+                events.append("C,").append(uid).append(';');
+            }
+
+            @Override
+            public void onAmendOrder(int uid, int newQty, long newPrice) {
+                events.append("A,").append(uid).append(',').append(newQty).append(',').append(newPrice).append(';');
+            }
+        };
+    }
+}
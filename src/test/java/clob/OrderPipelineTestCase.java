@@ -0,0 +1,108 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static clob.BookAssert.assertBooksEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderPipelineTestCase {
+    private static final int ORDERS = 50000;
+
+    /**
+     * Busy spinning assumes a core per stage, so keep the order flow short for machines with fewer.
+     */
+    @Test
+    public void testBusySpin() throws InterruptedException {
+        assertPipelineMatchesInline(new WaitStrategy.BusySpin(), 1024, 2000);
+    }
+
+    @Test
+    public void testYielding() throws InterruptedException {
+        assertPipelineMatchesInline(new WaitStrategy.Yielding(), 16, ORDERS);
+    }
+
+    @Test
+    public void testBlocking() throws InterruptedException {
+        assertPipelineMatchesInline(new WaitStrategy.Blocking(), 64, ORDERS);
+    }
+
+    @Test
+    public void testJournalStageRecordsEveryEvent() throws IOException, InterruptedException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try {
+            LadderLimitOrderBook book = new LadderLimitOrderBook();
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.BATCH)) {
+                OrderPipeline pipeline = new OrderPipeline(8, new WaitStrategy.Yielding(), book, journal, OrderBookListener.NO_OP);
+                pipeline.start();
+                feed(pipeline, new Random(3), 1000);
+                pipeline.close();
+                assertNull(pipeline.getLastError());
+            }
+            try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+                LadderLimitOrderBook recovered = new LadderLimitOrderBook();
+                new JournaledLimitOrderBook(recovered, journal).recover();
+                assertBooksEqual(book, recovered);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void assertPipelineMatchesInline(WaitStrategy waitStrategy, int ringSize, int orders) throws InterruptedException {
+        TradeJournal expectedTrades = new TradeJournal();
+        LadderLimitOrderBook expected = new LadderLimitOrderBook();
+        feed(new BookOrderHandler(expected, new TradeBuffer(), true), new Random(11), orders, expectedTrades);
+
+        TradeJournal publishedTrades = new TradeJournal();
+        LadderLimitOrderBook book = new LadderLimitOrderBook();
+        OrderPipeline pipeline = new OrderPipeline(ringSize, waitStrategy, book, null, publishedTrades);
+        pipeline.start();
+        feed(pipeline, new Random(11), orders);
+        pipeline.close();
+
+        assertNull(pipeline.getLastError());
+        assertTrue(pipeline.getCompletedSequence() >= orders);
+        assertEquals(expectedTrades.size(), publishedTrades.size());
+        for (int i = 0; i < expectedTrades.size(); i++) {
+            assertEquals(expectedTrades.getTrade(i), publishedTrades.getTrade(i));
+        }
+        assertBooksEqual(expected, book);
+    }
+
+    private static void feed(OrderHandler handler, Random random, int orders) {
+        feed(handler, random, orders, null);
+    }
+
+    /**
+     * Random order flow with cancels and amends; fills of the inline handler are copied to {@code trades}.
+     */
+    private static void feed(OrderHandler handler, Random random, int orders, TradeJournal trades) {
+        for (int uid = 1; uid <= orders; uid++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            long price = 100 + random.nextInt(20) - (side == 'B' ? 12 : 0);
+            int qty = 1 + random.nextInt(100);
+            int peakSize = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : 0;
+            handler.onNewOrder(side, uid, price, qty, peakSize);
+            int action = random.nextInt(10);
+            if (action == 0) {
+                handler.onCancelOrder(1 + random.nextInt(uid));
+            } else if (action == 1) {
+                handler.onAmendOrder(1 + random.nextInt(uid), 1 + random.nextInt(100), (short) (95 + random.nextInt(10)));
+            }
+            if (trades != null) {
+                TradeBuffer buffer = ((BookOrderHandler) handler).getTrades();
+                for (int i = 0; i < buffer.size(); i++) {
+                    trades.onTrade(buffer.getBuyOrderId(i), buffer.getSellOrderId(i), buffer.getPrice(i), buffer.getTradedQty(i));
+                }
+                buffer.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderReplayTestCase {
+
+    @Test
+    public void testBooksProduceTheSameTrades() throws IOException {
+        Path csv = Files.createTempFile("orders", ".csv");
+        try {
+            Files.write(csv, randomFlow(new Random(5), 20_000).getBytes(StandardCharsets.US_ASCII));
+            OrderReplay replay = OrderReplay.loadCsv(csv, TickSize.ONE);
+            assertEquals(20_000, replay.getMessageCount());
+
+            OrderReplay.Result list = replay.run(OrderReplay.LIST);
+            OrderReplay.Result ladder = replay.run(OrderReplay.LADDER);
+            assertTrue(list.getTrades().size() > 1000);
+            assertEquals(-1, OrderReplay.diff(list.getTrades(), ladder.getTrades()));
+            assertNull(OrderReplay.describeDiff(list.getTrades(), ladder.getTrades()));
+            assertEquals(20_000, ladder.getLatency().getCount());
+            assertEquals(20_000, ladder.getMessages());
+            assertTrue(ladder.getMessagesPerSecond() > 0);
+            assertTrue(ladder.toString().contains("trades/s"));
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @Test
+    public void testReferenceTradesRoundTrip() throws IOException {
+        Path csv = Files.createTempFile("orders", ".csv");
+        Path reference = Files.createTempFile("trades", ".csv");
+        try {
+            Files.write(csv, randomFlow(new Random(8), 5_000).getBytes(StandardCharsets.US_ASCII));
+            OrderReplay.Result result = OrderReplay.loadCsv(csv, TickSize.ONE).run(OrderReplay.LADDER);
+            OrderReplay.writeTrades(reference, result.getTrades());
+            TradeBuffer read = OrderReplay.readTrades(reference);
+            assertEquals(-1, OrderReplay.diff(read, result.getTrades()));
+
+            // a changed fill and a missing fill are both found
+            TradeBuffer changed = new TradeBuffer();
+            for (int i = 0; i < read.size() - 1; i++) {
+                changed.add(read.getBuyOrderId(i), read.getSellOrderId(i), read.getPrice(i),
+                        read.getTradedQty(i) + (i == 7 ? 1 : 0));
+            }
+            assertEquals(7, OrderReplay.diff(read, changed));
+            assertTrue(OrderReplay.describeDiff(read, changed).startsWith("trade streams differ at fill 7"));
+            changed.clear();
+            for (int i = 0; i < read.size() - 1; i++) {
+                changed.add(read.getBuyOrderId(i), read.getSellOrderId(i), read.getPrice(i), read.getTradedQty(i));
+            }
+            assertEquals(read.size() - 1, OrderReplay.diff(read, changed));
+        } finally {
+            Files.delete(csv);
+            Files.delete(reference);
+        }
+    }
+
+    @Test
+    public void testBinaryAndJournalCaptures() throws IOException {
+        Path binary = Files.createTempFile("orders", ".bin");
+        Path journalFile = Files.createTempFile("journal", ".dat");
+        try {
+            Random random = new Random(3);
+            ByteBuffer buffer = ByteBuffer.allocate(3000 * OrderMessage.LENGTH).order(OrderMessage.BYTE_ORDER);
+            try (EventJournal journal = new EventJournal(journalFile, SyncPolicy.NONE)) {
+                for (int uid = 1; uid <= 2000; uid++) {
+                    char side = random.nextBoolean() ? 'B' : 'S';
+                    long price = 100 + random.nextInt(10) - (side == 'B' ? 5 : 0);
+                    int qty = 1 + random.nextInt(50);
+                    OrderMessage.encodeNewOrder(buffer, side, uid, price, qty, 0);
+                    journal.appendNewOrder(side, uid, price, qty, 0);
+                    if (uid % 3 == 0) {
+                        OrderMessage.encodeCancelOrder(buffer, uid - 1);
+                        journal.appendCancelOrder(uid - 1);
+                    }
+                }
+            }
+            buffer.flip();
+            Files.write(binary, Arrays.copyOf(buffer.array(), buffer.limit()));
+
+            OrderReplay fromBinary = OrderReplay.loadBinary(binary);
+            OrderReplay fromJournal = OrderReplay.loadJournal(journalFile);
+            assertEquals(2666, fromBinary.getMessageCount());
+            assertEquals(2666, fromJournal.getMessageCount());
+            OrderReplay.Result expected = fromBinary.run(OrderReplay.LIST);
+            assertTrue(expected.getTrades().size() > 0);
+            assertEquals(-1, OrderReplay.diff(expected.getTrades(), fromJournal.run(OrderReplay.LADDER).getTrades()));
+        } finally {
+            Files.delete(binary);
+            Files.delete(journalFile);
+        }
+    }
+
+    private static String randomFlow(Random random, int messages) {
+        StringBuilder sb = new StringBuilder();
+        int uid = 0;
+        for (int i = 0; i < messages; i++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            long price = 1000 + random.nextInt(30) - (side == 'B' ? 20 : 0);
+            int qty = 1 + random.nextInt(200);
+            int kind = random.nextInt(10);
+            uid++;
+            if (kind == 0) {
+                sb.append(side).append(',').append(uid).append(',').append(price).append(',').append(qty).append(",IOC\n");
+            } else if (kind == 1) {
+                sb.append(side).append(',').append(uid).append(',').append(price).append(',').append(qty * 5).append(',')
+                        .append(1 + random.nextInt(qty)).append('\n');
+            } else {
+                sb.append(side).append(',').append(uid).append(',').append(price).append(',').append(qty).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
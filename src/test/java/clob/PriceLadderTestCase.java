@@ -0,0 +1,172 @@
+package clob;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static clob.BookAssert.assertBooksEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PriceLadderTestCase {
+
+    @Test
+    public void testDenseAndSparseLevels() {
+        PriceLadder<Level> ladder = new PriceLadder<>(64);
+        ladder.put(new Level(1_000_000));
+        assertTrue(ladder.inWindow(1_000_000));
+        ladder.put(new Level(1_000_010));
+        ladder.put(new Level(5));
+        ladder.put(new Level(Long.MAX_VALUE));
+        ladder.put(new Level(Long.MIN_VALUE));
+
+        assertEquals(5, ladder.size());
+        assertEquals(3, ladder.getSparseCount());
+        assertEquals(Long.MIN_VALUE, ladder.first().getPrice());
+        assertEquals(Long.MAX_VALUE, ladder.last().getPrice());
+        assertEquals(1_000_000, ladder.ceiling(6).getPrice());
+        assertEquals(1_000_010, ladder.higher(1_000_000).getPrice());
+        assertEquals(5, ladder.lower(1_000_000).getPrice());
+        assertEquals(Long.MAX_VALUE, ladder.higher(1_000_010).getPrice());
+        assertNull(ladder.higher(Long.MAX_VALUE));
+        assertNull(ladder.lower(Long.MIN_VALUE));
+        assertNull(ladder.get(6));
+
+        assertEquals(5, ladder.remove(5).getPrice());
+        assertNull(ladder.remove(5));
+        assertEquals(Long.MIN_VALUE, ladder.lower(1_000_000).getPrice());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPriceOccupiedTwice() {
+        PriceLadder<Level> ladder = new PriceLadder<>(64);
+        ladder.put(new Level(7));
+        ladder.put(new Level(7));
+    }
+
+    @Test
+    public void testRecentreMovesLevels() {
+        PriceLadder<Level> ladder = new PriceLadder<>(64);
+        Level near = new Level(100);
+        Level far = new Level(1_000);
+        ladder.put(near);
+        ladder.put(far);
+        assertTrue(ladder.inWindow(100));
+        assertFalse(ladder.inWindow(1_000));
+
+        assertFalse(ladder.recentre(100));
+        assertTrue(ladder.recentre(990));
+        assertFalse(ladder.inWindow(100));
+        assertTrue(ladder.inWindow(1_000));
+        assertEquals(1, ladder.getSparseCount());
+        assertSame(near, ladder.get(100));
+        assertSame(far, ladder.get(1_000));
+        assertSame(far, ladder.ceiling(101));
+        assertSame(near, ladder.floor(999));
+
+        // pinned against the end of the price range the window cannot move any further
+        assertTrue(ladder.recentre(Long.MAX_VALUE));
+        assertFalse(ladder.recentre(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, ladder.getWindowHigh());
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        PriceLadder<Level> ladder = new PriceLadder<>(256);
+        TreeMap<Long, Level> expected = new TreeMap<>();
+        Random random = new Random(11);
+        long mid = 1L << 40;
+        for (int i = 0; i < 200_000; i++) {
+            mid += random.nextInt(21) - 10;
+            long price = random.nextInt(10) == 0 ? mid + random.nextInt(100_000) - 50_000 : mid + random.nextInt(200) - 100;
+            int action = random.nextInt(4);
+            if (action == 0) {
+                Level removed = expected.remove(price);
+                assertSame(removed, ladder.remove(price));
+            } else if (action == 1) {
+                ladder.recentre(mid);
+            } else if (!expected.containsKey(price)) {
+                Level level = new Level(price);
+                expected.put(price, level);
+                ladder.put(level);
+            }
+
+            assertEquals(expected.size(), ladder.size());
+            assertSame(expected.get(price), ladder.get(price));
+            assertSame(value(expected.ceilingEntry(price)), ladder.ceiling(price));
+            assertSame(value(expected.floorEntry(price)), ladder.floor(price));
+            assertSame(value(expected.higherEntry(price)), ladder.higher(price));
+            assertSame(value(expected.lowerEntry(price)), ladder.lower(price));
+        }
+
+        List<Long> ascending = new ArrayList<>();
+        for (Level level = ladder.first(); level != null; level = ladder.higher(level.getPrice())) {
+            ascending.add(level.getPrice());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), ascending);
+        ladder.clear();
+        assertTrue(ladder.isEmpty());
+        assertNull(ladder.first());
+    }
+
+    @Test
+    public void testBooksAgreeOnWidePrices() {
+        // a mid far beyond the old 16 bit range that drifts by many windows, with stray orders far from it
+        LimitOrderBook list = new LimitOrderBook();
+        LadderLimitOrderBook ladder = new LadderLimitOrderBook(OrderBookListener.NO_OP, 64);
+        long[] mid = {5_000_000_000L};
+        RandomOrderFlow.Prices prices = random -> {
+            mid[0] += random.nextInt(7) - 3;
+            return random.nextInt(50) == 0 ? mid[0] + random.nextInt(100_000) - 50_000 : mid[0] + random.nextInt(21) - 10;
+        };
+        RandomOrderFlow.run(3, 20_000, prices, 1_000, uid -> {
+            assertEquals(list.getDepth().getLevelCount(true), ladder.getDepth().getLevelCount(true));
+            assertEquals(list.getDepth().getTotalQtyAtOrBetter(false, mid[0]), ladder.getDepth().getTotalQtyAtOrBetter(false, mid[0]));
+        }, list, ladder);
+        assertBooksEqual(list, ladder);
+    }
+
+    @Test
+    public void testTickSize() {
+        TickSize cents = TickSize.parse("0.01");
+        assertEquals(5103, cents.toTicks(5103, 2));
+        assertEquals(5100, cents.toTicks(51, 0));
+        assertEquals(5103, cents.toTicks(new BigDecimal("51.030")));
+        assertEquals("51.03", cents.toPrice(5103).toPlainString());
+
+        TickSize fives = TickSize.parse("0.0005");
+        assertEquals(3, fives.toTicks(15, 4));
+        assertEquals(TickSize.ONE, TickSize.parse("1.00"));
+        assertEquals(2, TickSize.parse("50").toTicks(100, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPriceOffTick() {
+        TickSize.parse("0.05").toTicks(5103, 2);
+    }
+
+    private static Level value(Map.Entry<Long, Level> entry) {
+        return entry == null ? null : entry.getValue();
+    }
+
+    private static class Level implements PriceLadder.Level {
+        private final long price;
+
+        Level(long price) {
+            this.price = price;
+        }
+
+        @Override
+        public long getPrice() {
+            return price;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package clob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A seeded random flow of new limit and iceberg orders, cancels and amends, fed to one or more books in lockstep.
+ * With several books every command must give the same result on each of them.
+ */
+final class RandomOrderFlow {
+    static final Prices NEAR_100 = random -> 90 + random.nextInt(21);
+
+    interface Prices {
+        long next(Random random);
+    }
+
+    interface Checkpoint {
+        void check(int uid);
+    }
+
+    private RandomOrderFlow() {
+    }
+
+    /**
+     * Run the flow with prices around 100, checking every 100 orders.
+     */
+    static void run(long seed, int orders, Checkpoint checkpoint, ILimitOrderBook... books) {
+        run(seed, orders, NEAR_100, 100, checkpoint, books);
+    }
+
+    /**
+     * @param checkpoint called after every {@code checkEvery} orders and once at the end
+     */
+    static void run(long seed, int orders, Prices prices, int checkEvery, Checkpoint checkpoint,
+                    ILimitOrderBook... books) {
+        Random random = new Random(seed);
+        List<Integer> live = new ArrayList<>();
+        for (int uid = 1; uid <= orders; uid++) {
+            int action = random.nextInt(10);
+            if (action < 2 && !live.isEmpty()) {
+                int target = live.remove(random.nextInt(live.size()));
+                boolean cancelled = books[0].cancelOrder(target);
+                for (int i = 1; i < books.length; i++) {
+                    assertEquals(cancelled, books[i].cancelOrder(target));
+                }
+            } else if (action < 3 && !live.isEmpty()) {
+                int target = live.get(random.nextInt(live.size()));
+                int qty = 1 + random.nextInt(50);
+                long price = prices.next(random);
+                List<Trade> trades = books[0].amendOrder(target, qty, price);
+                for (int i = 1; i < books.length; i++) {
+                    assertEquals(trades, books[i].amendOrder(target, qty, price));
+                }
+            } else {
+                char side = random.nextBoolean() ? 'B' : 'S';
+                long price = prices.next(random);
+                int qty = 1 + random.nextInt(100);
+                int peak = random.nextInt(5) == 0 ? 1 + random.nextInt(20) : 0;
+                if (peak > 0) {
+                    qty *= 5;
+                }
+                List<Trade> trades = books[0].newOrder(order(side, uid, price, qty, peak));
+                for (int i = 1; i < books.length; i++) {
+                    assertEquals(trades, books[i].newOrder(order(side, uid, price, qty, peak)));
+                }
+                live.add(uid);
+            }
+            if (uid % checkEvery == 0) {
+                checkpoint.check(uid);
+            }
+        }
+        checkpoint.check(orders);
+    }
+
+    /**
+     * @return a new order for each book, as the list book keeps the very object it is given
+     */
+    private static IOrder order(char side, int uid, long price, int qty, int peak) {
+        return peak > 0 ? new IcebergOrder(side, uid, price, qty, peak) : new LimitOrder(side, uid, price, qty);
+    }
+}
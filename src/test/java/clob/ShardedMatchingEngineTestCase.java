@@ -0,0 +1,201 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static clob.BookAssert.assertBooksEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardedMatchingEngineTestCase {
+    private static final int INSTRUMENTS = 32;
+    private static final int ORDERS_PER_INSTRUMENT = 2000;
+    private static final OrderHandler IGNORE = new OrderHandler() {
+        @Override
+        public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+        }
+
+        @Override
+        public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+        }
+    };
+
+    @Test
+    public void testShardsMatchLikeSingleThreadedBooks() throws InterruptedException {
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(4, 1024, instrumentId -> new LadderLimitOrderBook());
+        engine.start();
+
+        int producers = 3;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                List<Random> randoms = new ArrayList<>();
+                for (int instrumentId = producer; instrumentId < INSTRUMENTS; instrumentId += producers) {
+                    randoms.add(new Random(instrumentId));
+                }
+                // interleave the instruments of this producer, each with its own deterministic order flow
+                for (int n = 0; n < ORDERS_PER_INSTRUMENT; n++) {
+                    for (int i = 0; i < randoms.size(); i++) {
+                        submit(engine, producer + i * producers, n, randoms.get(i));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        engine.close();
+
+        assertNull(engine.getLastError());
+        long trades = 0;
+        for (int instrumentId = 0; instrumentId < INSTRUMENTS; instrumentId++) {
+            LadderLimitOrderBook expected = new LadderLimitOrderBook();
+            Random random = new Random(instrumentId);
+            for (int n = 0; n < ORDERS_PER_INSTRUMENT; n++) {
+                trades += submit(expected, n, random);
+            }
+            assertBooksEqual(expected, engine.getBook(instrumentId));
+        }
+        assertEquals(trades, engine.getTradeCount());
+        assertTrue(engine.getProcessedCount() >= INSTRUMENTS * ORDERS_PER_INSTRUMENT);
+    }
+
+    @Test
+    public void testHandlerErrorsDoNotStopTheShard() throws InterruptedException {
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(1);
+        engine.start();
+        engine.newOrder(7, 'B', 1, (short) 100, 10, 0);
+        engine.amendOrder(7, 1, 0, (short) 100);
+        engine.newOrder(7, 'B', 2, (short) 100, 10, 0);
+        engine.close();
+
+        assertTrue(engine.getLastError() instanceof IllegalArgumentException);
+        assertEquals(2, engine.getBook(7).getBidDepth());
+        assertNull(engine.getBook(8));
+        assertEquals(3, engine.getProcessedCount());
+    }
+
+    @Test
+    public void testConsumedCountIncludesCommandsBeforeAThrow() {
+        OrderCommandQueue queue = new OrderCommandQueue(16);
+        for (int uid = 1; uid <= 5; uid++) {
+            assertTrue(queue.offerCancelOrder(1, uid));
+        }
+        OrderHandler failOnThird = new OrderHandler() {
+            @Override
+            public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+            }
+
+            @Override
+            public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+            }
+
+            @Override
+            public void onCancelOrder(int uid) {
+                if (uid == 3) {
+                    throw new IllegalStateException("handler failed");
+                }
+            }
+        };
+        try {
+            queue.drain(instrumentId -> failOnThird, 16);
+            fail("the handler should have thrown");
+        } catch (IllegalStateException e) {
+            assertEquals(3, queue.getConsumedCount());
+        }
+        assertEquals(2, queue.drain(instrumentId -> failOnThird, 16));
+        assertEquals(5, queue.getConsumedCount());
+    }
+
+    @Test
+    public void testQueueDeliversEveryProducersCommandsInOrder() throws InterruptedException {
+        OrderCommandQueue queue = new OrderCommandQueue(64);
+        int producers = 4;
+        int perProducer = 20000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int n = 0; n < perProducer; n++) {
+                    while (!queue.offerNewOrder(producer, 'B', n, (short) 0, 1, 0)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] nextUid = new int[producers];
+        OrderHandler[] handlers = new OrderHandler[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            handlers[p] = new OrderHandler() {
+                @Override
+                public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+                    assertEquals(nextUid[producer]++, uid);
+                }
+
+                @Override
+                public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+                    fail("no immediate orders were offered");
+                }
+            };
+        }
+        int received = 0;
+        while (received < producers * perProducer) {
+            received += queue.drain(instrumentId -> handlers[instrumentId], 100);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, nextUid[p]);
+        }
+    }
+
+    @Test
+    public void testFullQueueRejectsOffers() {
+        OrderCommandQueue queue = new OrderCommandQueue(3);
+        assertEquals(4, queue.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offerCancelOrder(1, i));
+        }
+        assertFalse(queue.offerCancelOrder(1, 4));
+        assertEquals(1, queue.drain(instrumentId -> IGNORE, 1));
+        assertTrue(queue.offerCancelOrder(1, 4));
+    }
+
+    private static void submit(ShardedMatchingEngine engine, int instrumentId, int n, Random random) {
+        char side = random.nextBoolean() ? 'B' : 'S';
+        long price = 100 + random.nextInt(20) - (side == 'B' ? 12 : 0);
+        int qty = 1 + random.nextInt(100);
+        int peakSize = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : 0;
+        engine.newOrder(instrumentId, side, n, price, qty, peakSize);
+        if (random.nextInt(5) == 0) {
+            engine.cancelOrder(instrumentId, random.nextInt(n + 1));
+        }
+    }
+
+    private static int submit(ILimitOrderBook book, int n, Random random) {
+        char side = random.nextBoolean() ? 'B' : 'S';
+        long price = 100 + random.nextInt(20) - (side == 'B' ? 12 : 0);
+        int qty = 1 + random.nextInt(100);
+        int peakSize = random.nextInt(4) == 0 ? 1 + random.nextInt(20) : 0;
+        int trades = book.newOrder(peakSize > 0 ? new IcebergOrder(side, n, price, qty, peakSize) : new LimitOrder(side, n, price, qty)).size();
+        if (random.nextInt(5) == 0) {
+            book.cancelOrder(random.nextInt(n + 1));
+        }
+        return trades;
+    }
+}
@@ -0,0 +1,186 @@
+package clob;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeInForceTestCase {
+
+    @Test
+    public void testImmediateOrCancelDropsRemainder() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            ExpiryRecorder listener = new ExpiryRecorder();
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook(listener) : new LimitOrderBook(listener);
+            book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+            book.newOrder(new LimitOrder('S', 2, (short) 102, 10));
+
+            IOrder ioc = new LimitOrder('B', 3, (short) 101, 25, TimeInForce.IMMEDIATE_OR_CANCEL);
+            List<Trade> trades = book.newOrder(ioc);
+            assertEquals(1, trades.size());
+            assertEquals(new Trade(3, 1, (short) 101, 10), trades.get(0));
+            assertEquals(0, book.getBidDepth());
+            assertEquals(1, book.getOfferDepth());
+            assertEquals("3:15;", listener.expired.toString());
+        }
+    }
+
+    @Test
+    public void testFillOrKillRejectedWithoutTouchingBook() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            ExpiryRecorder listener = new ExpiryRecorder();
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook(listener) : new LimitOrderBook(listener);
+            book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+            book.newOrder(new IcebergOrder('S', 2, (short) 102, 50, 5));
+            book.newOrder(new LimitOrder('S', 3, (short) 104, 100));
+            listener.trades = 0;
+
+            List<Trade> trades = book.newOrder(new LimitOrder('B', 4, (short) 102, 61, TimeInForce.FILL_OR_KILL));
+            assertTrue(trades.isEmpty());
+            assertEquals(0, listener.trades);
+            assertEquals("4:61;", listener.expired.toString());
+            assertEquals(3, book.getOfferDepth());
+            assertEquals(10, book.getBestOffer().getRemainingQty());
+            assertEquals(5, book.getOffersByPriceTime().get(1).getRevealedQty());
+
+            // the iceberg's hidden quantity counts, as it replenishes during the sweep
+            trades = book.newOrder(new LimitOrder('B', 5, (short) 102, 60, TimeInForce.FILL_OR_KILL));
+            assertEquals(11, trades.size());
+            assertEquals(1, book.getOfferDepth());
+            assertEquals(0, book.getBidDepth());
+            assertEquals("4:61;", listener.expired.toString());
+        }
+    }
+
+    @Test
+    public void testMarketOrdersTradeAtRestingPrices() {
+        for (boolean ladder : new boolean[]{true, false}) {
+            ExpiryRecorder listener = new ExpiryRecorder();
+            ILimitOrderBook book = ladder ? new LadderLimitOrderBook(listener) : new LimitOrderBook(listener);
+            book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+            book.newOrder(new LimitOrder('S', 2, (short) 103, 10));
+            book.newOrder(new LimitOrder('B', 3, (short) 99, 10));
+
+            List<Trade> trades = book.newOrder(new MarketOrder('B', 4, 25, TimeInForce.IMMEDIATE_OR_CANCEL));
+            assertEquals(2, trades.size());
+            assertEquals(new Trade(4, 1, (short) 101, 10), trades.get(0));
+            assertEquals(new Trade(4, 2, (short) 103, 10), trades.get(1));
+            assertEquals("4:5;", listener.expired.toString());
+            assertEquals(0, book.getOfferDepth());
+
+            trades = book.newOrder(new MarketOrder('S', 5, 5, TimeInForce.FILL_OR_KILL));
+            assertEquals(new Trade(3, 5, (short) 99, 5), trades.get(0));
+            trades = book.newOrder(new MarketOrder('S', 6, 6, TimeInForce.FILL_OR_KILL));
+            assertTrue(trades.isEmpty());
+            assertEquals(5, book.getBestBid().getRemainingQty());
+            assertEquals("4:5;6:6;", listener.expired.toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMarketOrderCannotRest() {
+        new MarketOrder('B', 1, 10, TimeInForce.GOOD_TILL_CANCEL);
+    }
+
+    @Test
+    public void testParse() {
+        IOrder ioc = IOrder.parse("B,1,100,10,IOC".split(","));
+        assertEquals(TimeInForce.IMMEDIATE_OR_CANCEL, ioc.getTimeInForce());
+        assertEquals(100, ioc.getPrice());
+        IOrder market = IOrder.parse("S,2,MKT,10,FOK".split(","));
+        assertTrue(market.isMarketOrder());
+        assertEquals(TimeInForce.FILL_OR_KILL, market.getTimeInForce());
+        assertEquals(Long.MIN_VALUE, market.getPrice());
+        assertEquals(TimeInForce.IMMEDIATE_OR_CANCEL, IOrder.parse("B,3,MKT,10".split(",")).getTimeInForce());
+        IOrder iceberg = IOrder.parse("B,4,100,10,5".split(","));
+        assertEquals(5, iceberg.getPeakSize());
+        assertEquals(TimeInForce.GOOD_TILL_CANCEL, iceberg.getTimeInForce());
+    }
+
+    @Test
+    public void testParseDecimalPrice() {
+        TickSize cents = TickSize.parse("0.01");
+        assertEquals(5103, IOrder.parse("B,1,51.03,10".split(","), cents).getPrice());
+        assertEquals(5100, IOrder.parse("S,2,51,10,IOC".split(","), cents).getPrice());
+        assertEquals(510, IOrder.parse("B,3,5100,10,5".split(","), TickSize.parse("10")).getPrice());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsPriceOffTheTick() {
+        IOrder.parse("B,1,51.035,10".split(","), TickSize.parse("0.01"));
+    }
+
+    @Test
+    public void testDecodedOrdersMatchAlike() throws IOException {
+        String input = "S,1,101,10\nS,2,102,10,5\nB,3,101,15,IOC\nB,4,102,30,FOK\nB,5,MKT,12\nS,6,100,10\nS,7,MKT,5,FOK\n";
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+
+        List<List<Trade>> results = new ArrayList<>();
+        for (boolean reuse : new boolean[]{true, false}) {
+            LadderLimitOrderBook book = new LadderLimitOrderBook();
+            BookOrderHandler handler = new BookOrderHandler(book, new TradeBuffer(), reuse);
+            new CsvOrderDecoder(Channels.newChannel(new ByteArrayInputStream(bytes))).readAll(handler);
+            results.add(handler.getTrades().toTrades(0));
+            assertEquals(0, book.getBidDepth());
+            assertEquals(1, book.getOfferDepth());
+        }
+        LimitOrderBook list = new LimitOrderBook();
+        BookOrderHandler listHandler = new BookOrderHandler(list, new TradeBuffer(), false);
+        new CsvOrderDecoder(Channels.newChannel(new ByteArrayInputStream(bytes))).readAll(listHandler);
+        results.add(listHandler.getTrades().toTrades(0));
+
+        assertEquals(results.get(0), results.get(1));
+        assertEquals(results.get(0), results.get(2));
+        // the IOC takes 10, the FOK is rejected, the market buy takes 10 at 102 and expires with 2 left
+        assertEquals(new Trade(3, 1, (short) 101, 10), results.get(0).get(0));
+        assertEquals(new Trade(5, 2, (short) 102, 5), results.get(0).get(1));
+        assertEquals(new Trade(5, 2, (short) 102, 5), results.get(0).get(2));
+        assertEquals(3, results.get(0).size());
+    }
+
+    @Test
+    public void testJournalReplaysImmediateOrders() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try (EventJournal journal = new EventJournal(path, SyncPolicy.NONE)) {
+            LadderLimitOrderBook original = new LadderLimitOrderBook();
+            JournaledLimitOrderBook book = new JournaledLimitOrderBook(original, journal);
+            book.newOrder(new LimitOrder('S', 1, (short) 101, 10));
+            book.newOrder(new LimitOrder('B', 2, (short) 101, 15, TimeInForce.IMMEDIATE_OR_CANCEL));
+            book.newOrder(new MarketOrder('B', 3, 15, TimeInForce.FILL_OR_KILL));
+            book.newOrder(new LimitOrder('B', 4, (short) 100, 15));
+
+            LadderLimitOrderBook recovered = new LadderLimitOrderBook();
+            assertEquals(4, new JournaledLimitOrderBook(recovered, journal).recover());
+            assertEquals(0, recovered.getOfferDepth());
+            assertEquals(1, recovered.getBidDepth());
+            assertEquals(4, recovered.getBestBid().getUid());
+
+            ByteBuffer buffer = ByteBuffer.allocate(OrderMessage.LENGTH).order(OrderMessage.BYTE_ORDER);
+            OrderMessage.encodeImmediateOrder(buffer, 'S', 5, (short) 99, 7, TimeInForce.FILL_OR_KILL);
+            StringBuilder decoded = new StringBuilder();
+            OrderMessage.decode(buffer, 0, new OrderHandler() {
+                @Override
+                public void onNewOrder(char buySellIndicator, int uid, long price, int qty, int peakSize) {
+                }
+
+                @Override
+                public void onImmediateOrder(char buySellIndicator, int uid, long price, int qty, TimeInForce timeInForce) {
+                    decoded.append(buySellIndicator).append(uid).append(price).append(qty).append(timeInForce);
+                }
+            });
+            assertEquals("S5997FILL_OR_KILL", decoded.toString());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
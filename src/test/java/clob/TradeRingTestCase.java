@@ -0,0 +1,139 @@
+package clob;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TradeRingTestCase {
+
+    @Test
+    public void testView() {
+        TradeView view = new TradeView();
+        assertSame(view, view.set(1, 2, 1L << 40, 7));
+        assertEquals(new Trade(1, 2, 1L << 40, 7), view.toTrade());
+        assertEquals("1,2,1099511627776,7", view.toString());
+
+        TradeBuffer buffer = new TradeBuffer();
+        buffer.add(3, 4, -5, 6);
+        Trade trade = buffer.getTrade(0);
+        assertSame(view, buffer.getTrade(0, view));
+        assertEquals(new Trade(3, 4, -5, 6), view.toTrade());
+        // reading into the view leaves trades already handed out alone
+        buffer.add(7, 8, 9, 10);
+        buffer.getTrade(1, view);
+        assertEquals(new Trade(3, 4, -5, 6), trade);
+        assertEquals(new Trade(7, 8, 9, 10), view.toTrade());
+    }
+
+    @Test
+    public void testWrapAround() {
+        TradeRing ring = new TradeRing(5);
+        assertEquals(8, ring.getCapacity());
+        TradeView trade = new TradeView();
+        assertFalse(ring.read(0, trade));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, ring.add(i, -i, Long.MAX_VALUE - i, i * 10));
+        }
+        assertEquals(20, ring.getPublishedSequence());
+        assertEquals(12, ring.getOldestSequence());
+        assertFalse(ring.read(11, trade));
+        assertFalse(ring.read(20, trade));
+        for (int i = 12; i < 20; i++) {
+            assertTrue(ring.read(i, trade));
+            assertEquals(new Trade(i, -i, Long.MAX_VALUE - i, i * 10), trade.toTrade());
+        }
+    }
+
+    @Test
+    public void testListenerRecordsFills() {
+        TradeJournal journal = new TradeJournal();
+        TradeRing ring = new TradeRing(64, journal);
+        LadderLimitOrderBook book = new LadderLimitOrderBook(ring);
+        book.newOrder(new LimitOrder('S', 1, 100, 5));
+        book.newOrder(new LimitOrder('S', 2, 101, 5));
+        book.newOrder(new LimitOrder('B', 3, 101, 8));
+
+        assertEquals(2, ring.getPublishedSequence());
+        assertEquals(2, journal.size());
+        TradeView trade = new TradeView();
+        assertTrue(ring.read(0, trade));
+        assertEquals(new Trade(3, 1, 101, 5), trade.toTrade());
+        assertTrue(ring.read(1, trade));
+        assertEquals(journal.getTrade(1), trade.toTrade());
+    }
+
+    /**
+     * A reader on another thread that keeps falling behind a small ring must see every fill either whole or not at all.
+     */
+    @Test
+    public void testConcurrentReaderNeverSeesTornTrades() throws InterruptedException {
+        TradeRing ring = new TradeRing(64);
+        int trades = 2_000_000;
+        AtomicLong read = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            TradeView trade = new TradeView();
+            long cursor = 0;
+            while (cursor < trades) {
+                if (cursor >= ring.getPublishedSequence()) {
+                    Thread.yield();
+                    continue;
+                }
+                if (ring.read(cursor, trade)) {
+                    long i = cursor;
+                    if (trade.getBuyOrderId() != (int) i || trade.getSellOrderId() != ~(int) i
+                            || trade.getPrice() != i << 20 || trade.getTradedQty() != (int) (i * 7)) {
+                        torn.incrementAndGet();
+                    }
+                    read.incrementAndGet();
+                    cursor++;
+                } else {
+                    cursor = Math.max(cursor + 1, ring.getOldestSequence());
+                }
+            }
+        });
+        reader.start();
+        Random random = new Random(5);
+        for (int i = 0; i < trades; i++) {
+            ring.add(i, ~i, (long) i << 20, i * 7);
+            if (random.nextInt(1000) == 0) {
+                Thread.yield();
+            }
+        }
+        reader.join();
+        assertEquals(0, torn.get());
+        assertTrue(read.get() > 0);
+    }
+
+    @Test
+    public void testPipelinePublishesToRing() throws InterruptedException {
+        TradeJournal expected = new TradeJournal();
+        LadderLimitOrderBook inline = new LadderLimitOrderBook(expected);
+        TradeRing ring = new TradeRing(1 << 16);
+        OrderPipeline pipeline = new OrderPipeline(64, new WaitStrategy.Yielding(), new LadderLimitOrderBook(), null, ring);
+        pipeline.start();
+        Random random = new Random(9);
+        for (int uid = 1; uid <= 5000; uid++) {
+            char side = random.nextBoolean() ? 'B' : 'S';
+            long price = 100 + random.nextInt(10) - (side == 'B' ? 6 : 0);
+            int qty = 1 + random.nextInt(50);
+            inline.newOrder(new LimitOrder(side, uid, price, qty));
+            pipeline.onNewOrder(side, uid, price, qty, 0);
+        }
+        pipeline.close();
+
+        assertEquals(expected.size(), ring.getPublishedSequence());
+        TradeView trade = new TradeView();
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(ring.read(i, trade));
+            assertEquals(expected.getTrade(i), trade.toTrade());
+        }
+    }
+}